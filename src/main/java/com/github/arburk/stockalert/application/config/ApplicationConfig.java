@@ -1,6 +1,7 @@
 package com.github.arburk.stockalert.application.config;
 
 import com.github.arburk.stockalert.application.domain.config.AlertConfigRoot;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
 import io.micrometer.common.util.StringUtils;
 import lombok.AccessLevel;
@@ -16,8 +17,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 @Slf4j
@@ -38,6 +43,15 @@ public class ApplicationConfig {
   @Setter
   private boolean runOnStartup;
 
+  /**
+   * Keeps the parsed config and only reloads it once the source changed.
+   */
+  @Setter
+  private boolean configCache;
+
+  @Getter(AccessLevel.NONE)
+  private ConfigSnapshot snapshot;
+
   @Getter(AccessLevel.NONE)
   private final ObjectMapper objectMapper;
 
@@ -56,28 +70,124 @@ public class ApplicationConfig {
   }
 
   public StockAlertsConfig getStockAlertsConfig() {
-    try {
-      final AlertConfigRoot alertConfigRoot = objectMapper.readValue(getConfigFileAsUrl(), AlertConfigRoot.class);
-      log.debug("read config by source '{}':\n{}", configUrl, alertConfigRoot.toString());
-      return alertConfigRoot.config();
+    if (configCache) {
+      return getCachedStockAlertsConfig();
+    }
+
+    try (Reader reader = getConfigFileAsUrl()) {
+      return AlertPlan.compile(read(reader)).config();
     } catch (Exception e) {
       throw new IllegalArgumentException("Failed to load config %s: %s".formatted(configUrl, e.getCause()), e);
     }
   }
 
-  private Reader getConfigFileAsUrl() throws IOException {
-    if (this.configUrl == null || StringUtils.isBlank(this.configUrl)) {
-      throw new IllegalArgumentException("Configuration is missing. Please set CONFIG-URL as environment variable.");
+  /**
+   * Returns the last loaded config as long as its source did not change, based on modification time and size
+   * for files and on conditional requests (ETag / Last-Modified) for URLs. The last loaded config is kept if a
+   * reload fails, only the initial load fails hard.
+   */
+  private synchronized StockAlertsConfig getCachedStockAlertsConfig() {
+    final ConfigSnapshot current = snapshot != null && snapshot.configUrl().equals(configUrl) ? snapshot : null;
+    try {
+      final ConfigSnapshot loaded = isHttp() ? loadFromUrl(current) : loadFromFile(current);
+      if (loaded != current) {
+        log.info("loaded config by source '{}'", configUrl);
+        snapshot = loaded;
+      }
+      return loaded.config();
+    } catch (Exception e) {
+      if (current == null) {
+        throw new IllegalArgumentException("Failed to load config %s: %s".formatted(configUrl, e.getCause()), e);
+      }
+      log.warn("Failed to reload config {}, keep the one loaded before: {}", configUrl, e.getMessage());
+      return current.config();
+    }
+  }
+
+  private ConfigSnapshot loadFromFile(final ConfigSnapshot current) throws IOException {
+    final File file = getConfigFile();
+    final long lastModified = Files.getLastModifiedTime(file.toPath()).toMillis();
+    final long size = Files.size(file.toPath());
+    if (current != null && current.lastModified() == lastModified && current.size() == size) {
+      return current;
+    }
+
+    try (Reader reader = new FileReader(file)) {
+      return new ConfigSnapshot(configUrl, null, lastModified, size, AlertPlan.compile(read(reader)).config());
+    }
+  }
+
+  private ConfigSnapshot loadFromUrl(final ConfigSnapshot current) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) URI.create(configUrl).toURL().openConnection();
+    if (current != null) {
+      if (current.eTag() != null) {
+        connection.setRequestProperty("If-None-Match", current.eTag());
+      }
+      if (current.lastModified() > 0) {
+        connection.setIfModifiedSince(current.lastModified());
+      }
+    }
+
+    final int status;
+    try {
+      status = connection.getResponseCode();
+      if (status != HttpURLConnection.HTTP_OK) {
+        discard(connection);
+      }
+    } catch (IOException e) {
+      connection.disconnect();
+      throw e;
+    }
+    if (current != null && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      log.debug("config by source '{}' not modified", configUrl);
+      return current;
     }
+    if (status != HttpURLConnection.HTTP_OK) {
+      throw new IOException("unexpected response status " + status);
+    }
+
+    try (InputStream in = connection.getInputStream()) {
+      final AlertConfigRoot alertConfigRoot = objectMapper.readValue(in, AlertConfigRoot.class);
+      return new ConfigSnapshot(configUrl, connection.getHeaderField("ETag"), connection.getLastModified(),
+          connection.getContentLengthLong(), AlertPlan.compile(alertConfigRoot.config()).config());
+    } catch (IOException | RuntimeException e) {
+      connection.disconnect();
+      throw e;
+    }
+  }
 
-    // check for valid pathes
-    if (this.configUrl.startsWith("file://")) {
-      return new FileReader(new File(URI.create(configUrl).normalize()));
+  /**
+   * Reads the rest of a response not used and closes it, so the connection is kept alive for the next reload.
+   */
+  private static void discard(final HttpURLConnection connection) throws IOException {
+    final InputStream error = connection.getErrorStream();
+    try (InputStream in = error != null ? error : connection.getInputStream()) {
+      in.transferTo(OutputStream.nullOutputStream());
     }
+  }
 
-    if( this.configUrl.startsWith("http://")
-        || this.configUrl.startsWith("https://")) {
+  private StockAlertsConfig read(final Reader reader) {
+    final AlertConfigRoot alertConfigRoot = objectMapper.readValue(reader, AlertConfigRoot.class);
+    log.debug("read config by source '{}':\n{}", configUrl, alertConfigRoot.toString());
+    return alertConfigRoot.config();
+  }
 
+  private boolean isHttp() {
+    return this.configUrl != null && (this.configUrl.startsWith("http://") || this.configUrl.startsWith("https://"));
+  }
+
+  private File getConfigFile() {
+    if (this.configUrl == null || StringUtils.isBlank(this.configUrl)) {
+      throw new IllegalArgumentException("Configuration is missing. Please set CONFIG-URL as environment variable.");
+    }
+
+    return this.configUrl.startsWith("file://")
+        ? new File(URI.create(configUrl).normalize())
+        : new File(Path.of(this.configUrl).normalize().toAbsolutePath().toUri());
+  }
+
+  private Reader getConfigFileAsUrl() throws IOException {
+    if (isHttp()) {
       try (BufferedInputStream in = new BufferedInputStream(URI.create(this.configUrl).toURL().openStream());
            ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
         byte[] dataBuffer = new byte[1024];
@@ -89,6 +199,14 @@ public class ApplicationConfig {
       }
     }
 
-    return new FileReader(new File(Path.of(this.configUrl).normalize().toAbsolutePath().toUri()));
+    return new FileReader(getConfigFile());
+  }
+
+  private record ConfigSnapshot(
+      String configUrl,
+      String eTag,
+      long lastModified,
+      long size,
+      StockAlertsConfig config) {
   }
 }
@@ -29,4 +29,10 @@ public record Alert(
     return Objects.equals(unit, alert.unit) && Objects.equals(threshold, alert.threshold);
   }
 
+  @Override
+  public int hashCode() {
+    // consistent with equals: the timestamp is not part of the identity
+    return Objects.hash(threshold, unit);
+  }
+
 }
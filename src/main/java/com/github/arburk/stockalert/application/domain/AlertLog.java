@@ -0,0 +1,166 @@
+package com.github.arburk.stockalert.application.domain;
+
+import java.time.LocalDateTime;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Alerts raised for a security, indexed by threshold and unit. Only the latest alert per threshold and unit is
+ * kept, so looking up a recent alert does not scan the log. Iteration follows the order alerts were (re-)added.
+ * Percentage alerts log the deviation as threshold, which differs on each alert; only the latest of them is kept.
+ */
+public final class AlertLog extends AbstractCollection<Alert> {
+
+  private static final String PERCENTAGE = "%";
+  private static final Comparator<LocalDateTime> NULLS_OLDEST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private final Map<Key, Alert> alerts = new LinkedHashMap<>();
+  private Alert mostRecent;
+  private boolean mostRecentOutdated;
+
+  private record Key(Double threshold, String unit) {
+
+    static Key of(final Alert alert) {
+      return PERCENTAGE.equals(alert.unit())
+          ? new Key(null, alert.unit())
+          : new Key(alert.threshold(), alert.unit());
+    }
+  }
+
+  public AlertLog() {
+  }
+
+  public AlertLog(final Collection<Alert> alerts) {
+    addAll(alerts);
+  }
+
+  /**
+   * Adds the given alert unless an alert with the same threshold and unit but a later timestamp is present.
+   * A replaced alert moves to the end of the log.
+   *
+   * @return true if the alert was added
+   */
+  @Override
+  public boolean add(final Alert alert) {
+    if (alert == null) {
+      return false;
+    }
+
+    final Key key = Key.of(alert);
+    final Alert present = alerts.get(key);
+    if (present != null && NULLS_OLDEST.compare(present.timestamp(), alert.timestamp()) > 0) {
+      return false;
+    }
+    alerts.remove(key);
+    alerts.put(key, alert);
+    if (!mostRecentOutdated && (mostRecent == null || NULLS_OLDEST.compare(mostRecent.timestamp(), alert.timestamp()) <= 0)) {
+      mostRecent = alert;
+    }
+    return true;
+  }
+
+  /**
+   * @return the alert logged for the threshold and unit of the given one, the latest percentage alert for a
+   * percentage alert
+   */
+  public Optional<Alert> find(final Alert alert) {
+    return alert == null ? Optional.empty() : Optional.ofNullable(alerts.get(Key.of(alert)));
+  }
+
+  /**
+   * @return the alert with the latest timestamp
+   */
+  public Optional<Alert> mostRecent() {
+    if (mostRecentOutdated) {
+      mostRecent = alerts.values().stream()
+          .max(Comparator.comparing(Alert::timestamp, NULLS_OLDEST))
+          .orElse(null);
+      mostRecentOutdated = false;
+    }
+    return Optional.ofNullable(mostRecent);
+  }
+
+  /**
+   * Removes alerts older than the given timestamp and then the oldest alerts exceeding the given count.
+   *
+   * @param notBefore alerts logged before are removed, null keeps all regardless of their age
+   * @param maxSize   number of alerts to keep at most, 0 or less keeps all regardless of their count
+   * @return number of removed alerts
+   */
+  public int prune(final LocalDateTime notBefore, final int maxSize) {
+    final int sizeBefore = alerts.size();
+    if (notBefore != null) {
+      alerts.values().removeIf(alert -> alert.timestamp() != null && alert.timestamp().isBefore(notBefore));
+    }
+    if (maxSize > 0 && alerts.size() > maxSize) {
+      final List<Key> oldest = alerts.entrySet().stream()
+          .sorted(Map.Entry.comparingByValue(Comparator.comparing(Alert::timestamp, NULLS_OLDEST)))
+          .limit(alerts.size() - maxSize)
+          .map(Map.Entry::getKey)
+          .toList();
+      oldest.forEach(alerts::remove);
+    }
+
+    final int removed = sizeBefore - alerts.size();
+    if (removed > 0) {
+      mostRecentOutdated = true;
+    }
+    return removed;
+  }
+
+  @Override
+  public Iterator<Alert> iterator() {
+    final Iterator<Alert> delegate = alerts.values().iterator();
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return delegate.hasNext();
+      }
+
+      @Override
+      public Alert next() {
+        return delegate.next();
+      }
+
+      @Override
+      public void remove() {
+        delegate.remove();
+        mostRecentOutdated = true;
+      }
+    };
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    return o instanceof Alert alert && alerts.containsKey(Key.of(alert));
+  }
+
+  @Override
+  public int size() {
+    return alerts.size();
+  }
+
+  @Override
+  public void clear() {
+    alerts.clear();
+    mostRecent = null;
+    mostRecentOutdated = false;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    return o instanceof AlertLog other && alerts.equals(other.alerts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(alerts);
+  }
+}
@@ -0,0 +1,26 @@
+package com.github.arburk.stockalert.application.domain;
+
+/**
+ * Lowest and highest price traded within a period.
+ */
+public record PriceRange(
+    double low,
+    double high) {
+
+  /**
+   * @return the range additionally covering the given prices
+   */
+  public PriceRange including(final double... prices) {
+    double min = low;
+    double max = high;
+    for (final double price : prices) {
+      min = Math.min(min, price);
+      max = Math.max(max, price);
+    }
+    return new PriceRange(min, max);
+  }
+
+  public boolean contains(final double price) {
+    return price >= low && price <= high;
+  }
+}
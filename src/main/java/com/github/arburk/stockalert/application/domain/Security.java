@@ -7,9 +7,7 @@ import lombok.NonNull;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 public record Security(
@@ -22,9 +20,9 @@ public record Security(
     Collection<Alert> alertLog) {
 
   public Security {
-    if(alertLog == null) {
+    if (!(alertLog instanceof AlertLog)) {
       // ensure never empty so new entries can be added
-      alertLog = new ArrayList<>();
+      alertLog = alertLog == null ? new AlertLog() : new AlertLog(alertLog);
     }
   }
 
@@ -64,13 +62,15 @@ public record Security(
     return Objects.hash(symbol, price, currency, changePercentage, timestamp, exchange, alertLog);
   }
 
+  /**
+   * @return the alert log indexed by threshold and unit
+   */
+  public AlertLog indexedAlertLog() {
+    return (AlertLog) alertLog;
+  }
+
   public void addLog(final Alert alert) {
-    if (!alertLog.isEmpty()) {
-      // remove entry before adding to update timestamp only
-      final List<Alert> alertToReplace = alertLog.stream()
-          .filter(log -> log.equals(alert)).toList();
-      alertToReplace.forEach(alertLog::remove);
-    }
+    // replaces an entry of the same threshold and unit to update its timestamp only
     alertLog.add(alert);
   }
 }
@@ -0,0 +1,27 @@
+package com.github.arburk.stockalert.application.domain;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+
+/**
+ * Identity of a security by symbol and exchange, used to join config, latest quotes and persisted
+ * state through hash maps. The strings cache their hash, so hashing a key is cheap.
+ */
+public record SecurityKey(String symbol, String exchange) {
+
+  public static SecurityKey of(final String symbol, final String exchange) {
+    return new SecurityKey(symbol, exchange);
+  }
+
+  public static SecurityKey of(final Security security) {
+    return of(security.symbol(), security.exchange());
+  }
+
+  public static SecurityKey of(final SecurityConfig securityConfig) {
+    return of(securityConfig.symbol(), securityConfig.exchange());
+  }
+
+  @Override
+  public String toString() {
+    return symbol + "::" + exchange;
+  }
+}
@@ -12,7 +12,7 @@ public record AlertConfig(
     String _comment
 ) {
 
-  public Alert asAlert(String unit) {
-    return new Alert(LocalDateTime.now(), threshold, unit);
+  public Alert asAlert(String unit, LocalDateTime timestamp) {
+    return new Alert(timestamp, threshold, unit);
   }
 }
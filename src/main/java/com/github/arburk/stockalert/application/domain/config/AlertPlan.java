@@ -0,0 +1,155 @@
+package com.github.arburk.stockalert.application.domain.config;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import io.micrometer.common.util.StringUtils;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable, validated form of a {@link StockAlertsConfig}. The values kept as strings in the config
+ * (percentages, silence duration, recipients) are resolved and the alerts of each security are compiled into a
+ * {@link ThresholdLadder} once, so evaluating and sending alerts does not parse or sort anything.
+ */
+@Slf4j
+public final class AlertPlan {
+
+  private final StockAlertsConfig config;
+  private final Duration silenceDuration;
+  private final Double percentageAlert;
+  private final Map<SecurityKey, SecurityPlan> securities;
+  private final Map<String, String[]> recipients;
+
+  private record SecurityPlan(SecurityConfig config, Double percentageAlert, ThresholdLadder ladder) {
+  }
+
+  private AlertPlan(final StockAlertsConfig config) {
+    this.config = config;
+    this.silenceDuration = config.getSilenceDuration();
+    this.percentageAlert = positiveOrNull(parsePercentage(config.percentageAlert(), "percentage-alert"));
+
+    final Map<SecurityKey, SecurityPlan> securityPlans = new HashMap<>();
+    final List<SecurityConfig> securityConfigs = config.securities() == null ? List.of() : config.securities();
+    for (final SecurityConfig securityConfig : securityConfigs) {
+      if (securityConfig == null || StringUtils.isBlank(securityConfig.symbol())) {
+        throw new IllegalArgumentException("security without symbol configured: " + securityConfig);
+      }
+      final Double override = parsePercentage(securityConfig.percentageAlert(), "percentage-alert of " + securityConfig.symbol());
+      validateAlerts(securityConfig);
+      securityPlans.putIfAbsent(SecurityKey.of(securityConfig),
+          new SecurityPlan(securityConfig, override != null ? override : percentageAlert, ThresholdLadder.of(securityConfig.alerts())));
+    }
+    this.securities = Map.copyOf(securityPlans);
+
+    final Map<String, String[]> channelRecipients = new HashMap<>();
+    final List<NotificationChannel> channels = config.notificationChannels() == null ? List.of() : config.notificationChannels();
+    for (final NotificationChannel channel : channels) {
+      if (channel == null || StringUtils.isBlank(channel.type())) {
+        log.warn("Ignore notification channel without type: {}", channel);
+        continue;
+      }
+      channelRecipients.putIfAbsent(channel.type().toLowerCase(Locale.ROOT), splitRecipients(channel.recipients()));
+    }
+    this.recipients = Map.copyOf(channelRecipients);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the config is invalid
+   */
+  public static AlertPlan compile(final StockAlertsConfig config) {
+    if (config == null) {
+      throw new IllegalArgumentException("stock-alert-config is missing");
+    }
+    return new AlertPlan(config);
+  }
+
+  public StockAlertsConfig config() {
+    return config;
+  }
+
+  public Duration silenceDuration() {
+    return silenceDuration;
+  }
+
+  /**
+   * @return the percentage alert of the given security, its own override if set or the global one otherwise
+   */
+  public Double percentageAlert(final SecurityConfig securityConfig) {
+    final SecurityPlan securityPlan = securities.get(SecurityKey.of(securityConfig));
+    if (securityPlan != null && securityPlan.config() == securityConfig) {
+      return securityPlan.percentageAlert();
+    }
+    // not part of this plan, resolve on demand
+    final Double override = securityConfig.getPercentageAlert();
+    return override != null ? override : percentageAlert;
+  }
+
+  /**
+   * @return the alerts of the given security compiled into a ladder
+   */
+  public ThresholdLadder ladder(final SecurityConfig securityConfig) {
+    final SecurityPlan securityPlan = securities.get(SecurityKey.of(securityConfig));
+    if (securityPlan != null && securityPlan.config() == securityConfig) {
+      return securityPlan.ladder();
+    }
+    // not part of this plan, compile on demand
+    return ThresholdLadder.of(securityConfig.alerts());
+  }
+
+  public SecurityConfig findConfig(final Security security) {
+    if (security == null) {
+      return null;
+    }
+    final SecurityPlan securityPlan = securities.get(SecurityKey.of(security));
+    return securityPlan == null ? null : securityPlan.config();
+  }
+
+  /**
+   * @return recipients of the given channel type, empty if there is no such channel configured
+   */
+  public Optional<String[]> recipients(final String channelType) {
+    final String[] channelRecipients = channelType == null ? null : recipients.get(channelType.toLowerCase(Locale.ROOT));
+    return Optional.ofNullable(channelRecipients).map(String[]::clone);
+  }
+
+  private static Double parsePercentage(final String value, final String name) {
+    if (StringUtils.isBlank(value)) {
+      return null;
+    }
+    final Double parsed = PercentageConverter.asDouble(value);
+    if (parsed == null) {
+      throw new IllegalArgumentException("invalid %s: %s".formatted(name, value));
+    }
+    return parsed;
+  }
+
+  private static Double positiveOrNull(final Double value) {
+    return value != null && value > 0 ? value : null;
+  }
+
+  private static void validateAlerts(final SecurityConfig securityConfig) {
+    if (securityConfig.alerts() == null) {
+      return;
+    }
+    for (final AlertConfig alert : securityConfig.alerts()) {
+      if (alert != null && !Double.isFinite(alert.threshold())) {
+        throw new IllegalArgumentException("invalid threshold %s for %s".formatted(alert.threshold(), securityConfig.symbol()));
+      }
+    }
+  }
+
+  private static String[] splitRecipients(final String recipients) {
+    if (StringUtils.isBlank(recipients)) {
+      return new String[0];
+    }
+    return Arrays.stream(recipients.split("[,;]"))
+        .map(String::trim)
+        .toArray(String[]::new);
+  }
+}
@@ -0,0 +1,112 @@
+package com.github.arburk.stockalert.application.domain.config;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Alerts of a security compiled into a threshold-sorted ladder. The thresholds are kept in a primitive array
+ * next to their {@link AlertConfig} (and with it the notification channel), so the alerts crossed by a price
+ * move are located by two binary searches instead of testing every configured threshold.
+ */
+public final class ThresholdLadder {
+
+  private final double[] thresholds;
+  private final AlertConfig[] alerts;
+
+  private ThresholdLadder(final double[] thresholds, final AlertConfig[] alerts) {
+    this.thresholds = thresholds;
+    this.alerts = alerts;
+  }
+
+  /**
+   * Compiles the given alerts. Alerts sharing a threshold keep their configured order.
+   */
+  public static ThresholdLadder of(final List<AlertConfig> alertConfigs) {
+    final List<AlertConfig> sorted = alertConfigs == null
+        ? new ArrayList<>()
+        : new ArrayList<>(alertConfigs.stream().filter(Objects::nonNull).toList());
+    sorted.sort(Comparator.comparingDouble(AlertConfig::threshold));
+
+    final double[] thresholds = new double[sorted.size()];
+    final AlertConfig[] alerts = new AlertConfig[sorted.size()];
+    for (int i = 0; i < alerts.length; i++) {
+      alerts[i] = sorted.get(i);
+      thresholds[i] = alerts[i].threshold();
+    }
+    return new ThresholdLadder(thresholds, alerts);
+  }
+
+  public int size() {
+    return alerts.length;
+  }
+
+  /**
+   * Passes every alert with a threshold within [low, high] (bounds inclusive) to the given action, in ascending or
+   * descending threshold order.
+   */
+  public void forEachCrossed(final double low, final double high, final boolean ascending, final Consumer<AlertConfig> action) {
+    final int lo = firstAtOrAbove(low);
+    final int hi = firstAbove(high);
+    if (ascending) {
+      for (int i = lo; i < hi; i++) {
+        action.accept(alerts[i]);
+      }
+    } else {
+      for (int i = hi - 1; i >= lo; i--) {
+        action.accept(alerts[i]);
+      }
+    }
+  }
+
+  /**
+   * @return absolute distance from the given price to the nearest threshold, infinite if there is none
+   */
+  public double distanceToNearest(final double price) {
+    final int above = firstAtOrAbove(price);
+    double distance = Double.POSITIVE_INFINITY;
+    if (above < thresholds.length) {
+      distance = thresholds[above] - price;
+    }
+    if (above > 0) {
+      distance = Math.min(distance, price - thresholds[above - 1]);
+    }
+    return distance;
+  }
+
+  /**
+   * @return index of the first threshold greater than or equal to the given value, {@link #size()} if there is none
+   */
+  int firstAtOrAbove(final double value) {
+    int low = 0;
+    int high = thresholds.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (thresholds[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return index of the first threshold strictly greater than the given value, {@link #size()} if there is none
+   */
+  int firstAbove(final double value) {
+    int low = 0;
+    int high = thresholds.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (thresholds[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,117 @@
+package com.github.arburk.stockalert.application.domain.market;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import io.micrometer.common.util.StringUtils;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static com.github.arburk.stockalert.application.domain.market.HolidayRule.easter;
+import static com.github.arburk.stockalert.application.domain.market.HolidayRule.fixed;
+import static com.github.arburk.stockalert.application.domain.market.HolidayRule.fixedObserved;
+import static com.github.arburk.stockalert.application.domain.market.HolidayRule.nthWeekday;
+
+/**
+ * Trading sessions of the exchanges supported by the Yahoo tickers. A security is resolved by its
+ * Yahoo suffix (e.g. NESN.SW), by the exchange label of the config (e.g. "Switzerland") or as
+ * US listing if the symbol is a plain ticker without suffix.
+ */
+public class ExchangeCalendar {
+
+  public static final ExchangeSession SIX = new ExchangeSession("SIX", ZoneId.of("Europe/Zurich"),
+      LocalTime.of(9, 0), LocalTime.of(17, 30), List.of(
+      fixed(Month.JANUARY, 1), fixed(Month.JANUARY, 2), easter(-2), easter(1), fixed(Month.MAY, 1), easter(39), easter(50),
+      fixed(Month.AUGUST, 1), fixed(Month.DECEMBER, 24), fixed(Month.DECEMBER, 25), fixed(Month.DECEMBER, 26),
+      fixed(Month.DECEMBER, 31)));
+
+  public static final ExchangeSession XETRA = new ExchangeSession("Xetra", ZoneId.of("Europe/Berlin"),
+      LocalTime.of(9, 0), LocalTime.of(17, 30), List.of(
+      fixed(Month.JANUARY, 1), easter(-2), easter(1), fixed(Month.MAY, 1), fixed(Month.DECEMBER, 24),
+      fixed(Month.DECEMBER, 25), fixed(Month.DECEMBER, 26), fixed(Month.DECEMBER, 31)));
+
+  public static final ExchangeSession EURONEXT = new ExchangeSession("Euronext", ZoneId.of("Europe/Paris"),
+      LocalTime.of(9, 0), LocalTime.of(17, 30), List.of(
+      fixed(Month.JANUARY, 1), easter(-2), easter(1), fixed(Month.MAY, 1), fixed(Month.DECEMBER, 25),
+      fixed(Month.DECEMBER, 26)));
+
+  public static final ExchangeSession LSE = new ExchangeSession("LSE", ZoneId.of("Europe/London"),
+      LocalTime.of(8, 0), LocalTime.of(16, 30), List.of(
+      fixed(Month.JANUARY, 1), easter(-2), easter(1), nthWeekday(Month.MAY, 1, DayOfWeek.MONDAY),
+      nthWeekday(Month.MAY, -1, DayOfWeek.MONDAY), nthWeekday(Month.AUGUST, -1, DayOfWeek.MONDAY),
+      fixed(Month.DECEMBER, 25), fixed(Month.DECEMBER, 26)));
+
+  public static final ExchangeSession US = new ExchangeSession("US", ZoneId.of("America/New_York"),
+      LocalTime.of(9, 30), LocalTime.of(16, 0), List.of(
+      fixedObserved(Month.JANUARY, 1), nthWeekday(Month.JANUARY, 3, DayOfWeek.MONDAY),
+      nthWeekday(Month.FEBRUARY, 3, DayOfWeek.MONDAY), easter(-2), nthWeekday(Month.MAY, -1, DayOfWeek.MONDAY),
+      fixedObserved(Month.JUNE, 19), fixedObserved(Month.JULY, 4), nthWeekday(Month.SEPTEMBER, 1, DayOfWeek.MONDAY),
+      nthWeekday(Month.NOVEMBER, 4, DayOfWeek.THURSDAY), fixedObserved(Month.DECEMBER, 25)));
+
+  private static final Map<String, ExchangeSession> BY_SUFFIX = Map.of(
+      "SW", SIX,
+      "DE", XETRA,
+      "F", XETRA,
+      "AS", EURONEXT,
+      "PA", EURONEXT,
+      "BR", EURONEXT,
+      "LS", EURONEXT,
+      "L", LSE);
+
+  private static final Map<String, ExchangeSession> BY_EXCHANGE_LABEL = Map.ofEntries(
+      Map.entry("switzerland", SIX),
+      Map.entry("six", SIX),
+      Map.entry("swiss exchange", SIX),
+      Map.entry("xetra", XETRA),
+      Map.entry("frankfurt", XETRA),
+      Map.entry("germany", XETRA),
+      Map.entry("euronext", EURONEXT),
+      Map.entry("amsterdam", EURONEXT),
+      Map.entry("paris", EURONEXT),
+      Map.entry("brussels", EURONEXT),
+      Map.entry("lisbon", EURONEXT),
+      Map.entry("london", LSE),
+      Map.entry("lse", LSE),
+      Map.entry("nyse", US),
+      Map.entry("nasdaq", US),
+      Map.entry("us", US),
+      Map.entry("usa", US));
+
+  /**
+   * Plain US tickers, e.g. MMM or BRK-B. Indices (^GSPC), currencies (EURUSD=X) and crypto
+   * (BTC-USD) are traded around the clock or have no exchange session.
+   */
+  private static final Pattern US_TICKER = Pattern.compile("[A-Z]{1,5}(-[A-Z])?");
+
+  private ExchangeCalendar() {
+    // Static usage only
+  }
+
+  public static Optional<ExchangeSession> resolve(final SecurityConfig security) {
+    return security == null
+        ? Optional.empty()
+        : resolve(security.symbol(), security.exchange());
+  }
+
+  public static Optional<ExchangeSession> resolve(final String symbol, final String exchange) {
+    if (StringUtils.isBlank(symbol)) {
+      return Optional.empty();
+    }
+    final String ticker = symbol.trim().toUpperCase(Locale.ROOT);
+    final int suffixStart = ticker.lastIndexOf('.');
+    if (suffixStart > 0 && BY_SUFFIX.containsKey(ticker.substring(suffixStart + 1))) {
+      return Optional.of(BY_SUFFIX.get(ticker.substring(suffixStart + 1)));
+    }
+    if (StringUtils.isNotBlank(exchange) && BY_EXCHANGE_LABEL.containsKey(exchange.trim().toLowerCase(Locale.ROOT))) {
+      return Optional.of(BY_EXCHANGE_LABEL.get(exchange.trim().toLowerCase(Locale.ROOT)));
+    }
+    return US_TICKER.matcher(ticker).matches()
+        ? Optional.of(US)
+        : Optional.empty();
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.arburk.stockalert.application.domain.market;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Regular trading session of an exchange: daily opening hours in the exchange's time zone on
+ * weekdays which are not a holiday. Half-days and special closures are not modeled.
+ */
+public record ExchangeSession(
+    String name,
+    ZoneId zone,
+    LocalTime open,
+    LocalTime close,
+    List<HolidayRule> holidays) {
+
+  private static final int MAX_DAYS_WITHOUT_SESSION = 14;
+
+  public boolean isTradingDay(final LocalDate date) {
+    return date.getDayOfWeek() != DayOfWeek.SATURDAY
+        && date.getDayOfWeek() != DayOfWeek.SUNDAY
+        && holidays.stream().noneMatch(holiday -> holiday.matches(date));
+  }
+
+  public boolean isOpen(final Instant instant) {
+    final ZonedDateTime local = instant.atZone(zone);
+    final LocalTime time = local.toLocalTime();
+    return isTradingDay(local.toLocalDate())
+        && !time.isBefore(open)
+        && time.isBefore(close);
+  }
+
+  /**
+   * @return the end of the most recent session which closed at or before the given instant, or
+   * {@code null} if there was none within the last two weeks
+   */
+  public Instant lastCloseBefore(final Instant instant) {
+    final ZonedDateTime local = instant.atZone(zone);
+    LocalDate date = local.toLocalTime().isBefore(close)
+        ? local.toLocalDate().minusDays(1)
+        : local.toLocalDate();
+    for (int i = 0; i < MAX_DAYS_WITHOUT_SESSION; i++, date = date.minusDays(1)) {
+      if (isTradingDay(date)) {
+        return date.atTime(close).atZone(zone).toInstant();
+      }
+    }
+    return null;
+  }
+}
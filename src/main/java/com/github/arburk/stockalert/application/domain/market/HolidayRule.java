@@ -0,0 +1,82 @@
+package com.github.arburk.stockalert.application.domain.market;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Decides whether an exchange is closed on a given date beyond the regular weekend.
+ */
+@FunctionalInterface
+public interface HolidayRule {
+
+  boolean matches(LocalDate date);
+
+  /**
+   * Same date every year, e.g. Christmas.
+   */
+  static HolidayRule fixed(final Month month, final int dayOfMonth) {
+    final MonthDay monthDay = MonthDay.of(month, dayOfMonth);
+    return date -> MonthDay.from(date).equals(monthDay);
+  }
+
+  /**
+   * Same date every year, moved to Friday if it falls on a Saturday or to Monday if it falls on a
+   * Sunday (US convention).
+   */
+  static HolidayRule fixedObserved(final Month month, final int dayOfMonth) {
+    return date -> {
+      final LocalDate holiday = LocalDate.of(date.getYear(), month, dayOfMonth);
+      final LocalDate observed = switch (holiday.getDayOfWeek()) {
+        case SATURDAY -> holiday.minusDays(1);
+        case SUNDAY -> holiday.plusDays(1);
+        default -> holiday;
+      };
+      return date.equals(observed);
+    };
+  }
+
+  /**
+   * Relative to Easter Sunday, e.g. -2 for Good Friday or 1 for Easter Monday.
+   */
+  static HolidayRule easter(final int offsetDays) {
+    return date -> date.equals(easterSunday(date.getYear()).plusDays(offsetDays));
+  }
+
+  /**
+   * The n-th weekday of a month, e.g. the 4th Thursday of November. A negative {@code n} counts
+   * from the end of the month, -1 being the last one.
+   */
+  static HolidayRule nthWeekday(final Month month, final int n, final DayOfWeek dayOfWeek) {
+    return date -> {
+      final LocalDate firstOfMonth = LocalDate.of(date.getYear(), month, 1);
+      final LocalDate holiday = n > 0
+          ? firstOfMonth.with(TemporalAdjusters.dayOfWeekInMonth(n, dayOfWeek))
+          : firstOfMonth.with(TemporalAdjusters.lastInMonth(dayOfWeek)).minusWeeks(-1L - n);
+      return date.equals(holiday);
+    };
+  }
+
+  /**
+   * Easter Sunday of the Gregorian calendar (anonymous Gregorian algorithm).
+   */
+  static LocalDate easterSunday(final int year) {
+    final int a = year % 19;
+    final int b = year / 100;
+    final int c = year % 100;
+    final int d = b / 4;
+    final int e = b % 4;
+    final int f = (b + 8) / 25;
+    final int g = (b - f + 1) / 3;
+    final int h = (19 * a + b - d - g + 15) % 30;
+    final int i = c / 4;
+    final int k = c % 4;
+    final int l = (32 + 2 * e + 2 * i - h - k) % 7;
+    final int m = (a + 11 * h + 22 * l) / 451;
+    final int month = (h + l - 7 * m + 114) / 31;
+    final int day = ((h + l - 7 * m + 114) % 31) + 1;
+    return LocalDate.of(year, month, day);
+  }
+}
@@ -1,7 +1,9 @@
 package com.github.arburk.stockalert.application.service;
 
+import com.github.arburk.stockalert.application.service.cluster.LeaderElection;
 import com.github.arburk.stockalert.application.service.stock.StockService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -11,12 +13,28 @@ public class Scheduler {
 
   private final StockService stockService;
 
+  /**
+   * Present if leader election is enabled, replicas on standby only keep their state up to date.
+   */
+  @Autowired(required = false)
+  LeaderElection leaderElection;
+
   public Scheduler(final StockService stockService) {
     this.stockService = stockService;
   }
 
   @Scheduled(cron = "${stock-alert.update-cron}")
   public void updateStock() {
+    if (leaderElection != null && !leaderElection.isLeader()) {
+      log.info("Standby, refresh state instead of updating stock.");
+      try {
+        stockService.warmUp();
+      } catch (Exception e) {
+        log.error("failed to refresh state: {}", e.getMessage());
+      }
+      return;
+    }
+
     log.info("Updating stock...");
     try {
       stockService.update();
@@ -0,0 +1,130 @@
+package com.github.arburk.stockalert.application.service.cluster;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elects the one replica running the scheduled updates. The replica holding the {@value #LEASE_NAME} lease
+ * leads until it fails to renew it in time; any other replica takes over once the lease expired.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.leader-election.enabled", havingValue = "true")
+public class LeaderElection {
+
+  static final String LEASE_NAME = "leader";
+
+  private final LeaseStore leaseStore;
+  private final String replicaId;
+  private final Duration leaseTtl;
+  private final Clock clock;
+  private volatile Lease lease;
+
+  public LeaderElection(
+      final LeaseStore leaseStore,
+      @Value("${stock-alert.sharding.replica-id:local}") final String replicaId,
+      @Value("${stock-alert.leader-election.lease-ttl-seconds:90}") final long leaseTtlSeconds,
+      final Clock clock) {
+    this.leaseStore = leaseStore;
+    this.replicaId = replicaId;
+    this.leaseTtl = Duration.ofSeconds(leaseTtlSeconds);
+    this.clock = clock;
+  }
+
+  @Scheduled(fixedDelayString = "${stock-alert.leader-election.heartbeat-seconds:30}", timeUnit = TimeUnit.SECONDS)
+  public void heartbeat() {
+    final boolean wasLeader = isLeader();
+    try {
+      final Optional<Lease> acquired = leaseStore.tryAcquire(LEASE_NAME, replicaId, clock.instant(), leaseTtl);
+      lease = acquired.orElse(null);
+    } catch (Exception e) {
+      // keep the lease, it runs out by itself if the store stays unavailable
+      log.warn("Failed to renew leader lease of replica {}: {}", replicaId, e.getMessage());
+    }
+
+    final boolean leader = isLeader();
+    if (leader && !wasLeader) {
+      log.info("Replica {} became leader with fencing token {}", replicaId, lease.token());
+    } else if (!leader && wasLeader) {
+      log.warn("Replica {} lost leadership", replicaId);
+    }
+  }
+
+  /**
+   * @return true if this replica holds a valid leader lease as of its last renewal
+   */
+  public boolean isLeader() {
+    final Lease current = lease;
+    return current != null && current.isValid(clock.instant());
+  }
+
+  /**
+   * @return the fencing token of the lease held, 0 if not leading
+   */
+  public long fencingToken() {
+    final Lease current = lease;
+    return current != null && current.isValid(clock.instant()) ? current.token() : 0;
+  }
+
+  /**
+   * Verifies against the lease store that the lease is still held with the same fencing token. Meant to be
+   * called right before writing shared state, so a replica that was paused past its lease does not overwrite
+   * the state of its successor.
+   */
+  public boolean isLeaseHeld() {
+    if (!isLeader()) {
+      return false;
+    }
+    final long token = fencingToken();
+    final Instant now = clock.instant();
+    try {
+      return leaseStore.list(LEASE_NAME).stream()
+          .filter(stored -> LEASE_NAME.equals(stored.name()))
+          .anyMatch(stored -> stored.isHeldBy(replicaId, token, now));
+    } catch (Exception e) {
+      log.warn("Failed to verify leader lease of replica {}: {}", replicaId, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Runs the given write of shared state only if the lease is still held with the same fencing token, as far as
+   * the lease store can tell while the write runs.
+   *
+   * @return false if the write was skipped since the lease is not held
+   */
+  public boolean runFenced(final Runnable write) {
+    if (!isLeader()) {
+      return false;
+    }
+    return leaseStore.runIfHeld(LEASE_NAME, replicaId, fencingToken(), clock.instant(), write);
+  }
+
+  @PreDestroy
+  public void release() {
+    final Lease current = lease;
+    if (!isLeader()) {
+      return;
+    }
+    try {
+      // expire rather than delete the lease, the successor continues with the next fencing token
+      if (leaseStore.release(LEASE_NAME, replicaId, current.token(), clock.instant())) {
+        log.info("Replica {} released leadership", replicaId);
+      } else {
+        log.info("Replica {} released leadership, the lease passed to another replica already", replicaId);
+      }
+      lease = null;
+    } catch (Exception e) {
+      log.warn("Failed to release leader lease of replica {}: {}", replicaId, e.getMessage());
+    }
+  }
+}
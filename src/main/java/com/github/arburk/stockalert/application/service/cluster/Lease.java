@@ -0,0 +1,42 @@
+package com.github.arburk.stockalert.application.service.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Claim of a holder on a named resource, valid until it expires unless renewed. The fencing token grows
+ * whenever the lease passes to a new holder, so writes of a former holder can be told apart.
+ */
+public record Lease(String name, String holder, Instant expiresAt, long token) {
+
+  public Lease(final String name, final String holder, final Instant expiresAt) {
+    this(name, holder, expiresAt, 0);
+  }
+
+  public boolean isValid(final Instant now) {
+    return expiresAt != null && expiresAt.isAfter(now);
+  }
+
+  /**
+   * @return true if the lease is valid and held by the given holder with the given fencing token
+   */
+  public boolean isHeldBy(final String holder, final long token, final Instant now) {
+    return isValid(now) && holder.equals(this.holder) && this.token == token;
+  }
+
+  /**
+   * @param current the lease stored so far, null if there is none
+   * @return the lease of the given holder replacing the current one, null if the current one is valid and held by another holder
+   */
+  public static Lease claim(final Lease current, final String name, final String holder, final Instant now, final Duration ttl) {
+    if (current == null) {
+      return new Lease(name, holder, now.plus(ttl), 1);
+    }
+    final boolean valid = current.isValid(now);
+    final boolean own = holder.equals(current.holder());
+    if (valid && !own) {
+      return null;
+    }
+    return new Lease(name, holder, now.plus(ttl), valid ? current.token() : current.token() + 1);
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.arburk.stockalert.application.service.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage of leases shared by all replicas, backed by the configured storage provider.
+ */
+public interface LeaseStore {
+
+  /**
+   * @return the stored leases whose name starts with the given prefix, including expired ones
+   */
+  List<Lease> list(String prefix);
+
+  /**
+   * Stores the given lease, replacing a lease of the same name.
+   */
+  void put(Lease lease);
+
+  void delete(String name);
+
+  /**
+   * Atomically claims the named lease for the given holder, see {@link Lease#claim}.
+   *
+   * @return the lease held afterwards, empty if another holder holds a valid lease or won a concurrent claim
+   */
+  Optional<Lease> tryAcquire(String name, String holder, Instant now, Duration ttl);
+
+  /**
+   * Atomically expires the named lease if it is still held by the given holder with the given fencing token, so a
+   * lease acquired by another holder meanwhile is kept.
+   *
+   * @return false if the lease passed to another holder
+   */
+  boolean release(String name, String holder, long token, Instant now);
+
+  /**
+   * Runs the given write if the named lease is held by the given holder with the given fencing token. Stores able
+   * to exclude claims while the write runs override this, by default the lease is verified right before.
+   *
+   * @return false if the lease is not held and the write was skipped
+   */
+  default boolean runIfHeld(final String name, final String holder, final long token, final Instant now, final Runnable write) {
+    final boolean held = list(name).stream()
+        .filter(stored -> name.equals(stored.name()))
+        .anyMatch(stored -> stored.isHeldBy(holder, token, now));
+    if (held) {
+      write.run();
+    }
+    return held;
+  }
+}
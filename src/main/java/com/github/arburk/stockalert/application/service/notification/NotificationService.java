@@ -2,8 +2,8 @@ package com.github.arburk.stockalert.application.service.notification;
 
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.NotificationChannel;
-import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -31,10 +31,10 @@ public class NotificationService {
 
   }
 
-  public void send(final StockAlertsConfig stockAlertsConfig, final AlertConfig alertConfig, final Security latest, final Security persisted) {
+  public void send(final AlertPlan plan, final AlertConfig alertConfig, final Security latest, final Security persisted) {
     try {
       getSender(Channel.ofValue(alertConfig.notification()))
-          .send(stockAlertsConfig, alertConfig, latest, persisted);
+          .send(plan, alertConfig, latest, persisted);
     } catch (Exception e) {
       log.error("Failed to send Alert: {}", e.getMessage());
     }
@@ -48,16 +48,17 @@ public class NotificationService {
   }
 
   public void sendPercentage(
-      final StockAlertsConfig stockAlertsConfig,
+      final AlertPlan plan,
       final @NonNull Security latest, final @NonNull Security persisted,
       final Double threshold, final double deviation) {
 
-    if (stockAlertsConfig.notificationChannels() == null || stockAlertsConfig.notificationChannels().isEmpty()) {
+    final List<NotificationChannel> channels = plan.config().notificationChannels();
+    if (channels == null || channels.isEmpty()) {
       log.warn("No notification channels could be found.");
       return;
     }
 
-    final List<NotificationChannel> defaultChannels = stockAlertsConfig.notificationChannels()
+    final List<NotificationChannel> defaultChannels = channels
         .stream()
         .filter(NotificationChannel::isDefault)
         .toList();
@@ -69,7 +70,7 @@ public class NotificationService {
     try {
       defaultChannels.forEach(channel ->
           getSender(Channel.ofValue(channel.type()))
-              .send(stockAlertsConfig, latest, persisted, threshold, deviation));
+              .send(plan, latest, persisted, threshold, deviation));
     } catch (Exception e) {
       log.error("Failed to send Percentage-Alert: {}", e.getMessage());
     }
@@ -0,0 +1,275 @@
+package com.github.arburk.stockalert.application.service.replay;
+
+import com.github.arburk.stockalert.application.domain.MetaInfo;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import com.github.arburk.stockalert.application.service.notification.Channel;
+import com.github.arburk.stockalert.application.service.notification.NotificationSender;
+import com.github.arburk.stockalert.application.service.notification.NotificationService;
+import com.github.arburk.stockalert.application.service.stock.PersistenceProvider;
+import com.github.arburk.stockalert.application.service.stock.StockService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replays historical quotes through the alert evaluation of {@link StockService} as fast as possible, to see
+ * which notifications a config would have sent. Each replay starts without persisted state; quotes are kept
+ * in memory, the time is taken from the quotes and notifications are recorded instead of sent.
+ * <p>
+ * Quote files are CSV with one quote per line: {@code timestamp,symbol,exchange,price[,change-percentage[,currency]]},
+ * timestamps as ISO local date time. Empty lines, lines starting with {@code #} and a header line are skipped.
+ * The quotes of a security have to be in chronological order, securities do not depend on each other.
+ */
+@Slf4j
+public class ReplayEngine {
+
+  private static final String DEFAULT_CURRENCY = "CHF";
+
+  public ReplayReport replay(final StockAlertsConfig config, final List<Path> files) throws IOException {
+    final Run run = new Run(config);
+    for (final Path file : files) {
+      try (BufferedReader reader = Files.newBufferedReader(file)) {
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          lineNumber++;
+          final Security tick = parse(line, file, lineNumber);
+          if (tick != null) {
+            run.replay(tick);
+          }
+        }
+      }
+    }
+    return run.report();
+  }
+
+  public ReplayReport replay(final StockAlertsConfig config, final Iterable<Security> ticks) {
+    final Run run = new Run(config);
+    ticks.forEach(run::replay);
+    return run.report();
+  }
+
+  static Security parse(final String line, final Path file, final int lineNumber) {
+    if (line.isBlank() || line.startsWith("#") || (lineNumber == 1 && line.startsWith("timestamp"))) {
+      return null;
+    }
+    final String[] fields = line.split(",", -1);
+    if (fields.length < 4) {
+      throw new IllegalArgumentException("%s:%d: expected timestamp,symbol,exchange,price but was: %s".formatted(file, lineNumber, line));
+    }
+    try {
+      return new Security(
+          fields[1].trim(),
+          Double.parseDouble(fields[3].trim()),
+          fields.length > 5 && !fields[5].isBlank() ? fields[5].trim() : DEFAULT_CURRENCY,
+          fields.length > 4 && !fields[4].isBlank() ? Double.parseDouble(fields[4].trim()) : null,
+          LocalDateTime.parse(fields[0].trim()),
+          fields[2].trim(),
+          null);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("%s:%d: %s".formatted(file, lineNumber, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * State of one replay, a fresh service on fresh state each.
+   */
+  private static final class Run {
+
+    private final AlertPlan plan;
+    private final ReplayClock clock = new ReplayClock();
+    private final StockService stockService;
+    private final Map<SecurityKey, Stats> stats = new LinkedHashMap<>();
+    private final long started = System.nanoTime();
+    private long ticks;
+
+    Run(final StockAlertsConfig config) {
+      this.plan = AlertPlan.compile(config);
+      final List<NotificationSender> senders = Arrays.stream(Channel.values())
+          .<NotificationSender>map(channel -> new RecordingSender(channel, this))
+          .toList();
+      this.stockService = new StockService(null, securities -> List.of(), new InMemoryPersistence(),
+          new NotificationService(senders), List.of(), clock);
+    }
+
+    void replay(final Security tick) {
+      final SecurityConfig securityConfig = plan.findConfig(tick);
+      if (securityConfig == null) {
+        return;
+      }
+      ticks++;
+      stats.computeIfAbsent(SecurityKey.of(tick), key -> new Stats()).ticks++;
+      clock.set(tick.timestamp());
+      stockService.evaluate(plan, securityConfig, tick);
+    }
+
+    void recorded(final Security latest, final boolean percentage) {
+      final Stats security = stats.computeIfAbsent(SecurityKey.of(latest), key -> new Stats());
+      security.alerted(latest.timestamp(), percentage);
+    }
+
+    ReplayReport report() {
+      final Map<SecurityKey, ReplayReport.SecurityResult> result = new LinkedHashMap<>();
+      stats.forEach((key, security) -> result.put(key, security.result()));
+      return new ReplayReport(result, ticks, Duration.ofNanos(System.nanoTime() - started));
+    }
+  }
+
+  private static final class Stats {
+
+    private long ticks;
+    private int thresholdAlerts;
+    private int percentageAlerts;
+    private LocalDateTime firstAlert;
+    private LocalDateTime lastAlert;
+    private Duration minAlertInterval;
+
+    void alerted(final LocalDateTime timestamp, final boolean percentage) {
+      if (percentage) {
+        percentageAlerts++;
+      } else {
+        thresholdAlerts++;
+      }
+      if (firstAlert == null) {
+        firstAlert = timestamp;
+      }
+      if (lastAlert != null) {
+        final Duration interval = Duration.between(lastAlert, timestamp);
+        minAlertInterval = minAlertInterval == null || interval.compareTo(minAlertInterval) < 0 ? interval : minAlertInterval;
+      }
+      lastAlert = timestamp;
+    }
+
+    ReplayReport.SecurityResult result() {
+      return new ReplayReport.SecurityResult(ticks, thresholdAlerts, percentageAlerts, firstAlert, lastAlert, minAlertInterval);
+    }
+  }
+
+  /**
+   * Records notifications instead of sending them.
+   */
+  private record RecordingSender(Channel channel, Run run) implements NotificationSender {
+
+    @Override
+    public Channel getChannel() {
+      return channel;
+    }
+
+    @Override
+    public void send(final AlertPlan plan, final AlertConfig alertConfig, final Security latest, final Security persisted) {
+      run.recorded(latest, false);
+    }
+
+    @Override
+    public void send(final AlertPlan plan, final Security latest, final Security persisted, final Double threshold, final double deviation) {
+      run.recorded(latest, true);
+    }
+  }
+
+  /**
+   * Clock following the timestamps of the replayed quotes. Clocks of other zones derived from it share its
+   * ticks, so they follow the replay as well.
+   */
+  static final class ReplayClock extends Clock {
+
+    private final AtomicReference<Instant> tick;
+    private final ZoneId zone;
+
+    ReplayClock() {
+      this(new AtomicReference<>(Instant.EPOCH), ZoneId.systemDefault());
+    }
+
+    private ReplayClock(final AtomicReference<Instant> tick, final ZoneId zone) {
+      this.tick = tick;
+      this.zone = zone;
+    }
+
+    /**
+     * @param timestamp of a quote, in the zone of this clock
+     */
+    void set(final LocalDateTime timestamp) {
+      tick.set(timestamp.atZone(zone).toInstant());
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      return this.zone.equals(zone) ? this : new ReplayClock(tick, zone);
+    }
+
+    @Override
+    public Instant instant() {
+      return tick.get();
+    }
+  }
+
+  /**
+   * Keeps the latest quote per security in memory, merging alert logs like the storage providers do.
+   */
+  private static final class InMemoryPersistence implements PersistenceProvider {
+
+    private final Map<SecurityKey, Security> securities = new LinkedHashMap<>();
+    private MetaInfo metaInfo;
+
+    @Override
+    public Collection<Security> getSecurites() {
+      return securities.values();
+    }
+
+    @Override
+    public Optional<Security> getSecurity(@NonNull final Security identifier) {
+      return Optional.ofNullable(securities.get(SecurityKey.of(identifier)));
+    }
+
+    @Override
+    public void updateSecurity(@NonNull final Security security) {
+      final Security stored = securities.put(SecurityKey.of(security), security);
+      if (stored != null) {
+        security.alertLog().addAll(stored.alertLog());
+      }
+    }
+
+    @Override
+    public MetaInfo getMetaInfo() {
+      return metaInfo;
+    }
+
+    @Override
+    public void updateMetaInfo(final MetaInfo metaInfo) {
+      this.metaInfo = metaInfo;
+    }
+
+    @Override
+    public void commitChanges() {
+      // nothing to write
+    }
+
+    @Override
+    public void reload() {
+      // nothing to read
+    }
+  }
+}
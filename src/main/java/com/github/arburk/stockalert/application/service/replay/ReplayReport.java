@@ -0,0 +1,54 @@
+package com.github.arburk.stockalert.application.service.replay;
+
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Outcome of a replay: the notifications each security would have sent and when.
+ *
+ * @param ticks   number of quotes replayed
+ * @param elapsed time the replay took
+ */
+public record ReplayReport(Map<SecurityKey, SecurityResult> securities, long ticks, Duration elapsed) {
+
+  /**
+   * @param ticks             number of quotes replayed for the security
+   * @param thresholdAlerts   notifications sent for crossed thresholds
+   * @param percentageAlerts  notifications sent for exceeded percentage alerts
+   * @param firstAlert        quote time of the first notification, null if there was none
+   * @param lastAlert         quote time of the last notification, null if there was none
+   * @param minAlertInterval  shortest time between two notifications, null if there were less than two
+   */
+  public record SecurityResult(long ticks, int thresholdAlerts, int percentageAlerts,
+                               LocalDateTime firstAlert, LocalDateTime lastAlert, Duration minAlertInterval) {
+
+    public int alerts() {
+      return thresholdAlerts + percentageAlerts;
+    }
+  }
+
+  public int alerts() {
+    return securities.values().stream().mapToInt(SecurityResult::alerts).sum();
+  }
+
+  public double ticksPerSecond() {
+    return elapsed.isZero() ? ticks : ticks * 1e9 / elapsed.toNanos();
+  }
+
+  /**
+   * @return the report as table, one line per security
+   */
+  public String format() {
+    final StringBuilder result = new StringBuilder("%-20s %10s %10s %10s %-19s %-19s %s%n".formatted(
+        "security", "ticks", "threshold", "percent", "first alert", "last alert", "min interval"));
+    securities.forEach((key, security) -> result.append("%-20s %10d %10d %10d %-19s %-19s %s%n".formatted(
+        key, security.ticks(), security.thresholdAlerts(), security.percentageAlerts(),
+        security.firstAlert(), security.lastAlert(), security.minAlertInterval())));
+    result.append(String.format(Locale.ROOT, "%d ticks, %d alerts in %s (%.0f ticks/s)",
+        ticks, alerts(), elapsed, ticksPerSecond()));
+    return result.toString();
+  }
+}
@@ -0,0 +1,52 @@
+package com.github.arburk.stockalert.application.service.replay;
+
+import com.github.arburk.stockalert.application.config.ApplicationConfig;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays the quotes of the configured file, or of all csv files in the configured directory, with the alert
+ * config of {@code config-url}, logs the report and shuts the application down.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("!'${stock-alert.replay.input:}'.isBlank()")
+public class ReplayRunner implements ApplicationRunner {
+
+  private final ApplicationConfig applicationConfig;
+  private final ApplicationContext applicationContext;
+  private final Path input;
+
+  public ReplayRunner(ApplicationConfig applicationConfig, ApplicationContext applicationContext,
+      @Value("${stock-alert.replay.input}") String input) {
+    this.applicationConfig = applicationConfig;
+    this.applicationContext = applicationContext;
+    this.input = Path.of(input);
+  }
+
+  @Override
+  public void run(final ApplicationArguments args) throws IOException {
+    final List<Path> files = Files.isDirectory(input) ? csvFiles(input) : List.of(input);
+    log.info("Replay {} file(s) from {}", files.size(), input.toAbsolutePath());
+    final ReplayReport report = new ReplayEngine().replay(applicationConfig.getStockAlertsConfig(), files);
+    log.info("Replay finished:{}{}", System.lineSeparator(), report.format());
+    SpringApplication.exit(applicationContext);
+  }
+
+  private static List<Path> csvFiles(final Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(".csv")).sorted().toList();
+    }
+  }
+}
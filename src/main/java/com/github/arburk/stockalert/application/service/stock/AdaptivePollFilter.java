@@ -0,0 +1,146 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Polls each security as often as an alert is likely: a security close to a threshold or to its percentage alert
+ * relative to its volatility is polled on every run, one far off only every {@code max-interval-minutes}.
+ * <p>
+ * Volatility is tracked as moving average of the absolute daily change. Treating the price as a random walk, a
+ * distance of d takes about (d / volatility)&sup2; days to be covered; a security is polled again after a
+ * quarter of that time. If more securities are due than {@code max-per-run} allows, the most overdue go first.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.adaptive-polling.enabled", havingValue = "true")
+@Order(PollFilter.ORDER_ADAPTIVE)
+public class AdaptivePollFilter implements PollFilter {
+
+  private static final double SMOOTHING = .3;
+  /**
+   * Lower bound of the volatility, so a security without any change yet is not considered to stand still.
+   */
+  private static final double MIN_VOLATILITY = .005;
+  private static final double SAFETY_FACTOR = .25;
+
+  private final Duration maxInterval;
+  private final int maxPerRun;
+  private final Map<SecurityKey, State> states = new ConcurrentHashMap<>();
+
+  record State(Instant polledAt, double volatility, Duration interval) {
+
+    Instant due() {
+      return polledAt.plus(interval);
+    }
+  }
+
+  public AdaptivePollFilter(
+      @Value("${stock-alert.adaptive-polling.max-interval-minutes:240}") final long maxIntervalMinutes,
+      @Value("${stock-alert.adaptive-polling.max-per-run:0}") final int maxPerRun) {
+    this.maxInterval = Duration.ofMinutes(maxIntervalMinutes);
+    this.maxPerRun = maxPerRun;
+  }
+
+  @Override
+  public List<SecurityConfig> filter(final List<SecurityConfig> securities, final Instant now) {
+    // securities no longer configured or polled by another replica are forgotten
+    final Set<SecurityKey> keys = securities.stream().map(SecurityKey::of).collect(Collectors.toSet());
+    states.keySet().retainAll(keys);
+
+    List<SecurityConfig> due = securities.stream()
+        .filter(security -> isDue(SecurityKey.of(security), now))
+        .toList();
+    if (maxPerRun > 0 && due.size() > maxPerRun) {
+      final Set<SecurityConfig> mostOverdue = new HashSet<>(due.stream()
+          .sorted(Comparator.comparingDouble(security -> -overdue(SecurityKey.of(security), now)))
+          .limit(maxPerRun)
+          .toList());
+      due = due.stream().filter(mostOverdue::contains).toList();
+    }
+    if (due.size() < securities.size()) {
+      log.debug("poll {} of {} securities, others are not due yet", due.size(), securities.size());
+    }
+    return due;
+  }
+
+  @Override
+  public void polled(final Collection<Security> latest, final AlertPlan plan, final Instant now) {
+    for (final Security security : latest) {
+      final SecurityKey key = SecurityKey.of(security);
+      final State previous = states.get(key);
+      final double change = security.changePercentage() != null ? Math.abs(security.changePercentage()) : 0;
+      final double volatility = previous == null
+          ? Math.max(change, MIN_VOLATILITY)
+          : Math.max(SMOOTHING * change + (1 - SMOOTHING) * previous.volatility(), MIN_VOLATILITY);
+      states.put(key, new State(now, volatility, interval(security, volatility, plan)));
+    }
+  }
+
+  State state(final SecurityKey key) {
+    return states.get(key);
+  }
+
+  private boolean isDue(final SecurityKey key, final Instant now) {
+    final State state = states.get(key);
+    return state == null || !state.due().isAfter(now);
+  }
+
+  /**
+   * @return how far the security is past its due time relative to its interval, never polled ones first
+   */
+  private double overdue(final SecurityKey key, final Instant now) {
+    final State state = states.get(key);
+    if (state == null) {
+      return Double.MAX_VALUE;
+    }
+    final long interval = Math.max(1, state.interval().toMillis());
+    return (double) Duration.between(state.due(), now).toMillis() / interval;
+  }
+
+  private Duration interval(final Security security, final double volatility, final AlertPlan plan) {
+    final double distance = relativeDistanceToAlert(security, plan);
+    if (Double.isInfinite(distance)) {
+      return maxInterval;
+    }
+    final double days = SAFETY_FACTOR * Math.pow(distance / volatility, 2);
+    final double minutes = Math.min(days * Duration.ofDays(1).toMinutes(), maxInterval.toMinutes());
+    return Duration.ofSeconds((long) (minutes * 60));
+  }
+
+  /**
+   * @return distance of the latest quote to the nearest threshold or to the percentage alert, relative to the price
+   */
+  private double relativeDistanceToAlert(final Security security, final AlertPlan plan) {
+    final SecurityConfig config = plan.findConfig(security);
+    if (config == null || security.price() == null || security.price() <= 0) {
+      return 0;
+    }
+
+    double distance = plan.ladder(config).distanceToNearest(security.price()) / security.price();
+
+    final Double percentageAlert = plan.percentageAlert(config);
+    if (percentageAlert != null && percentageAlert > 0) {
+      final double change = security.changePercentage() != null ? Math.abs(security.changePercentage()) : 0;
+      distance = Math.min(distance, Math.max(0, percentageAlert - change));
+    }
+    return distance;
+  }
+}
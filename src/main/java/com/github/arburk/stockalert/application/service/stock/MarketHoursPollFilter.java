@@ -0,0 +1,73 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.domain.market.ExchangeCalendar;
+import com.github.arburk.stockalert.application.domain.market.ExchangeSession;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Skips securities whose exchange is closed. After a session closed, each security is polled one
+ * final time once {@code post-close-delay} elapsed, so the closing auction is reflected.
+ * Securities without known exchange session are always polled.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.market-hours.enabled", havingValue = "true")
+@Order(PollFilter.ORDER_MARKET_HOURS)
+public class MarketHoursPollFilter implements PollFilter {
+
+  private final Duration postCloseDelay;
+  private final Map<SecurityKey, Instant> lastPolled = new ConcurrentHashMap<>();
+
+  public MarketHoursPollFilter(@Value("${stock-alert.market-hours.post-close-delay-minutes:15}") final long postCloseDelayMinutes) {
+    this.postCloseDelay = Duration.ofMinutes(postCloseDelayMinutes);
+  }
+
+  @Override
+  public List<SecurityConfig> filter(final List<SecurityConfig> securities, final Instant now) {
+    final List<SecurityConfig> result = securities.stream()
+        .filter(security -> isToBePolled(security, now))
+        .toList();
+    if (result.size() < securities.size()) {
+      log.debug("skip {} of {} securities due to closed markets", securities.size() - result.size(), securities.size());
+    }
+    return result;
+  }
+
+  @Override
+  public void polled(final Collection<Security> latest, final AlertPlan plan, final Instant now) {
+    latest.forEach(security -> lastPolled.put(SecurityKey.of(security), now));
+  }
+
+  private boolean isToBePolled(final SecurityConfig security, final Instant now) {
+    final Optional<ExchangeSession> session = ExchangeCalendar.resolve(security);
+    if (session.isEmpty()) {
+      return true;
+    }
+    final Instant settled = now.minus(postCloseDelay);
+    if (session.get().isOpen(now) || session.get().isOpen(settled)) {
+      return true;
+    }
+
+    // closed: poll once more unless already polled after the last close has settled
+    final Instant lastClose = session.get().lastCloseBefore(settled);
+    final Instant polledAt = lastPolled.get(SecurityKey.of(security));
+    return lastClose == null
+        || polledAt == null
+        || polledAt.isBefore(lastClose.plus(postCloseDelay));
+  }
+}
@@ -1,7 +1,9 @@
 package com.github.arburk.stockalert.application.service.stock;
 
+import com.github.arburk.stockalert.application.domain.Alert;
 import com.github.arburk.stockalert.application.domain.MetaInfo;
 import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import lombok.NonNull;
 
 import java.util.Collection;
@@ -22,8 +24,28 @@ public interface PersistenceProvider {
   Optional<Security> getSecurity(@NonNull Security identifier);
   void updateSecurity(@NonNull Security securities);
 
+  /**
+   * Logs an alert raised for a persisted security, so it is written with the next commit even if the quote of
+   * the security did not change.
+   */
+  default void logAlert(@NonNull Security persisted, @NonNull Alert alert) {
+    persisted.addLog(alert);
+  }
+
   MetaInfo getMetaInfo();
   void updateMetaInfo(MetaInfo metaInfo);
 
   void commitChanges();
+
+  /**
+   * Discards the state held in memory and reads it again from the storage.
+   */
+  void reload();
+
+  /**
+   * Loads the state other replicas stored for the given securities, which were moved to this replica.
+   * The own state of a security is kept if it is more recent.
+   */
+  default void takeOver(Collection<SecurityKey> keys) {
+  }
 }
@@ -0,0 +1,38 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Narrows the securities requested from the {@link StockProvider} on an update run. The filters are applied
+ * in their {@link org.springframework.core.annotation.Order}, each one on the result of the previous one.
+ */
+public interface PollFilter {
+
+  /**
+   * Only the securities of this replica are considered by any other filter.
+   */
+  int ORDER_SHARD = 100;
+  int ORDER_MARKET_HOURS = 200;
+  /**
+   * Last, so its budget is spent on securities no other filter skips.
+   */
+  int ORDER_ADAPTIVE = 300;
+
+  /**
+   * @return the securities to be polled now, a subset of the given ones in the same order
+   */
+  List<SecurityConfig> filter(List<SecurityConfig> securities, Instant now);
+
+  /**
+   * Called after an update run with the securities the provider returned a quote for.
+   *
+   * @param plan compiled config of the update run
+   */
+  default void polled(Collection<Security> latest, AlertPlan plan, Instant now) {
+  }
+}
@@ -0,0 +1,183 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.service.cluster.Lease;
+import com.github.arburk.stockalert.application.service.cluster.LeaseStore;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits the configured securities across replicas. Each replica announces itself with a lease renewed by a
+ * heartbeat; a security is polled by the live replica ranking highest for its key (rendezvous hashing), so a
+ * joining or leaving replica only moves the securities it gains or loses. A replica gaining a security takes over
+ * the state its previous owner stored.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.sharding.enabled", havingValue = "true")
+@Order(PollFilter.ORDER_SHARD)
+public class ShardPollFilter implements PollFilter {
+
+  static final String LEASE_PREFIX = "replica-";
+
+  private final LeaseStore leaseStore;
+  private final PersistenceProvider persistenceProvider;
+  private final String replicaId;
+  private final Duration leaseTtl;
+  private final Clock clock;
+  private volatile List<String> members;
+  /**
+   * Securities polled by this replica on the last run, the state of any other one is taken over on the next.
+   */
+  private Set<SecurityKey> owned = Set.of();
+
+  public ShardPollFilter(
+      final LeaseStore leaseStore,
+      final PersistenceProvider persistenceProvider,
+      @Value("${stock-alert.sharding.replica-id:local}") final String replicaId,
+      @Value("${stock-alert.sharding.lease-ttl-seconds:90}") final long leaseTtlSeconds,
+      final Clock clock) {
+    this.leaseStore = leaseStore;
+    this.persistenceProvider = persistenceProvider;
+    this.replicaId = replicaId;
+    this.leaseTtl = Duration.ofSeconds(leaseTtlSeconds);
+    this.clock = clock;
+    this.members = List.of(replicaId);
+    log.info("Sharding enabled for replica {}", replicaId);
+  }
+
+  @Override
+  public List<SecurityConfig> filter(final List<SecurityConfig> securities, final Instant now) {
+    renew(now);
+    final List<String> current = refreshMembers(now);
+    final List<SecurityConfig> result = securities.stream()
+        .filter(security -> replicaId.equals(owner(SecurityKey.of(security), current)))
+        .toList();
+    log.debug("replica {} owns {} of {} securities", replicaId, result.size(), securities.size());
+    takeOver(result);
+    return result;
+  }
+
+  /**
+   * Loads the state the previous owner stored for securities this replica polls since this run.
+   */
+  private void takeOver(final List<SecurityConfig> shard) {
+    final Set<SecurityKey> current = shard.stream().map(SecurityKey::of).collect(Collectors.toSet());
+    final List<SecurityKey> acquired = current.stream().filter(key -> !owned.contains(key)).toList();
+    owned = current;
+    if (acquired.isEmpty()) {
+      return;
+    }
+    try {
+      synchronized (persistenceProvider) {
+        persistenceProvider.takeOver(acquired);
+      }
+    } catch (Exception e) {
+      log.warn("Failed to take over the state of {} securities: {}", acquired.size(), e.getMessage());
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${stock-alert.sharding.heartbeat-seconds:30}", timeUnit = TimeUnit.SECONDS)
+  public void heartbeat() {
+    final Instant now = clock.instant();
+    renew(now);
+    refreshMembers(now);
+  }
+
+  @PreDestroy
+  public void leave() {
+    try {
+      leaseStore.delete(LEASE_PREFIX + replicaId);
+      log.info("Replica {} left", replicaId);
+    } catch (Exception e) {
+      log.warn("Failed to release lease of replica {}: {}", replicaId, e.getMessage());
+    }
+  }
+
+  List<String> members() {
+    return members;
+  }
+
+  /**
+   * @return the member ranking highest for the given key, null if there are no members
+   */
+  static String owner(final SecurityKey key, final List<String> members) {
+    final long keyHash = hash(key.toString());
+    String owner = null;
+    long ownerRank = 0;
+    for (final String member : members) {
+      final long rank = mix(keyHash ^ hash(member));
+      if (owner == null || Long.compareUnsigned(rank, ownerRank) > 0) {
+        owner = member;
+        ownerRank = rank;
+      }
+    }
+    return owner;
+  }
+
+  private void renew(final Instant now) {
+    try {
+      leaseStore.put(new Lease(LEASE_PREFIX + replicaId, replicaId, now.plus(leaseTtl)));
+    } catch (Exception e) {
+      log.warn("Failed to renew lease of replica {}: {}", replicaId, e.getMessage());
+    }
+  }
+
+  private List<String> refreshMembers(final Instant now) {
+    try {
+      final List<String> live = leaseStore.list(LEASE_PREFIX).stream()
+          .filter(lease -> lease.isValid(now))
+          .map(Lease::holder)
+          .distinct()
+          .sorted()
+          .toList();
+      // own lease might not be visible yet, the replica polls anyway
+      final List<String> current = live.contains(replicaId)
+          ? live
+          : Stream.concat(live.stream(), Stream.of(replicaId)).sorted().toList();
+      if (!current.equals(members)) {
+        log.info("Replicas changed from {} to {}, securities are rebalanced", members, current);
+        members = current;
+      }
+    } catch (Exception e) {
+      log.warn("Failed to read replica leases, keep replicas {}: {}", members, e.getMessage());
+    }
+    return members;
+  }
+
+  /**
+   * FNV-1a, so all replicas rank the same way regardless of their JVM.
+   */
+  private static long hash(final String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spreads the requests of one update run over the time until the next run instead of firing them at once,
+ * but no longer than the regular interval of the runs. Each security gets an equal slot of the period and is requested at a random point within its slot.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.staggered-dispatch.enabled", havingValue = "true")
+public class StaggeredDispatcher {
+
+  private final CronExpression cron;
+  private final double spread;
+  private final double jitter;
+  private final Clock clock;
+
+  public StaggeredDispatcher(
+      @Value("${stock-alert.update-cron}") final String cron,
+      @Value("${stock-alert.staggered-dispatch.spread:0.8}") final double spread,
+      @Value("${stock-alert.staggered-dispatch.jitter:0.5}") final double jitter,
+      final Clock clock) {
+    if (spread <= 0 || spread > 1 || jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("staggered-dispatch spread must be within (0, 1] and jitter within [0, 1]");
+    }
+    this.cron = CronExpression.parse(cron);
+    this.spread = spread;
+    this.jitter = jitter;
+    this.clock = clock;
+  }
+
+  /**
+   * Passes each security to the given fetch at its point in time and returns once the last one was passed.
+   * If interrupted, the remaining securities are skipped.
+   *
+   * @param started time the update run started, the securities are spread until the next run
+   */
+  public void dispatch(final List<SecurityConfig> securities, final Instant started, final Consumer<List<SecurityConfig>> fetch) {
+    final List<Duration> offsets = offsets(securities.size(), window(started));
+    log.debug("dispatch {} securities within {}", securities.size(), offsets.isEmpty() ? Duration.ZERO : offsets.getLast());
+    for (int i = 0; i < securities.size(); i++) {
+      final Duration wait = Duration.between(clock.instant(), started.plus(offsets.get(i)));
+      try {
+        if (wait.isPositive()) {
+          Thread.sleep(wait);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("staggered dispatch interrupted, skip {} securities", securities.size() - i);
+        return;
+      }
+      fetch.accept(List.of(securities.get(i)));
+    }
+  }
+
+  /**
+   * @return share of the time until the next run the requests are spread over. The period is capped at the gap
+   * between the next two runs, so the last run of the day or week is not spread until the next morning.
+   */
+  Duration window(final Instant started) {
+    final ZonedDateTime next = cron.next(ZonedDateTime.ofInstant(started, clock.getZone()));
+    if (next == null) {
+      return Duration.ZERO;
+    }
+    Duration period = Duration.between(started, next.toInstant());
+    final ZonedDateTime following = cron.next(next);
+    if (following != null) {
+      final Duration interval = Duration.between(next, following);
+      if (interval.compareTo(period) < 0) {
+        period = interval;
+      }
+    }
+    return Duration.ofMillis((long) (period.toMillis() * spread));
+  }
+
+  /**
+   * @return ascending offset of each slot within the window, the middle of the slot shifted by up to half the
+   * slot length times the jitter
+   */
+  List<Duration> offsets(final int count, final Duration window) {
+    final List<Duration> offsets = new ArrayList<>(count);
+    final double slot = (double) window.toMillis() / Math.max(count, 1);
+    for (int i = 0; i < count; i++) {
+      final double shift = jitter * (ThreadLocalRandom.current().nextDouble() - .5);
+      offsets.add(Duration.ofMillis((long) (slot * (i + .5 + shift))));
+    }
+    return offsets;
+  }
+}
@@ -1,11 +1,36 @@
 package com.github.arburk.stockalert.application.service.stock;
 
+import com.github.arburk.stockalert.application.domain.PriceRange;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface StockProvider {
 
   Collection<Security> getLatest(List<SecurityConfig> securities);
+
+  /**
+   * Passes the latest quotes on as they arrive instead of once all are fetched. {@code onQuote} may be
+   * called from several threads concurrently.
+   */
+  default void getLatest(List<SecurityConfig> securities, Consumer<Security> onQuote) {
+    final Collection<Security> latest = getLatest(securities);
+    if (latest != null) {
+      latest.forEach(onQuote);
+    }
+  }
+
+  /**
+   * Lowest and highest price traded since the given point in time, so thresholds crossed and
+   * left again between two updates are detected as well.
+   *
+   * @return empty if not supported or not available
+   */
+  default Optional<PriceRange> getIntradayRange(SecurityConfig security, LocalDateTime since) {
+    return Optional.empty();
+  }
 }
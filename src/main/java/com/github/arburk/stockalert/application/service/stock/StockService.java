@@ -2,20 +2,41 @@ package com.github.arburk.stockalert.application.service.stock;
 
 import com.github.arburk.stockalert.application.config.ApplicationConfig;
 import com.github.arburk.stockalert.application.domain.Alert;
+import com.github.arburk.stockalert.application.domain.AlertLog;
+import com.github.arburk.stockalert.application.domain.PriceRange;
 import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
 import com.github.arburk.stockalert.application.service.notification.NotificationService;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -26,28 +47,71 @@ public class StockService {
   final StockProvider stockProvider;
   final PersistenceProvider persistenceProvider;
   final NotificationService notificationService;
+  final List<PollFilter> pollFilters;
+  final Clock clock;
+
+  /**
+   * Plan of the config of the last update run, compiled again once the config changed.
+   */
+  private volatile AlertPlan alertPlan;
+
+  /**
+   * Number of partitions the alert evaluation is spread over, 1 evaluates sequentially.
+   */
+  @Value("${stock-alert.evaluation.parallelism:1}")
+  int evaluationParallelism = 1;
+
+  /**
+   * Present if the staged update pipeline is enabled, updates are run through it instead of step by step.
+   */
+  @Autowired(required = false)
+  UpdatePipeline updatePipeline;
+
+  /**
+   * Present if staggered dispatch is enabled, the requests of a run are then spread until the next run.
+   */
+  @Autowired(required = false)
+  StaggeredDispatcher staggeredDispatcher;
 
   public StockService(ApplicationConfig applicationConfig, StockProvider stockProvider, PersistenceProvider persistenceProvider, NotificationService notificationService) {
+    this(applicationConfig, stockProvider, persistenceProvider, notificationService, List.of(), Clock.systemDefaultZone());
+  }
+
+  @Autowired
+  public StockService(ApplicationConfig applicationConfig, StockProvider stockProvider, PersistenceProvider persistenceProvider, NotificationService notificationService,
+      List<PollFilter> pollFilters, Clock clock) {
     this.stockProvider = stockProvider;
     this.applicationConfig = applicationConfig;
     this.persistenceProvider = persistenceProvider;
     this.notificationService = notificationService;
+    // sorted again for filters not injected by spring
+    this.pollFilters = pollFilters.stream().sorted(AnnotationAwareOrderComparator.INSTANCE).toList();
+    this.clock = clock;
   }
 
   public void update() {
     log.debug("refresh stock alert config...");
     final StockAlertsConfig stockAlertsConfig = this.applicationConfig.getStockAlertsConfig();
-    final List<SecurityConfig> alertConfig = stockAlertsConfig.securities();
+    final AlertPlan plan = planOf(stockAlertsConfig);
+    final Instant now = clock.instant();
+    final List<SecurityConfig> configured = stockAlertsConfig.securities();
+    final List<SecurityConfig> alertConfig = applyPollFilters(configured, now);
+    if (configured != null && !configured.isEmpty() && alertConfig.isEmpty()) {
+      log.debug("no security to be polled at {}", now);
+      return;
+    }
+
+    if (updatePipeline != null) {
+      updateStaged(plan, alertConfig, now);
+      return;
+    }
 
     try {
-      final Collection<Security> latestRelevant = getRelevantFiltered(alertConfig, stockProvider.getLatest(alertConfig));
+      final Map<SecurityKey, Security> latestRelevant = getRelevantFiltered(alertConfig, stockProvider.getLatest(alertConfig));
+      pollFilters.forEach(pollFilter -> pollFilter.polled(latestRelevant.values(), plan, now));
       if (!latestRelevant.isEmpty()) {
-        alertConfig.forEach(configElement -> checkSecurityAndRaiseAlert(
-            stockAlertsConfig,
-            configElement,
-            latestRelevant.stream().filter(security -> security.isSameSymbolAndExchange(configElement)).findFirst()
-        ));
-        latestRelevant.forEach(persistenceProvider::updateSecurity);
+        evaluateAlerts(plan, alertConfig, latestRelevant);
+        latestRelevant.values().forEach(persistenceProvider::updateSecurity);
         persistenceProvider.commitChanges();
       }
     } catch (Exception e) {
@@ -55,35 +119,208 @@ public class StockService {
     }
   }
 
-  private Collection<Security> getRelevantFiltered(final List<SecurityConfig> alertConfig, final Collection<Security> latestSecurities) {
-    final Set<String> configKeys = alertConfig.stream()
-        .map(cfg -> cfg.symbol() + "::" + cfg.exchange())
+  private AlertPlan planOf(final StockAlertsConfig stockAlertsConfig) {
+    final AlertPlan compiled = alertPlan;
+    if (compiled != null && compiled.config() == stockAlertsConfig) {
+      return compiled;
+    }
+    final AlertPlan plan = AlertPlan.compile(stockAlertsConfig);
+    alertPlan = plan;
+    return plan;
+  }
+
+  /**
+   * Checks the alerts of one security against its latest quote and stores the quote without committing it,
+   * as an update run does for each polled security. Used to replay quotes one by one.
+   */
+  public void evaluate(final AlertPlan plan, final SecurityConfig securityConfig, final Security latest) {
+    checkSecurityAndRaiseAlert(plan, securityConfig, Optional.of(latest));
+    persistenceProvider.updateSecurity(latest);
+  }
+
+  /**
+   * Keeps a replica on standby ready to take over: the config is loaded and compiled and the persisted state is
+   * read again, so the first update after a failover neither waits for them nor works on outdated state.
+   */
+  public void warmUp() {
+    planOf(applicationConfig.getStockAlertsConfig());
+    persistenceProvider.reload();
+    log.debug("state refreshed, {} securities persisted", persistenceProvider.getSecurites().size());
+  }
+
+  /**
+   * Same as the step by step update, but each quote is evaluated, notified and persisted as soon as it arrives.
+   * Evaluating and persisting share the persistence provider and therefore do not run at the same time.
+   */
+  private void updateStaged(final AlertPlan plan, final List<SecurityConfig> alertConfig, final Instant now) {
+    final Map<SecurityKey, List<SecurityConfig>> configsByKey = new LinkedHashMap<>();
+    alertConfig.forEach(configElement -> configsByKey.computeIfAbsent(SecurityKey.of(configElement), key -> new ArrayList<>()).add(configElement));
+    final Map<SecurityKey, Security> polled = new ConcurrentHashMap<>();
+
+    try {
+      updatePipeline.run(
+          onQuote -> {
+            if (staggeredDispatcher == null) {
+              stockProvider.getLatest(alertConfig, onQuote);
+            } else {
+              staggeredDispatcher.dispatch(alertConfig, now, slot -> stockProvider.getLatest(slot, onQuote));
+            }
+          },
+          latest -> {
+            final SecurityKey key = SecurityKey.of(latest);
+            final List<SecurityConfig> configs = configsByKey.get(key);
+            if (configs == null || polled.putIfAbsent(key, latest) != null) {
+              return null;
+            }
+            // the intraday ranges are requested without holding the lock, which only guards the persisted state
+            final Optional<Security> persisted;
+            synchronized (persistenceProvider) {
+              persisted = persistenceProvider.getSecurity(latest);
+            }
+            final Map<SecurityConfig, Optional<PriceRange>> intradayRanges = new HashMap<>();
+            persisted.ifPresent(persistedSecurity -> configs.stream()
+                .filter(configElement -> configElement.alerts() != null && !configElement.alerts().isEmpty())
+                .forEach(configElement -> intradayRanges.put(configElement, stockProvider.getIntradayRange(configElement, persistedSecurity.timestamp()))));
+
+            final List<Runnable> notifications = new ArrayList<>();
+            synchronized (persistenceProvider) {
+              configs.forEach(configElement -> checkSecurityAndRaiseAlert(plan, configElement, Optional.of(latest), notifications::add,
+                  (security, since) -> intradayRanges.getOrDefault(security, Optional.empty())));
+            }
+            return notifications;
+          },
+          latest -> {
+            synchronized (persistenceProvider) {
+              persistenceProvider.updateSecurity(latest);
+            }
+          },
+          () -> {
+            if (configsByKey.size() != polled.size()) {
+              logUnidentifiedSecurities(polled.keySet(), configsByKey.keySet());
+            }
+            pollFilters.forEach(pollFilter -> pollFilter.polled(polled.values(), plan, now));
+            if (!polled.isEmpty()) {
+              synchronized (persistenceProvider) {
+                persistenceProvider.commitChanges();
+              }
+            }
+          });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("update did not finish successful: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Checks the alerts of all polled securities. With {@link #evaluationParallelism} &gt; 1 the securities are
+   * partitioned by key, so each persisted security and its alert log is owned by exactly one partition.
+   * Notifications are collected per security and dispatched once all partitions finished, in configuration order.
+   */
+  private void evaluateAlerts(final AlertPlan plan, final List<SecurityConfig> alertConfig,
+      final Map<SecurityKey, Security> latestRelevant) throws InterruptedException, ExecutionException {
+    final int partitions = Math.min(evaluationParallelism, alertConfig.size());
+    // nothing persisted yet means nothing to compare with, the persistence provider is loaded before concurrent reads
+    if (partitions <= 1 || persistenceProvider.getSecurites().isEmpty()) {
+      alertConfig.forEach(configElement -> checkSecurityAndRaiseAlert(
+          plan,
+          configElement,
+          Optional.ofNullable(latestRelevant.get(SecurityKey.of(configElement)))
+      ));
+      return;
+    }
+
+    final List<List<Integer>> slices = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      slices.add(new ArrayList<>());
+    }
+    for (int i = 0; i < alertConfig.size(); i++) {
+      slices.get(Math.floorMod(SecurityKey.of(alertConfig.get(i)).hashCode(), partitions)).add(i);
+    }
+
+    final List<List<Runnable>> outbox = new ArrayList<>(Collections.nCopies(alertConfig.size(), null));
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<?>> evaluations = slices.stream()
+          .<Future<?>>map(slice -> executor.submit(() -> slice.forEach(index -> {
+            final SecurityConfig configElement = alertConfig.get(index);
+            final List<Runnable> notifications = new ArrayList<>();
+            checkSecurityAndRaiseAlert(plan, configElement,
+                Optional.ofNullable(latestRelevant.get(SecurityKey.of(configElement))), notifications::add);
+            outbox.set(index, notifications);
+          })))
+          .toList();
+      for (final Future<?> evaluation : evaluations) {
+        evaluation.get();
+      }
+    }
+    outbox.forEach(notifications -> notifications.forEach(Runnable::run));
+  }
+
+  private List<SecurityConfig> applyPollFilters(final List<SecurityConfig> securities, final Instant now) {
+    if (securities == null || securities.isEmpty()) {
+      return securities;
+    }
+    List<SecurityConfig> result = securities;
+    for (final PollFilter pollFilter : pollFilters) {
+      result = pollFilter.filter(result, now);
+    }
+    return result;
+  }
+
+  /**
+   * Joins the latest quotes to the config in one pass, quotes not configured are dropped.
+   */
+  private Map<SecurityKey, Security> getRelevantFiltered(final List<SecurityConfig> alertConfig, final Collection<Security> latestSecurities) {
+    final Set<SecurityKey> configKeys = alertConfig.stream()
+        .map(SecurityKey::of)
         .collect(Collectors.toSet());
-    final List<Security> filteredSecurites = latestSecurities.stream()
-        .filter(sec -> configKeys.contains(sec.symbol() + "::" + sec.exchange()))
-        .toList();
+    final Map<SecurityKey, Security> filteredSecurites = new LinkedHashMap<>();
+    for (final Security security : latestSecurities) {
+      final SecurityKey key = SecurityKey.of(security);
+      if (configKeys.contains(key)) {
+        filteredSecurites.putIfAbsent(key, security);
+      }
+    }
 
     if (configKeys.size() != filteredSecurites.size()) {
-      logUnidentifiedSecurities(latestSecurities, configKeys);
+      logUnidentifiedSecurities(filteredSecurites.keySet(), configKeys);
       //TODO: send warning to check config?
     }
 
     return filteredSecurites;
   }
 
-  private static void logUnidentifiedSecurities(final Collection<Security> latestSecurities, final Set<String> configKeys) {
-    final Set<String> found = latestSecurities.stream()
-        .map(sec -> sec.symbol() + "::" + sec.exchange())
-        .collect(Collectors.toSet());
-    final List<String> unmatched = configKeys.stream().filter(entry -> !found.contains(entry)).toList();
+  private static void logUnidentifiedSecurities(final Set<SecurityKey> found, final Set<SecurityKey> configKeys) {
+    final List<String> unmatched = configKeys.stream()
+        .filter(entry -> !found.contains(entry))
+        .map(SecurityKey::toString)
+        .toList();
     log.warn("Did not find following stocks configured in alert config: {}", unmatched);
   }
 
-  private static boolean isBetween(double threshold, double a1, double a2) {
-    return threshold >= Math.min(a1, a2) && threshold <= Math.max(a1, a2);
+  /**
+   * A threshold is crossed if it lies between the persisted and the latest price or, if available,
+   * within the range traded in between.
+   */
+  private static PriceRange crossedRange(final double latest, final double persisted, final Optional<PriceRange> intradayRange) {
+    final PriceRange moved = new PriceRange(Math.min(latest, persisted), Math.max(latest, persisted));
+    return intradayRange.map(range -> range.including(latest, persisted)).orElse(moved);
+  }
+
+  private void checkSecurityAndRaiseAlert(final AlertPlan plan, final SecurityConfig securityConfig, final Optional<Security> latest) {
+    checkSecurityAndRaiseAlert(plan, securityConfig, latest, Runnable::run);
   }
 
-  private void checkSecurityAndRaiseAlert(final StockAlertsConfig stockAlertsConfig, final SecurityConfig securityConfig, final Optional<Security> latest) {
+  private void checkSecurityAndRaiseAlert(final AlertPlan plan, final SecurityConfig securityConfig, final Optional<Security> latest,
+      final Consumer<Runnable> notifications) {
+    checkSecurityAndRaiseAlert(plan, securityConfig, latest, notifications, stockProvider::getIntradayRange);
+  }
+
+  /**
+   * @param notifications receives the notifications to send, either running them right away or deferring them
+   * @param intradayRanges provides the range traded since the persisted quote, e.g. one requested beforehand
+   */
+  private void checkSecurityAndRaiseAlert(final AlertPlan plan, final SecurityConfig securityConfig, final Optional<Security> latest,
+      final Consumer<Runnable> notifications, final BiFunction<SecurityConfig, LocalDateTime, Optional<PriceRange>> intradayRanges) {
     if (latest.isEmpty()) {
       log.warn("Cannot check alert requirement for {} since latest value is empty. Check configuration for proper security settings.", securityConfig.symbol());
       return;
@@ -99,29 +336,28 @@ public class StockService {
     final Security persistedSecurity = persisted.get();
     final List<AlertConfig> alertConfigs = securityConfig.alerts();
     if (alertConfigs != null && !alertConfigs.isEmpty()) {
-      alertConfigs.stream()
-          .filter(alertConfig -> isBetween(alertConfig.threshold(), latestSecurity.price(), persistedSecurity.price()))
-          .filter(alertConfig -> isRecentAlertNotPresentOrOutdated(alertConfig.asAlert(latestSecurity.currency()), persistedSecurity.alertLog(), latestSecurity.timestamp()))
-          .forEach(alertConfig -> {
-            log.info("Send alert for {} {}", latestSecurity.symbol(), alertConfig);
-            notificationService.send(stockAlertsConfig, alertConfig, latestSecurity, persistedSecurity);
-            persistedSecurity.addLog(alertConfig.asAlert(latestSecurity.currency()));
-          });
+      final Optional<PriceRange> intradayRange = intradayRanges.apply(securityConfig, persistedSecurity.timestamp());
+      final PriceRange range = crossedRange(latestSecurity.price(), persistedSecurity.price(), intradayRange);
+      final boolean rising = latestSecurity.price() >= persistedSecurity.price();
+      plan.ladder(securityConfig).forEachCrossed(range.low(), range.high(), rising, alertConfig -> {
+        final Alert alert = alertConfig.asAlert(latestSecurity.currency(), LocalDateTime.now(clock));
+        if (isRecentAlertNotPresentOrOutdated(alert, persistedSecurity.indexedAlertLog(), latestSecurity.timestamp())) {
+          log.info("Send alert for {} {}", latestSecurity.symbol(), alertConfig);
+          notifications.accept(() -> notificationService.send(plan, alertConfig, latestSecurity, persistedSecurity));
+          persistenceProvider.logAlert(persistedSecurity, alert);
+        }
+      });
     }
 
-    checkAndRaisePercentageAlert(stockAlertsConfig, securityConfig, latestSecurity, persistedSecurity);
+    checkAndRaisePercentageAlert(plan, securityConfig, latestSecurity, persistedSecurity, notifications);
   }
 
-  private boolean isRecentAlertNotPresentOrOutdated(final Alert potentialAlert, final Collection<Alert> logs, final LocalDateTime alertTimestamp) {
+  private boolean isRecentAlertNotPresentOrOutdated(final Alert potentialAlert, final AlertLog logs, final LocalDateTime alertTimestamp) {
     if (potentialAlert == null || logs.isEmpty()) {
       return true;
     }
 
-    final var recentAlert = logs.stream()
-        .filter(log -> log.equals(potentialAlert))
-        .sorted()
-        .findFirst();
-
+    final var recentAlert = logs.find(potentialAlert);
 
     final boolean isEmpty = recentAlert.isEmpty();
     final boolean isLogOutdated = !isEmpty && recentAlert.get().timestamp().isBefore(alertTimestamp);
@@ -133,17 +369,21 @@ public class StockService {
   }
 
   private void checkAndRaisePercentageAlert(
-      @NonNull final StockAlertsConfig stockAlertsConfig,
+      @NonNull final AlertPlan plan,
       @NonNull final SecurityConfig config,
       @NonNull final Security latest,
       @NonNull final Security persisted) {
+    checkAndRaisePercentageAlert(plan, config, latest, persisted, Runnable::run);
+  }
+
+  private void checkAndRaisePercentageAlert(
+      @NonNull final AlertPlan plan,
+      @NonNull final SecurityConfig config,
+      @NonNull final Security latest,
+      @NonNull final Security persisted,
+      @NonNull final Consumer<Runnable> notifications) {
 
-    final Double percentageAlert = stockAlertsConfig.getPercentageAlert();
-    var globalDef = (percentageAlert != null && percentageAlert > 0)
-        ? percentageAlert
-        : null;
-    var overrideDef = (config.getPercentageAlert() != null) ? config.getPercentageAlert() : null;
-    var threshold2consider = overrideDef != null ? overrideDef : globalDef;
+    final Double threshold2consider = plan.percentageAlert(config);
     if (threshold2consider == null || threshold2consider == 0) {
       log.debug("skip percentage alert for {}", latest.symbol());
       return;
@@ -160,38 +400,38 @@ public class StockService {
     if (Math.abs(cpBiggest) >= threshold2consider) {
       log.debug("Percentage deviation calculated {} / provided {} > {} -> raise alert for {}!", cpCalculated, cpProvided, threshold2consider, latest.symbol());
 
-      final var alertToRaise = new Alert(LocalDateTime.now(), cpBiggest, "%");
-      if (!skipProvidedDueToSilencer(stockAlertsConfig, (cpBiggest == cpProvided), latest)
-          && isRecentAlertNotPresentOrOutdated(alertToRaise, persisted.alertLog(), latest.timestamp())) {
-        notificationService.sendPercentage(stockAlertsConfig, latest, persisted, threshold2consider, cpBiggest);
-        persisted.alertLog().add(alertToRaise);
+      final var alertToRaise = new Alert(LocalDateTime.now(clock), cpBiggest, "%");
+      if (!skipProvidedDueToSilencer(plan, (cpBiggest == cpProvided), latest)
+          && isRecentAlertNotPresentOrOutdated(alertToRaise, persisted.indexedAlertLog(), latest.timestamp())) {
+        notifications.accept(() -> notificationService.sendPercentage(plan, latest, persisted, threshold2consider, cpBiggest));
+        persistenceProvider.logAlert(persisted, alertToRaise);
       }
     }
   }
 
-  private boolean skipProvidedDueToSilencer(final @NonNull StockAlertsConfig stockAlertsConfig, final boolean isProvided, final @NonNull Security latest) {
+  private boolean skipProvidedDueToSilencer(final @NonNull AlertPlan plan, final boolean isProvided, final @NonNull Security latest) {
     if (!isProvided) {
       return false;
     }
 
-    final Duration silenceDuration = stockAlertsConfig.getSilenceDuration();
+    final Duration silenceDuration = plan.silenceDuration();
     if (silenceDuration == null || silenceDuration == Duration.ZERO) {
       return false;
     }
 
     final Optional<Security> security = persistenceProvider.getSecurity(latest);
-    if (security.isEmpty() || security.get().alertLog() == null || security.get().alertLog().isEmpty()) {
+    if (security.isEmpty() || security.get().alertLog().isEmpty()) {
       return false;
     }
 
-    final var lastPercentageAlert = security.get().alertLog().stream().sorted().toList().getFirst().timestamp();
+    final var lastPercentageAlert = security.get().indexedAlertLog().mostRecent().map(Alert::timestamp).orElse(null);
     if (lastPercentageAlert == null) {
       return false;
     }
 
-    final boolean result = lastPercentageAlert.isAfter(LocalDateTime.now().minus(silenceDuration));
+    final boolean result = lastPercentageAlert.isAfter(LocalDateTime.now(clock).minus(silenceDuration));
     if (result) {
-      log.debug("Skip notification due to silence config: {}", stockAlertsConfig.silenceDuration());
+      log.debug("Skip notification due to silence config: {}", silenceDuration);
     }
     return result;
   }
@@ -0,0 +1,252 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs an update as stages connected by bounded queues, each stage on its own virtual thread:
+ * <ol>
+ *   <li>fetch: quotes are passed on as soon as they arrive</li>
+ *   <li>evaluate: alerts of a quote are checked, notifications to send are queued</li>
+ *   <li>notify: notifications are sent</li>
+ *   <li>persist: evaluated quotes are stored, the changes are committed once all quotes passed</li>
+ * </ol>
+ * A slow quote therefore does not delay the evaluation of the others and a slow notification channel
+ * does not delay the commit. A full queue blocks the stage in front of it.
+ */
+@Slf4j
+@Component
+// staggered dispatch hands over quotes one by one, they are evaluated through the pipeline as well
+@ConditionalOnExpression("${stock-alert.pipeline.enabled:false} or ${stock-alert.staggered-dispatch.enabled:false}")
+public class UpdatePipeline {
+
+  enum Stage { EVALUATE, NOTIFY, PERSIST, COMMIT }
+
+  private static final Object END = new Object();
+
+  private final int capacity;
+  private final Map<Stage, BlockingQueue<Object>> queues = new EnumMap<>(Stage.class);
+  private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+
+  @Autowired
+  public UpdatePipeline(
+      @Value("${stock-alert.pipeline.queue-capacity:256}") final int capacity,
+      final ObjectProvider<MeterRegistry> meterRegistry) {
+    this(capacity);
+    meterRegistry.ifAvailable(registry -> {
+      for (final Stage stage : Stage.values()) {
+        if (stage != Stage.COMMIT) {
+          Gauge.builder("stockalert.pipeline.queue.size", this, pipeline -> pipeline.queueSize(stage))
+              .description("Items waiting for the stage of the update pipeline")
+              .tag("stage", stage.name().toLowerCase())
+              .register(registry);
+        }
+        timers.put(stage, Timer.builder("stockalert.pipeline.stage.duration")
+            .description("Time spent on one item by the stage of the update pipeline")
+            .tag("stage", stage.name().toLowerCase())
+            .register(registry));
+      }
+    });
+    log.info("Staged update pipeline enabled with queue capacity {}", capacity);
+  }
+
+  UpdatePipeline(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("pipeline queue-capacity must be positive but was " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Runs the stages and returns once all of them finished. Failures are logged per item and do not stop
+   * the remaining items.
+   *
+   * @param fetch    emits the quotes, may be called from several threads
+   * @param evaluate checks a quote and returns the notifications to send, null to neither notify nor persist it
+   * @param persist  stores an evaluated quote
+   * @param commit   runs once all quotes are stored
+   */
+  public void run(
+      final Consumer<Consumer<Security>> fetch,
+      final Function<Security, List<Runnable>> evaluate,
+      final Consumer<Security> persist,
+      final Runnable commit) throws InterruptedException {
+
+    final BlockingQueue<Object> toEvaluate = new ArrayBlockingQueue<>(capacity);
+    final BlockingQueue<Object> toNotify = new ArrayBlockingQueue<>(capacity);
+    final BlockingQueue<Object> toPersist = new ArrayBlockingQueue<>(capacity);
+    synchronized (queues) {
+      queues.put(Stage.EVALUATE, toEvaluate);
+      queues.put(Stage.NOTIFY, toNotify);
+      queues.put(Stage.PERSIST, toPersist);
+    }
+
+    final Thread notifier = Thread.ofVirtual().name("update-notify").start(() ->
+        drain(toNotify, item -> timed(Stage.NOTIFY, (Runnable) item), () -> { }));
+    final Thread persister = Thread.ofVirtual().name("update-persist").start(() ->
+        drain(toPersist, item -> timed(Stage.PERSIST, () -> persist.accept((Security) item)), () -> timed(Stage.COMMIT, commit)));
+    final Thread evaluator = Thread.ofVirtual().name("update-evaluate").start(() -> {
+      try {
+        drain(toEvaluate, item -> {
+          final Security latest = (Security) item;
+          final List<Runnable> notifications = timed(Stage.EVALUATE, () -> evaluate.apply(latest));
+          // a later stage only stops early if interrupted, its items are dropped then
+          if (notifications != null) {
+            for (final Runnable notification : notifications) {
+              offer(toNotify, notification, notifier);
+            }
+            offer(toPersist, latest, persister);
+          }
+        }, () -> { });
+      } finally {
+        // also if interrupted, otherwise the later stages wait forever
+        end(toNotify, notifier);
+        end(toPersist, persister);
+      }
+    });
+
+    try {
+      fetch.accept(latest -> {
+        try {
+          if (!offer(toEvaluate, latest, evaluator)) {
+            throw new IllegalStateException("evaluation stopped, quote of " + latest.symbol() + " dropped");
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("interrupted while passing on quote of " + latest.symbol(), e);
+        }
+      });
+    } catch (Exception e) {
+      log.error("fetching quotes did not finish successful: {}", e.getMessage(), e);
+    } finally {
+      end(toEvaluate, evaluator);
+      try {
+        await(evaluator, notifier, persister);
+      } finally {
+        synchronized (queues) {
+          queues.clear();
+        }
+      }
+    }
+  }
+
+  int queueSize(final Stage stage) {
+    synchronized (queues) {
+      final BlockingQueue<Object> queue = queues.get(stage);
+      return queue == null ? 0 : queue.size();
+    }
+  }
+
+  private void timed(final Stage stage, final Runnable work) {
+    timed(stage, () -> {
+      work.run();
+      return null;
+    });
+  }
+
+  private <T> T timed(final Stage stage, final Supplier<T> work) {
+    final Timer timer = timers.get(stage);
+    try {
+      return timer == null ? work.get() : timer.record(work);
+    } catch (Exception e) {
+      log.error("{} stage failed: {}", stage.name().toLowerCase(), e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Passes the items of the queue to the step until END was taken, then runs onEnd. Returns early if interrupted.
+   */
+  private static void drain(final BlockingQueue<Object> queue, final Step step, final Runnable onEnd) {
+    try {
+      for (Object item = queue.take(); item != END; item = queue.take()) {
+        step.accept(item);
+      }
+      onEnd.run();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("update pipeline interrupted");
+    }
+  }
+
+  /**
+   * Waits for space in the queue as long as the stage draining it is running.
+   *
+   * @return false if the stage stopped, e.g. as it was interrupted
+   */
+  private static boolean offer(final BlockingQueue<Object> queue, final Object item, final Thread stage) throws InterruptedException {
+    while (stage.isAlive()) {
+      if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Passes END on to the stage draining the given queue, regardless of the interrupt flag of the current thread.
+   * Gives up once the stage stopped, as no one takes from a full queue then.
+   */
+  private static void end(final BlockingQueue<Object> queue, final Thread stage) {
+    boolean interrupted = Thread.interrupted();
+    while (true) {
+      try {
+        offer(queue, END, stage);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for the stages to finish. If interrupted while waiting, the stages are interrupted and awaited as well,
+   * so none keeps running once the update returned.
+   *
+   * @throws InterruptedException if the current thread was interrupted, after all stages finished
+   */
+  private static void await(final Thread... stages) throws InterruptedException {
+    boolean interrupted = Thread.interrupted();
+    for (final Thread stage : stages) {
+      while (stage.isAlive()) {
+        try {
+          stage.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+          for (final Thread running : stages) {
+            running.interrupt();
+          }
+        }
+      }
+    }
+    if (interrupted) {
+      throw new InterruptedException("update pipeline interrupted");
+    }
+  }
+
+  @FunctionalInterface
+  private interface Step {
+
+    void accept(Object item) throws InterruptedException;
+  }
+}
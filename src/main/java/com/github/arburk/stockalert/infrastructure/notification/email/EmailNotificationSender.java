@@ -2,8 +2,8 @@ package com.github.arburk.stockalert.infrastructure.notification.email;
 
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
-import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
 import com.github.arburk.stockalert.application.service.notification.Channel;
 import com.github.arburk.stockalert.application.service.notification.NotificationSender;
 import jakarta.mail.MessagingException;
@@ -35,7 +35,7 @@ public class EmailNotificationSender implements NotificationSender {
   }
 
   @Override
-  public void send(final StockAlertsConfig stockAlertsConfig, final AlertConfig alertConfig, final Security latest, final Security persisted) {
+  public void send(final AlertPlan plan, final AlertConfig alertConfig, final Security latest, final Security persisted) {
     String currency = latest.currency();
     final String verb = (latest.price() < persisted.price()) ? "fell" : "raised";
     final String message = """
@@ -47,12 +47,12 @@ public class EmailNotificationSender implements NotificationSender {
         verb,
         currency, latest.price(), latest.getTimestampFormatted(),
         currency, persisted.price(), persisted.getTimestampFormatted(),
-        renderComment(alertConfig, stockAlertsConfig.findConfig(latest)),
+        renderComment(alertConfig, plan.findConfig(latest)),
         getStockExchange(latest, persisted)
     );
     final String subject = "Threshold %s %s for %s crossed".formatted(
         latest.currency(), alertConfig.threshold(), latest.symbol());
-    sendEmail(subject, message, stockAlertsConfig);
+    sendEmail(subject, message, plan);
   }
 
   private String renderComment(final AlertConfig alertConfig, final SecurityConfig stockAlertsConfig) {
@@ -71,7 +71,7 @@ public class EmailNotificationSender implements NotificationSender {
   }
 
   @Override
-  public void send(final StockAlertsConfig stockAlertsConfig, final Security latest, final Security persisted, final Double threshold, final double deviation) {
+  public void send(final AlertPlan plan, final Security latest, final Security persisted, final Double threshold, final double deviation) {
     final String currency = latest.currency();
     final String verb = (latest.price() < persisted.price()) ? "fell" : "raised";
     final String message = """
@@ -88,7 +88,7 @@ public class EmailNotificationSender implements NotificationSender {
     );
     final String subject = "Threshold of %s crossed for %s".formatted(
         Security.formatPercentage(threshold), latest.symbol());
-    sendEmail(subject, message, stockAlertsConfig);
+    sendEmail(subject, message, plan);
   }
 
   private String getStockExchange(final Security latest, final Security persisted) {
@@ -102,8 +102,8 @@ public class EmailNotificationSender implements NotificationSender {
         : latest.exchange() + "/" + persitedOne;
   }
 
-  private void sendEmail(final String subject, final String message, final StockAlertsConfig stockAlertsConfig) {
-    final String[] recipient = getRecipients(stockAlertsConfig);
+  private void sendEmail(final String subject, final String message, final AlertPlan plan) {
+    final String[] recipient = getRecipients(plan);
     try {
       MimeMessage mail = mailSender.createMimeMessage();
       MimeMessageHelper helper = new MimeMessageHelper(mail, "UTF-8");
@@ -1,29 +1,239 @@
 package com.github.arburk.stockalert.infrastructure.persistance;
 
+import com.github.arburk.stockalert.application.domain.Alert;
 import com.github.arburk.stockalert.application.domain.MetaInfo;
 import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import com.github.arburk.stockalert.application.service.cluster.LeaderElection;
 import com.github.arburk.stockalert.application.service.stock.PersistenceProvider;
-import lombok.Getter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import tools.jackson.databind.ObjectMapper;
 
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 public abstract class AbstractPersistenceProvider implements PersistenceProvider {
 
-  @Getter()
   private StockAlertDb data;
 
+  /**
+   * Securities of {@link #data} by key, in the order they were loaded or added. Rebuilt once {@link #data} is
+   * replaced, from then on the index holds the current securities instead of the list of {@link #data}.
+   */
+  private final Map<SecurityKey, Security> securities = new LinkedHashMap<>();
+  private StockAlertDb indexed;
+
+  /**
+   * Incremented on each change of the state, the storage is written only if it does not hold the current version.
+   */
+  private long version;
+  private long committedVersion;
+  private final Set<SecurityKey> changed = new LinkedHashSet<>();
+
+  /**
+   * Alerts older than this are dropped from the alert log of a security when it is updated, 0 keeps all.
+   */
+  @Value("${stock-alert.alert-log.max-age-days:0}")
+  private int alertLogMaxAgeDays;
+
+  /**
+   * Number of alerts kept per security when it is updated, the oldest are dropped first. 0 keeps all.
+   */
+  @Value("${stock-alert.alert-log.max-size:0}")
+  private int alertLogMaxSize;
+
+  /**
+   * Time the age of the alerts is measured against when the alert log is pruned.
+   */
+  @Autowired(required = false)
+  private Clock clock = Clock.systemDefaultZone();
+
+  /**
+   * Replicas sharing the securities keep their state in separate storage files named after the replica. The
+   * state of a security moved to another replica is taken over from the file of its previous owner.
+   */
+  @Value("${stock-alert.sharding.enabled:false}")
+  private boolean sharded;
+
+  @Value("${stock-alert.sharding.replica-id:local}")
+  private String replicaId;
+
+  /**
+   * Present if leader election is enabled, only the leader still holding its lease writes.
+   */
+  @Autowired(required = false)
+  private LeaderElection leaderElection;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  /**
+   * Format the storage is written in, it is read in any format.
+   */
+  @Value("${stock-alert.storage-codec.format:json}")
+  private String storageFormat;
+
+  @Value("${stock-alert.storage-codec.gzip:false}")
+  private boolean storageGzip;
+
+  private StorageCodec storageCodec;
+
+  StorageCodec storageCodec(final ObjectMapper objectMapper) {
+    if (storageCodec == null) {
+      storageCodec = StorageCodec.of(storageFormat, storageGzip, objectMapper);
+    }
+    return storageCodec;
+  }
+
+  String storageFileName() {
+    return sharded
+        ? "securities." + replicaId.replaceAll("[^A-Za-z0-9_-]", "_") + ".db.json"
+        : STORAGE_FILE_NAME;
+  }
+
+  /**
+   * @return state stored by the other replicas sharing the storage, read on each call
+   */
+  Collection<StockAlertDb> readOtherReplicas() {
+    return List.of();
+  }
+
+  /**
+   * Runs the given write of the storage, with leader election enabled only while the lease is held.
+   *
+   * @return false if the write was skipped since this replica lost the leader lease meanwhile
+   */
+  boolean writeFenced(final Runnable write) {
+    if (leaderElection == null) {
+      write.run();
+      return true;
+    }
+    if (leaderElection.runFenced(write)) {
+      return true;
+    }
+    log.warn("Skip writing securities, replica lost the leader lease");
+    return false;
+  }
+
+  /**
+   * @return fencing token of the leader lease, 0 if leader election is disabled
+   * @throws IllegalStateException if leader election is enabled but the lease was lost
+   */
+  long fencingToken() {
+    if (leaderElection == null) {
+      return 0;
+    }
+    final long token = leaderElection.fencingToken();
+    if (token == 0) {
+      throw new IllegalStateException("Replica lost the leader lease");
+    }
+    return token;
+  }
+
+  /**
+   * @return true if the state changed since it was loaded or written last; otherwise the skipped write is counted
+   */
+  boolean hasUncommittedChanges() {
+    if (version != committedVersion) {
+      return true;
+    }
+    log.debug("Skip writing securities, nothing changed since version {} was written", committedVersion);
+    countWrite("skipped");
+    return false;
+  }
+
+  /**
+   * @return version of the current state, to be passed to {@link #committed(long)} once it was written
+   */
+  long version() {
+    return version;
+  }
+
+  /**
+   * @return the securities updated with changes since the state was loaded or written last
+   */
+  Collection<Security> changedSecurities() {
+    final Map<SecurityKey, Security> current = index();
+    return changed.stream().map(current::get).filter(Objects::nonNull).toList();
+  }
+
+  void committed(final long writtenVersion) {
+    committedVersion = writtenVersion;
+    if (writtenVersion == version) {
+      changed.clear();
+    }
+    countWrite("performed");
+  }
+
+  private void countWrite(final String result) {
+    if (meterRegistry != null) {
+      meterRegistry.counter("stockalert.storage.writes", "result", result).increment();
+    }
+  }
+
+  @Override
+  public void reload() {
+    data = initData();
+    committedVersion = version;
+    changed.clear();
+  }
+
+  /**
+   * @return snapshot of the current securities sorted by symbol, as written to the storage
+   */
+  public StockAlertDb getData() {
+    final Collection<Security> current = getSecurites();
+    return new StockAlertDb(new ArrayList<>(current), data.metaInfo());
+  }
+
+  /**
+   * @return copy of {@link #getData()} sharing no mutable state, to be written by another thread while this one
+   * goes on evaluating alerts
+   */
+  StockAlertDb getDataCopy() {
+    final StockAlertDb current = getData();
+    final ArrayList<Security> copies = new ArrayList<>(current.securities().size());
+    current.securities().forEach(security -> copies.add(new Security(security.symbol(), security.price(), security.currency(),
+        security.changePercentage(), security.timestamp(), security.exchange(), new ArrayList<>(security.alertLog()))));
+    return new StockAlertDb(copies, current.metaInfo());
+  }
+
   @Override
   public Collection<Security> getSecurites() {
-    if (data == null || data.securities() == null || data.securities().isEmpty()) {
+    if (index().isEmpty()) {
       data = initData();
+      committedVersion = version;
+      changed.clear();
     }
-    return data.securities();
+    return Collections.unmodifiableCollection(index().values());
+  }
+
+  private Map<SecurityKey, Security> index() {
+    if (data != indexed) {
+      securities.clear();
+      if (data != null && data.securities() != null) {
+        data.securities().forEach(security -> securities.put(SecurityKey.of(security), security));
+      }
+      indexed = data;
+    }
+    return securities;
   }
 
   @Override
@@ -41,30 +251,102 @@ public abstract class AbstractPersistenceProvider implements PersistenceProvider
       log.info("If you want to reset MetaInfo, provide object with empty values.");
     }
     data = new StockAlertDb(
-        data != null
-            ? data.securities()
-            : new ArrayList<>(/* must not be immutable */),
+        new ArrayList<>(index().values()),
         metaInfo
     );
+    indexed = data;
+    version++;
     commitChanges();
   }
 
   @Override
   public Optional<Security> getSecurity(@NonNull Security identifier) {
-    final Collection<Security> securites = getSecurites();
-    return securites.isEmpty()
-        ? Optional.empty()
-        : securites.stream().filter(current -> current.equals(identifier)).findFirst();
+    getSecurites(/* loads the securities if not done yet */);
+    return Optional.ofNullable(index().get(SecurityKey.of(identifier)));
   }
 
   @Override
   public void updateSecurity(@NonNull final Security security) {
-    final Optional<Security> stored = getSecurity(security);
-    stored.ifPresent(value -> {
-      security.alertLog().addAll(value.alertLog());
-      data.securities().remove(value);
-    });
-    data.securities().add(security);
+    final SecurityKey key = SecurityKey.of(security);
+    final Security stored = getSecurity(security).orElse(null);
+    // alerts logged on the stored instance were tracked by logAlert, only alerts of the given quote are new
+    final boolean alertsAdded = !security.alertLog().isEmpty();
+    if (stored != null) {
+      security.alertLog().addAll(stored.alertLog());
+    }
+    final boolean pruned = pruneAlertLog(security);
+    index().put(key, security);
+    if (stored == null || alertsAdded || pruned || !isUnchanged(stored, security)) {
+      version++;
+      changed.add(key);
+    }
+  }
+
+  /**
+   * Synchronized since the alerts of different securities are logged concurrently by the evaluation partitions.
+   */
+  @Override
+  public synchronized void logAlert(@NonNull final Security persisted, @NonNull final Alert alert) {
+    if (persisted.indexedAlertLog().add(alert)) {
+      version++;
+      changed.add(SecurityKey.of(persisted));
+    }
+  }
+
+  @Override
+  public void takeOver(final Collection<SecurityKey> keys) {
+    if (!sharded || keys.isEmpty()) {
+      return;
+    }
+    final Map<SecurityKey, Security> previous = new HashMap<>();
+    for (final StockAlertDb other : readOtherReplicas()) {
+      if (other.securities() != null) {
+        other.securities().forEach(security ->
+            previous.merge(SecurityKey.of(security), security, (known, found) -> isNewer(found, known) ? found : known));
+      }
+    }
+    getSecurites(/* loads the securities if not done yet */);
+    int taken = 0;
+    for (final SecurityKey key : keys) {
+      final Security handedOver = previous.get(key);
+      final Security own = index().get(key);
+      if (handedOver != null && (own == null || isNewer(handedOver, own))) {
+        index().put(key, handedOver);
+        version++;
+        changed.add(key);
+        taken++;
+      }
+    }
+    log.info("Took over the state of {} of {} securities moved to replica {}", taken, keys.size(), replicaId);
+  }
+
+  private static boolean isNewer(final Security security, final Security than) {
+    return security.timestamp() != null && (than.timestamp() == null || security.timestamp().isAfter(than.timestamp()));
+  }
+
+  /**
+   * @return true if the updated security holds the same quote as the stored one, e.g. outside market hours
+   */
+  private static boolean isUnchanged(final Security stored, final Security updated) {
+    return Objects.equals(stored.price(), updated.price())
+        && Objects.equals(stored.currency(), updated.currency())
+        && Objects.equals(stored.changePercentage(), updated.changePercentage())
+        && Objects.equals(stored.timestamp(), updated.timestamp());
+  }
+
+  /**
+   * @return true if alerts were removed from the log
+   */
+  private boolean pruneAlertLog(final Security security) {
+    if (alertLogMaxAgeDays <= 0 && alertLogMaxSize <= 0) {
+      return false;
+    }
+    final LocalDateTime notBefore = alertLogMaxAgeDays > 0 ? LocalDateTime.now(clock).minusDays(alertLogMaxAgeDays) : null;
+    final int pruned = security.indexedAlertLog().prune(notBefore, alertLogMaxSize);
+    if (pruned > 0) {
+      log.debug("Removed {} outdated alerts of {}", pruned, security.symbol());
+    }
+    return pruned > 0;
   }
 
   abstract StockAlertDb initData();
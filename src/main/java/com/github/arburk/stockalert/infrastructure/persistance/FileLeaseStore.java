@@ -0,0 +1,159 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.service.cluster.Lease;
+import com.github.arburk.stockalert.application.service.cluster.LeaseStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps each lease as a json file in a directory next to the storage file, for replicas sharing a file system.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.storage-provider", havingValue = FileStorage.ENABLE_PROPERTY)
+public class FileLeaseStore implements LeaseStore {
+
+  static final String SUFFIX = ".lease.json";
+
+  private final Path directory;
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public FileLeaseStore(ObjectMapper objectMapper) {
+    this(Path.of(System.getProperty("user.home"), "stock-alert", "leases"), objectMapper);
+  }
+
+  FileLeaseStore(Path directory, ObjectMapper objectMapper) {
+    this.directory = directory;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public List<Lease> list(final String prefix) {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      final List<Lease> result = new ArrayList<>();
+      files.filter(file -> file.getFileName().toString().startsWith(prefix) && file.getFileName().toString().endsWith(SUFFIX))
+          .forEach(file -> {
+            try {
+              result.add(objectMapper.readValue(file.toFile(), Lease.class));
+            } catch (Exception e) {
+              // deleted or being replaced concurrently
+              log.debug("Skip unreadable lease {}: {}", file, e.getMessage());
+            }
+          });
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void put(final Lease lease) {
+    try {
+      Files.createDirectories(directory);
+      final Path temp = Files.createTempFile(directory, lease.name(), ".tmp");
+      objectMapper.writeValue(temp.toFile(), lease);
+      // readers see either the previous or the new lease, never a partially written one
+      Files.move(temp, fileOf(lease.name()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void delete(final String name) {
+    try {
+      Files.deleteIfExists(fileOf(name));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Claims the lease while holding a file lock, which excludes other processes sharing the directory.
+   */
+  @Override
+  public synchronized Optional<Lease> tryAcquire(final String name, final String holder, final Instant now, final Duration ttl) {
+    return locked(name, () -> {
+      final Lease claimed = Lease.claim(read(name), name, holder, now, ttl);
+      if (claimed != null) {
+        put(claimed);
+      }
+      return Optional.ofNullable(claimed);
+    });
+  }
+
+  @Override
+  public synchronized boolean release(final String name, final String holder, final long token, final Instant now) {
+    return locked(name, () -> {
+      final Lease current = read(name);
+      if (current == null || !current.isHeldBy(holder, token, now)) {
+        return false;
+      }
+      put(new Lease(name, holder, now, token));
+      return true;
+    });
+  }
+
+  /**
+   * Runs the write while holding the file lock of the lease, so no other process claims it meanwhile.
+   */
+  @Override
+  public synchronized boolean runIfHeld(final String name, final String holder, final long token, final Instant now, final Runnable write) {
+    return locked(name, () -> {
+      final Lease current = read(name);
+      if (current == null || !current.isHeldBy(holder, token, now)) {
+        return false;
+      }
+      write.run();
+      return true;
+    });
+  }
+
+  private interface LockedAction<T> {
+    T run() throws IOException;
+  }
+
+  private <T> T locked(final String name, final LockedAction<T> action) {
+    try {
+      Files.createDirectories(directory);
+      final Path lockFile = directory.resolve(fileOf(name).getFileName() + ".lock");
+      try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock ignored = channel.lock()) {
+        return action.run();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Lease read(final String name) throws IOException {
+    final Path file = fileOf(name);
+    return Files.exists(file) ? objectMapper.readValue(file.toFile(), Lease.class) : null;
+  }
+
+  private Path fileOf(final String name) {
+    return directory.resolve(name.replaceAll("[^A-Za-z0-9._-]", "_") + SUFFIX);
+  }
+}
@@ -2,7 +2,10 @@ package com.github.arburk.stockalert.infrastructure.persistance;
 
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
 import com.github.arburk.stockalert.application.service.stock.PersistenceProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import tools.jackson.core.JacksonException;
@@ -10,8 +13,16 @@ import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Slf4j
 @Component
@@ -20,17 +31,58 @@ public class FileStorage extends AbstractPersistenceProvider implements Persiste
 
   public static final String ENABLE_PROPERTY = "default";
 
-  private final Path filePath;
+  private Path filePath;
   private final ObjectMapper objectMapper;
 
+  /**
+   * Appends changed securities to a journal instead of rewriting the storage file, which then serves as
+   * snapshot compacted from the journal every {@link #journalCompactAfter} records.
+   */
+  @Value("${stock-alert.storage-journal.enabled:false}")
+  private boolean journalEnabled;
+
+  @Value("${stock-alert.storage-journal.compact-after:1000}")
+  private int journalCompactAfter;
+
+  private StorageJournal journal;
+
   public FileStorage(ObjectMapper objectMapper) {
     filePath = Path.of(System.getProperty("user.home"), "stock-alert", PersistenceProvider.STORAGE_FILE_NAME);
     this.objectMapper = objectMapper;
     log.debug("Initialized default PersistanceProvider");
   }
 
+  @PostConstruct
+  void resolveStorageFile() {
+    filePath = filePath.resolveSibling(storageFileName());
+    if (journalEnabled) {
+      log.info("Storage journal enabled, compacted into {} every {} records", filePath.toFile().getAbsoluteFile(), journalCompactAfter);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (journal != null) {
+      journal.awaitCompaction();
+    }
+  }
+
+  private StorageJournal journal() {
+    if (journal == null || !journal.snapshot().equals(filePath)) {
+      journal = new StorageJournal(filePath, objectMapper, storageCodec(objectMapper));
+    }
+    return journal;
+  }
+
   @Override
   public void commitChanges() {
+    if (!hasUncommittedChanges()) {
+      return;
+    }
+    if (journalEnabled) {
+      appendToJournal();
+      return;
+    }
     try {
       final File parentDir = filePath.toFile().getParentFile();
       if (parentDir != null && !parentDir.exists()) {
@@ -41,29 +93,106 @@ public class FileStorage extends AbstractPersistenceProvider implements Persiste
         }
       }
 
-      final StockAlertDb data = getData();
-      final StockAlertDb copy = new StockAlertDb(data.securities() /* sort securities before saving*/, data.metaInfo());
-      objectMapper.writerWithDefaultPrettyPrinter().writeValue(filePath.toFile(), copy);
+      final long version = version();
+      final StockAlertDb snapshot = getData();
+      final byte[] content = storageCodec(objectMapper).encode(snapshot);
+      if (!writeFenced(unchecked(() -> Files.write(filePath, content)))) {
+        return;
+      }
       log.info("Securities successfully updated to file: {}", filePath.toFile().getAbsoluteFile());
+      committed(version);
+      // records of a journal used before are contained in the file now
+      journal().delete();
     } catch (Exception e) {
       log.error("Failed to write securities to file '{}}'", filePath.toFile().getAbsoluteFile(), e);
     }
   }
 
+  private void appendToJournal() {
+    try {
+      final long version = version();
+      final StorageJournal current = journal();
+      if (!writeFenced(unchecked(() -> current.append(changedSecurities(), getMetaInfo())))) {
+        return;
+      }
+      committed(version);
+      // compacted in the background, while the securities are updated in place by the next evaluation
+      if (current.size() >= journalCompactAfter && current.compact(getDataCopy())) {
+        log.debug("Compacting journal of {}", filePath.toFile().getAbsoluteFile());
+      }
+    } catch (Exception e) {
+      log.error("Failed to append securities to journal of '{}'", filePath.toFile().getAbsoluteFile(), e);
+    }
+  }
+
+  private interface StorageWrite {
+    void run() throws IOException;
+  }
+
+  private static Runnable unchecked(final StorageWrite write) {
+    return () -> {
+      try {
+        write.run();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
   @Override
   StockAlertDb initData() {
     try {
-      if (!filePath.toFile().exists()) {
-        log.warn("Storage file not found: {}", filePath.toFile().getAbsoluteFile());
-        return initDataByFallback();
-      }
-      return objectMapper.readValue(filePath.toFile(), StockAlertDb.class);
+      return journal().replay(readStorageFile());
     } catch (Exception e) {
       log.error("Failed to read securities from file", e);
       return new StockAlertDb(new ArrayList<>(/* must not be immutable */), null);
     }
   }
 
+  /**
+   * Reads the storage files of the other replicas in the directory of the own one, with their journal applied.
+   */
+  @Override
+  Collection<StockAlertDb> readOtherReplicas() {
+    final Path own = filePath.toAbsolutePath();
+    final Set<Path> snapshots = new TreeSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(own.getParent(), "securities*.db.json*")) {
+      for (final Path file : files) {
+        // a replica writing a journal might not have a storage file yet
+        final String snapshot = file.getFileName().toString().replaceFirst("\\.journal(\\.compacting)?$", "");
+        if (snapshot.endsWith(".db.json")) {
+          snapshots.add(file.resolveSibling(snapshot));
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Failed to list storage files of other replicas in {}: {}", own.getParent(), e.getMessage());
+      return List.of();
+    }
+    snapshots.remove(own);
+
+    final StorageCodec codec = storageCodec(objectMapper);
+    final List<StockAlertDb> others = new ArrayList<>();
+    for (final Path snapshot : snapshots) {
+      try {
+        final StockAlertDb stored = Files.exists(snapshot)
+            ? codec.decode(Files.readAllBytes(snapshot))
+            : new StockAlertDb(new ArrayList<>(), null);
+        others.add(new StorageJournal(snapshot, objectMapper, codec).read(stored));
+      } catch (Exception e) {
+        log.warn("Failed to read storage file {} of another replica: {}", snapshot, e.getMessage());
+      }
+    }
+    return others;
+  }
+
+  private StockAlertDb readStorageFile() throws IOException {
+    if (!filePath.toFile().exists()) {
+      log.warn("Storage file not found: {}", filePath.toFile().getAbsoluteFile());
+      return initDataByFallback();
+    }
+    return storageCodec(objectMapper).decode(Files.readAllBytes(filePath));
+  }
+
   private StockAlertDb initDataByFallback() throws JacksonException {
     final Path fallback = Path.of(System.getProperty("user.home"), "stock-alert", PersistenceProvider.STORAGE_FILE_NAME_0_1_3);
     if (fallback.toFile().exists()) {
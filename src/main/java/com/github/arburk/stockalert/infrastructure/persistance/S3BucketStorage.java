@@ -2,6 +2,9 @@ package com.github.arburk.stockalert.infrastructure.persistance;
 
 import tools.jackson.core.type.TypeReference;
 import tools.jackson.databind.ObjectMapper;
+import com.github.arburk.stockalert.application.domain.MetaInfo;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
 import com.github.arburk.stockalert.application.service.stock.PersistenceProvider;
 import io.micrometer.common.util.StringUtils;
@@ -16,18 +19,34 @@ import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringWriter;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
@@ -35,6 +54,15 @@ import java.util.List;
 public class S3BucketStorage extends AbstractPersistenceProvider implements PersistenceProvider {
 
   public static final String ENABLE_PROPERTY = "s3";
+  /**
+   * Metadata of the objects written with leader election enabled, holding the fencing token of the writer.
+   */
+  static final String FENCING_TOKEN = "fencing-token";
+  private static final int MAX_FENCED_PUT_ATTEMPTS = 3;
+  private static final int HTTP_PRECONDITION_FAILED = 412;
+  private static final int HTTP_CONFLICT = 409;
+  private static final String PARTITIONS = "partitions/";
+  private static final String MANIFEST = "manifest.json";
 
   @Value("${spring.cloud.s3.endpoint.url}")
   private String endpoint;
@@ -49,6 +77,37 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
   @Value("${spring.cloud.s3.bucket}")
   private String bucket;
 
+  /**
+   * Number of objects the securities are spread over by the hash of their key, so a commit only puts the
+   * objects of changed securities. 0 keeps all securities in a single object.
+   */
+  @Value("${spring.cloud.s3.partitions:0}")
+  private int partitions;
+
+  /**
+   * Layout of the partitioned storage as read or written last, all partitions are written under a new layout if
+   * it does not match.
+   */
+  private PartitionManifest manifest;
+
+  /**
+   * ETags of the objects as written last by this replica, a write with leader election enabled requires them unchanged.
+   */
+  private final Map<String, String> eTags = new ConcurrentHashMap<>();
+
+  /**
+   * Set if the bucket might hold objects of a layout not in use, e.g. the single object after switching to
+   * partitions. They are removed once the layout in use was written.
+   */
+  private boolean unusedLayoutPresent;
+
+  /**
+   * @param layout random name of the prefix the partitions are stored under. Changing the number of partitions writes
+   *               a new layout, which the manifest switches to at once, so a failure half way leaves the former one intact.
+   */
+  record PartitionManifest(int partitions, String layout, MetaInfo metaInfo) {
+  }
+
   private final ObjectMapper objectMapper;
 
   private S3Client s3;
@@ -58,6 +117,10 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
     log.debug("Initialized S3BucketStorage as PersistanceProvider");
   }
 
+  String bucket() {
+    return bucket;
+  }
+
   @PreDestroy
   public void shutdown() {
     resetS3ClientToEnforceRefresh();
@@ -65,22 +128,30 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
 
   @Override
   public void commitChanges() {
+    if (!hasUncommittedChanges()) {
+      return;
+    }
     try {
-      final StockAlertDb data = getData();
-      final StockAlertDb copy = new StockAlertDb(data.securities() /* sort securities before saving*/, data.metaInfo());
-      final StringWriter jsonWriter = new StringWriter();
-      objectMapper.writerWithDefaultPrettyPrinter().writeValue(jsonWriter, copy);
-      final byte[] resultAsBytes = jsonWriter.toString().getBytes(StandardCharsets.UTF_8);
+      final long version = version();
+      if (partitions > 0) {
+        writePartitions();
+        committed(version);
+        removeUnusedLayout();
+        return;
+      }
+      final StockAlertDb snapshot = getData();
+      final byte[] resultAsBytes = storageCodec(objectMapper).encode(snapshot);
       log.debug("serialized data of lenth {}", resultAsBytes.length);
 
-      try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(resultAsBytes)) {
-        final var req = PutObjectRequest.builder().bucket(bucket).key(STORAGE_FILE_NAME).build();
-        final var putResponse = getS3().putObject(req, RequestBody.fromInputStream(byteArrayInputStream, resultAsBytes.length));
-        log.debug("Put {} to S3 bucket {}: {}", STORAGE_FILE_NAME, bucket, putResponse);
-        log.info("Securities successfully updated in {}/{}/{}.}", endpoint, bucket, STORAGE_FILE_NAME);
-      }
+      put(getS3(), storageFileName(), resultAsBytes);
+      log.info("Securities successfully updated in {}/{}/{}.}", endpoint, bucket, storageFileName());
+      committed(version);
+      removeUnusedLayout();
+    } catch (IllegalStateException e) {
+      // the lease was lost, the fenced put left the securities written by the successor untouched
+      log.warn("Skip writing securities to {}/{}/{}: {}", endpoint, bucket, storageFileName(), e.getMessage());
     } catch (Exception e) {
-      log.error("Failed to write securities to {}/{}/{}.", endpoint, bucket, STORAGE_FILE_NAME, e);
+      log.error("Failed to write securities to {}/{}/{}.", endpoint, bucket, storageFileName(), e);
       resetS3ClientToEnforceRefresh();
     }
   }
@@ -88,14 +159,35 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
   @Override
   StockAlertDb initData() {
     try {
+      final S3Object manifestObject = getS3().listObjects(ListObjectsRequest.builder().bucket(bucket).prefix(manifestKey()).build())
+          .contents()
+          .stream()
+          .filter(object -> manifestKey().equals(object.key()))
+          .findFirst()
+          .orElse(null);
       final ListObjectsRequest req = ListObjectsRequest.builder()
-          .bucket(bucket).prefix(STORAGE_FILE_NAME).build();
-      log.debug("get {} from S3 bucket: {}",STORAGE_FILE_NAME, req);
+          .bucket(bucket).prefix(storageFileName()).build();
+      log.debug("get {} from S3 bucket: {}",storageFileName(), req);
       final List<S3Object> s3Contents = getS3().listObjects(req)
           .contents()
           .stream()
           .toList();
+      final S3Object single = s3Contents.stream().filter(object -> storageFileName().equals(object.key())).findFirst().orElse(null);
+      unusedLayoutPresent = manifestObject != null || (single != null && partitions > 0);
 
+      // the layout written last is read, regardless of the configured one
+      if (manifestObject != null && (single == null || isWrittenLater(manifestObject, single))) {
+        if (partitions == 0) {
+          log.warn("Read securities from partitions {} written last, they are moved to {} with the next write", partitionPrefix(), storageFileName());
+        }
+        final StockAlertDb partitioned = readPartitions();
+        if (partitioned != null) {
+          return partitioned;
+        }
+      } else if (manifestObject != null) {
+        log.warn("Partitions {} are older than {} and not read, they are removed with the next write", partitionPrefix(), storageFileName());
+      }
+      manifest = null;
 
       if (s3Contents.isEmpty()) {
         log.warn("Storage file not found in S3 bucket: {}/{}", bucket, endpoint);
@@ -104,12 +196,11 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
 
       if (s3Contents.size() > 1) {
         log.warn("{} Storage files '{}' found in S3 bucket: {}/{}. Will use first one",
-            s3Contents.size(), STORAGE_FILE_NAME, endpoint, bucket);
+            s3Contents.size(), storageFileName(), endpoint, bucket);
       }
 
-      try (var responseInputStream = getS3().getObject(GetObjectRequest.builder().bucket(bucket).key(STORAGE_FILE_NAME).build())) {
-        return objectMapper.readValue(responseInputStream, new TypeReference<>() {
-        });
+      try (var responseInputStream = getS3().getObject(GetObjectRequest.builder().bucket(bucket).key(storageFileName()).build())) {
+        return storageCodec(objectMapper).decode(responseInputStream.readAllBytes());
       }
 
     } catch (Exception e) {
@@ -137,7 +228,282 @@ public class S3BucketStorage extends AbstractPersistenceProvider implements Pers
     return new StockAlertDb(new ArrayList<>(/* must not be immutable */), null);
   }
 
-  private S3Client getS3() {
+  String partitionPrefix() {
+    return partitionPrefix(storageFileName());
+  }
+
+  private static String partitionPrefix(final String fileName) {
+    return PARTITIONS + fileName + "/";
+  }
+
+  /**
+   * @return key of the given partition in the layout read or written last
+   */
+  String partitionKey(final int partition) {
+    return partitionKey(storageFileName(), manifest.layout(), partition);
+  }
+
+  private static String layoutPrefix(final String fileName, final String layout) {
+    return partitionPrefix(fileName) + layout + "/";
+  }
+
+  private static String partitionKey(final String fileName, final String layout, final int partition) {
+    return layoutPrefix(fileName, layout) + "%04d".formatted(partition);
+  }
+
+  String manifestKey() {
+    return manifestKey(storageFileName());
+  }
+
+  private static String manifestKey(final String fileName) {
+    return partitionPrefix(fileName) + MANIFEST;
+  }
+
+  /**
+   * Hash of symbol and exchange is the same on any JVM, so is the partition.
+   */
+  static int partitionOf(final Security security, final int partitions) {
+    return Math.floorMod(SecurityKey.of(security).hashCode(), partitions);
+  }
+
+  /**
+   * Puts the partitions holding changed securities in parallel, the manifest last and only if it changed.
+   */
+  private void writePartitions() throws InterruptedException, ExecutionException {
+    final boolean layoutChanged = manifest == null || manifest.partitions() != partitions;
+    final String layout = layoutChanged ? UUID.randomUUID().toString() : manifest.layout();
+    final Collection<Integer> dirty = layoutChanged
+        ? IntStream.range(0, partitions).boxed().toList()
+        : changedSecurities().stream().map(security -> partitionOf(security, partitions)).collect(Collectors.toCollection(TreeSet::new));
+    final Map<Integer, ArrayList<Security>> contents = new HashMap<>();
+    dirty.forEach(partition -> contents.put(partition, new ArrayList<>()));
+    for (final Security security : getSecurites()) {
+      final ArrayList<Security> content = contents.get(partitionOf(security, partitions));
+      if (content != null) {
+        content.add(security);
+      }
+    }
+
+    final S3Client client = getS3();
+    final StorageCodec codec = storageCodec(objectMapper);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<?>> puts = contents.entrySet().stream()
+          .<Future<?>>map(partition -> executor.submit(() ->
+              put(client, partitionKey(storageFileName(), layout, partition.getKey()), codec.encode(new StockAlertDb(partition.getValue(), null)))))
+          .toList();
+      for (final Future<?> put : puts) {
+        put.get();
+      }
+    }
+
+    // switches to a new layout only once all of its partitions were written
+    // with leader election, the manifest is put on each write, so a lost lease is noticed before the cleanup
+    final PartitionManifest current = new PartitionManifest(partitions, layout, getMetaInfo());
+    if (!current.equals(manifest) || fencingToken() > 0) {
+      put(client, manifestKey(), objectMapper.writeValueAsBytes(current));
+      manifest = current;
+    }
+    if (layoutChanged) {
+      unusedLayoutPresent = true;
+    }
+    log.info("{} of {} partitions updated in {}/{}/{}", contents.size(), partitions, endpoint, bucket, layoutPrefix(storageFileName(), layout));
+  }
+
+  /**
+   * Removes the objects of layouts not in use, a failure is logged and the removal retried with the next write.
+   * Switching to the single object, the manifest is removed first, so it never references missing partitions.
+   */
+  private void removeUnusedLayout() {
+    if (!unusedLayoutPresent) {
+      return;
+    }
+    try {
+      final S3Client client = getS3();
+      final List<String> unused = new ArrayList<>();
+      if (partitions > 0) {
+        unused.add(storageFileName());
+        final String inUse = layoutPrefix(storageFileName(), manifest.layout());
+        listKeys(client, partitionPrefix()).stream()
+            .filter(key -> !key.equals(manifestKey()) && !key.startsWith(inUse))
+            .forEach(unused::add);
+      } else {
+        unused.add(manifestKey());
+        listKeys(client, partitionPrefix()).stream()
+            .filter(key -> !key.equals(manifestKey()))
+            .forEach(unused::add);
+        manifest = null;
+      }
+      for (final String key : unused) {
+        client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+      }
+      unusedLayoutPresent = false;
+      log.info("Removed {} objects of storage layouts not in use from S3 bucket {}", unused.size(), bucket);
+    } catch (Exception e) {
+      log.warn("Failed to remove storage layouts not in use from S3 bucket {}: {}", bucket, e.getMessage());
+    }
+  }
+
+  private List<String> listKeys(final S3Client client, final String prefix) {
+    return listObjects(client, prefix).stream().map(S3Object::key).toList();
+  }
+
+  private List<S3Object> listObjects(final S3Client client, final String prefix) {
+    final List<S3Object> objects = new ArrayList<>();
+    ListObjectsResponse page;
+    do {
+      page = client.listObjects(ListObjectsRequest.builder().bucket(bucket).prefix(prefix)
+          .marker(objects.isEmpty() ? null : objects.getLast().key()).build());
+      objects.addAll(page.contents());
+    } while (Boolean.TRUE.equals(page.isTruncated()) && !page.contents().isEmpty());
+    return objects;
+  }
+
+  /**
+   * Without modification time, e.g. on stores not providing it, the configured layout is considered newer.
+   */
+  private boolean isWrittenLater(final S3Object partitioned, final S3Object single) {
+    if (partitioned.lastModified() == null || single.lastModified() == null) {
+      return partitions > 0;
+    }
+    return !partitioned.lastModified().isBefore(single.lastModified());
+  }
+
+  /**
+   * @return securities of all partitions read in parallel, null if there is no manifest yet
+   */
+  private StockAlertDb readPartitions() throws IOException, InterruptedException, ExecutionException {
+    final S3Client client = getS3();
+    final PartitionManifest stored = readManifest(client, storageFileName());
+    if (stored == null) {
+      log.info("Partition manifest {} not found in S3 bucket {}, read single storage file", manifestKey(), bucket);
+      manifest = null;
+      return null;
+    }
+    final StockAlertDb securities = readPartitions(client, storageFileName(), stored);
+    manifest = stored;
+    log.debug("Read {} securities of {} partitions from S3 bucket {}", securities.securities().size(), stored.partitions(), bucket);
+    return securities;
+  }
+
+  private PartitionManifest readManifest(final S3Client client, final String fileName) throws IOException {
+    try (var responseInputStream = client.getObject(GetObjectRequest.builder().bucket(bucket).key(manifestKey(fileName)).build())) {
+      return objectMapper.readValue(responseInputStream, PartitionManifest.class);
+    } catch (NoSuchKeyException e) {
+      return null;
+    }
+  }
+
+  private StockAlertDb readPartitions(final S3Client client, final String fileName, final PartitionManifest stored)
+      throws InterruptedException, ExecutionException {
+    final StorageCodec codec = storageCodec(objectMapper);
+    final ArrayList<Security> securities = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<StockAlertDb>> reads = IntStream.range(0, stored.partitions())
+          .mapToObj(partition -> executor.submit(() -> readPartition(client, codec, partitionKey(fileName, stored.layout(), partition))))
+          .toList();
+      for (final Future<StockAlertDb> read : reads) {
+        securities.addAll(read.get().securities());
+      }
+    }
+    return new StockAlertDb(securities, stored.metaInfo());
+  }
+
+  private StockAlertDb readPartition(final S3Client client, final StorageCodec codec, final String key) throws IOException {
+    try (var responseInputStream = client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build())) {
+      return codec.decode(responseInputStream.readAllBytes());
+    } catch (NoSuchKeyException e) {
+      // no security of this partition was stored yet
+      return new StockAlertDb(new ArrayList<>(), null);
+    }
+  }
+
+  /**
+   * Reads the storage objects of the other replicas, partitioned ones by their manifest.
+   */
+  @Override
+  Collection<StockAlertDb> readOtherReplicas() {
+    final List<StockAlertDb> others = new ArrayList<>();
+    try {
+      final S3Client client = getS3();
+      final Map<String, S3Object> singles = new HashMap<>();
+      listObjects(client, "securities").stream()
+          .filter(object -> object.key().endsWith(".db.json"))
+          .forEach(object -> singles.put(object.key(), object));
+      // partitions/<file name>/manifest.json
+      final Map<String, S3Object> manifests = new HashMap<>();
+      listObjects(client, PARTITIONS + "securities").stream()
+          .filter(object -> object.key().endsWith("/" + MANIFEST))
+          .forEach(object -> manifests.put(object.key().substring(PARTITIONS.length(), object.key().length() - MANIFEST.length() - 1), object));
+      final Set<String> fileNames = new TreeSet<>(singles.keySet());
+      fileNames.addAll(manifests.keySet());
+      fileNames.remove(storageFileName());
+
+      for (final String fileName : fileNames) {
+        final S3Object manifestObject = manifests.get(fileName);
+        final S3Object single = singles.get(fileName);
+        // like the own storage, the layout written last is read
+        final PartitionManifest stored = manifestObject != null && (single == null || isWrittenLater(manifestObject, single))
+            ? readManifest(client, fileName)
+            : null;
+        others.add(stored != null
+            ? readPartitions(client, fileName, stored)
+            : readPartition(client, storageCodec(objectMapper), fileName));
+      }
+    } catch (Exception e) {
+      log.warn("Failed to read storage of other replicas from S3 bucket {}: {}", bucket, e.getMessage());
+    }
+    return others;
+  }
+
+  /**
+   * Puts the object; with leader election enabled only by a write conditional on its ETag, which is overwritten only
+   * if it was written with a fencing token not newer than the own one. So a replica paused past its lease does not
+   * overwrite what its successor wrote.
+   */
+  private void put(final S3Client client, final String key, final byte[] content) {
+    final long token = fencingToken();
+    if (token == 0) {
+      client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(), RequestBody.fromBytes(content));
+      return;
+    }
+    for (int attempt = 1; ; attempt++) {
+      final String eTag = eTags.get(key);
+      final PutObjectRequest.Builder req = PutObjectRequest.builder().bucket(bucket).key(key)
+          .metadata(Map.of(FENCING_TOKEN, Long.toString(token)));
+      if (eTag != null) {
+        req.ifMatch(eTag);
+      } else {
+        req.ifNoneMatch("*");
+      }
+      try {
+        final String written = client.putObject(req.build(), RequestBody.fromBytes(content)).eTag();
+        if (written != null) {
+          eTags.put(key, written);
+        } else {
+          eTags.remove(key);
+        }
+        return;
+      } catch (S3Exception e) {
+        if (attempt >= MAX_FENCED_PUT_ATTEMPTS || (e.statusCode() != HTTP_PRECONDITION_FAILED && e.statusCode() != HTTP_CONFLICT)) {
+          throw e;
+        }
+      }
+
+      // written by another replica or by a former run of this one
+      try {
+        final HeadObjectResponse head = client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+        final long stored = Long.parseLong(head.metadata().getOrDefault(FENCING_TOKEN, "0"));
+        if (stored > token) {
+          throw new IllegalStateException("%s was written with fencing token %d, newer than %d".formatted(key, stored, token));
+        }
+        eTags.put(key, head.eTag());
+      } catch (NoSuchKeyException e) {
+        eTags.remove(key);
+      }
+    }
+  }
+
+  S3Client getS3() {
     if (s3 == null) {
       log.debug("Configure S3 bucket {}", endpoint);
 
@@ -0,0 +1,140 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.service.cluster.Lease;
+import com.github.arburk.stockalert.application.service.cluster.LeaseStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps each lease as a json object below {@value #KEY_PREFIX} in the bucket of the {@link S3BucketStorage}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(value = "stock-alert.storage-provider", havingValue = S3BucketStorage.ENABLE_PROPERTY)
+public class S3LeaseStore implements LeaseStore {
+
+  static final String KEY_PREFIX = "leases/";
+  private static final int HTTP_PRECONDITION_FAILED = 412;
+  private static final int HTTP_CONFLICT = 409;
+
+  private final S3BucketStorage storage;
+  private final ObjectMapper objectMapper;
+
+  public S3LeaseStore(S3BucketStorage storage, ObjectMapper objectMapper) {
+    this.storage = storage;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public List<Lease> list(final String prefix) {
+    final ListObjectsV2Request req = ListObjectsV2Request.builder()
+        .bucket(storage.bucket()).prefix(KEY_PREFIX + prefix).build();
+    final List<Lease> result = new ArrayList<>();
+    for (final S3Object object : storage.getS3().listObjectsV2Paginator(req).contents()) {
+      try (var responseInputStream = storage.getS3().getObject(GetObjectRequest.builder().bucket(storage.bucket()).key(object.key()).build())) {
+        result.add(objectMapper.readValue(responseInputStream, Lease.class));
+      } catch (NoSuchKeyException e) {
+        log.debug("Lease {} deleted meanwhile", object.key());
+      } catch (Exception e) {
+        log.warn("Skip unreadable lease {}: {}", object.key(), e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final Lease lease) {
+    final byte[] content = objectMapper.writeValueAsBytes(lease);
+    storage.getS3().putObject(PutObjectRequest.builder().bucket(storage.bucket()).key(KEY_PREFIX + lease.name()).build(),
+        RequestBody.fromBytes(content));
+  }
+
+  @Override
+  public void delete(final String name) {
+    storage.getS3().deleteObject(DeleteObjectRequest.builder().bucket(storage.bucket()).key(KEY_PREFIX + name).build());
+  }
+
+  /**
+   * Claims the lease by a conditional write: replacing the lease read before requires its ETag to be unchanged,
+   * creating a lease requires it to be still absent. Losing a concurrent claim is reported as not acquired.
+   */
+  @Override
+  public Optional<Lease> tryAcquire(final String name, final String holder, final Instant now, final Duration ttl) {
+    final Stored current = read(name);
+    final Lease claimed = Lease.claim(current.lease(), name, holder, now, ttl);
+    if (claimed == null) {
+      return Optional.empty();
+    }
+    return putIfUnchanged(claimed, current.eTag()) ? Optional.of(claimed) : Optional.empty();
+  }
+
+  /**
+   * Expires the lease by a write conditional on the ETag of the lease read, so it is not reset if another
+   * replica claimed it in between.
+   */
+  @Override
+  public boolean release(final String name, final String holder, final long token, final Instant now) {
+    final Stored current = read(name);
+    if (current.lease() == null || !current.lease().isHeldBy(holder, token, now)) {
+      return false;
+    }
+    return putIfUnchanged(new Lease(name, holder, now, token), current.eTag());
+  }
+
+  private record Stored(Lease lease, String eTag) {
+  }
+
+  private Stored read(final String name) {
+    final String key = KEY_PREFIX + name;
+    try (var responseInputStream = storage.getS3().getObject(GetObjectRequest.builder().bucket(storage.bucket()).key(key).build())) {
+      return new Stored(objectMapper.readValue(responseInputStream, Lease.class), responseInputStream.response().eTag());
+    } catch (NoSuchKeyException e) {
+      log.debug("Lease {} not present yet", key);
+      return new Stored(null, null);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param eTag of the lease replaced, null if there was none
+   * @return false if the lease was changed by another replica meanwhile
+   */
+  private boolean putIfUnchanged(final Lease lease, final String eTag) {
+    final String key = KEY_PREFIX + lease.name();
+    final PutObjectRequest.Builder req = PutObjectRequest.builder().bucket(storage.bucket()).key(key);
+    if (eTag != null) {
+      req.ifMatch(eTag);
+    } else {
+      req.ifNoneMatch("*");
+    }
+    try {
+      storage.getS3().putObject(req.build(), RequestBody.fromBytes(objectMapper.writeValueAsBytes(lease)));
+      return true;
+    } catch (S3Exception e) {
+      if (e.statusCode() == HTTP_PRECONDITION_FAILED || e.statusCode() == HTTP_CONFLICT) {
+        log.debug("Lease {} changed concurrently", key);
+        return false;
+      }
+      throw e;
+    }
+  }
+}
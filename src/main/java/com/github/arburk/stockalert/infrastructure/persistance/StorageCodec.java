@@ -0,0 +1,126 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes the stored securities in the configured format, optionally gzip compressed. Reading detects the
+ * format from the content, so a storage written in any format, e.g. the pretty printed json of former
+ * versions, is read regardless of the configured one and migrated with the next write.
+ */
+class StorageCodec {
+
+  enum Format {
+    /**
+     * pretty printed, the format of former versions
+     */
+    JSON,
+    /**
+     * binary json, starting with the header {@code :)\n}
+     */
+    SMILE,
+    /**
+     * RFC 8949 concise binary object representation
+     */
+    CBOR
+  }
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+
+  private final Format format;
+  private final boolean gzip;
+  private final ObjectMapper jsonMapper;
+  private final ObjectMapper smileMapper;
+  private final ObjectMapper cborMapper;
+
+  StorageCodec(final Format format, final boolean gzip, final ObjectMapper jsonMapper) {
+    this.format = format;
+    this.gzip = gzip;
+    this.jsonMapper = jsonMapper;
+    this.smileMapper = SmileMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)
+        .build();
+    this.cborMapper = CBORMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)
+        .build();
+  }
+
+  /**
+   * @param format name of a {@link Format}, case-insensitive; json if empty
+   */
+  static StorageCodec of(final String format, final boolean gzip, final ObjectMapper jsonMapper) {
+    return new StorageCodec(
+        format == null || format.isBlank() ? Format.JSON : Format.valueOf(format.trim().toUpperCase(Locale.ROOT)),
+        gzip,
+        jsonMapper);
+  }
+
+  Format format() {
+    return format;
+  }
+
+  boolean isGzip() {
+    return gzip;
+  }
+
+  byte[] encode(final StockAlertDb data) {
+    final byte[] encoded = switch (format) {
+      case JSON -> jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+      case SMILE -> smileMapper.writeValueAsBytes(data);
+      case CBOR -> cborMapper.writeValueAsBytes(data);
+    };
+    if (!gzip) {
+      return encoded;
+    }
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream(encoded.length / 4 + 64);
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(encoded);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+
+  StockAlertDb decode(final byte[] content) throws IOException {
+    if (isGzip(content)) {
+      try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+        return decode(in.readAllBytes());
+      }
+    }
+    return mapperFor(detect(content)).readValue(content, StockAlertDb.class);
+  }
+
+  static Format detect(final byte[] content) {
+    if (content.length >= 3 && content[0] == ':' && content[1] == ')' && content[2] == '\n') {
+      return Format.SMILE;
+    }
+    // the securities are an object, which is a map in CBOR (major type 5) but '{' or whitespace in json
+    if (content.length > 0 && (content[0] & 0xe0) == 0xa0) {
+      return Format.CBOR;
+    }
+    return Format.JSON;
+  }
+
+  private static boolean isGzip(final byte[] content) {
+    return content.length >= 2 && ((content[0] & 0xff) | (content[1] & 0xff) << 8) == GZIP_MAGIC;
+  }
+
+  private ObjectMapper mapperFor(final Format detected) {
+    return switch (detected) {
+      case JSON -> jsonMapper;
+      case SMILE -> smileMapper;
+      case CBOR -> cborMapper;
+    };
+  }
+}
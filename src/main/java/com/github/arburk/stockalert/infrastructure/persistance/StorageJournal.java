@@ -0,0 +1,295 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.domain.MetaInfo;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the securities changed since the storage file was written last. Each line holds the
+ * CRC32 checksum and the json of one security or of the meta info; the records of one commit are written
+ * and synced to disk at once. The storage file is the snapshot the journal is replayed on.
+ * <p>
+ * Compaction moves the journal aside and writes a new snapshot in the background. The moved journal is
+ * deleted once the snapshot was replaced, until then it is replayed as well; as its records are contained
+ * in the new snapshot, replaying it again does not change the result.
+ */
+@Slf4j
+class StorageJournal {
+
+  record Entry(Security security, MetaInfo metaInfo) {
+  }
+
+  private final Path snapshot;
+  private final Path journal;
+  private final Path compacting;
+  private final ObjectMapper objectMapper;
+  private final StorageCodec codec;
+  private int size;
+  private MetaInfo journaledMetaInfo;
+  private Thread compaction;
+
+  StorageJournal(final Path snapshot, final ObjectMapper objectMapper) {
+    this(snapshot, objectMapper, new StorageCodec(StorageCodec.Format.JSON, false, objectMapper));
+  }
+
+  /**
+   * @param codec encoding of the snapshot, the journal records are json
+   */
+  StorageJournal(final Path snapshot, final ObjectMapper objectMapper, final StorageCodec codec) {
+    this.codec = codec;
+    this.snapshot = snapshot;
+    this.journal = snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+    this.compacting = snapshot.resolveSibling(snapshot.getFileName() + ".journal.compacting");
+    this.objectMapper = objectMapper;
+  }
+
+  Path snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * @return number of records appended since the last compaction
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Appends a record per security and one for the meta info if it changed, synced to disk once for all.
+   */
+  synchronized void append(final Collection<Security> securities, final MetaInfo metaInfo) throws IOException {
+    final ByteArrayOutputStream records = new ByteArrayOutputStream();
+    int count = 0;
+    for (final Security security : securities) {
+      write(records, new Entry(security, null));
+      count++;
+    }
+    if (!Objects.equals(metaInfo, journaledMetaInfo)) {
+      write(records, new Entry(null, metaInfo));
+      count++;
+    }
+    if (count == 0) {
+      return;
+    }
+
+    Files.createDirectories(journal.toAbsolutePath().getParent());
+    try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      final ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    size += count;
+    journaledMetaInfo = metaInfo;
+    log.debug("Appended {} records to journal {}", count, journal.toAbsolutePath());
+  }
+
+  /**
+   * @return the snapshot with the records of the journal applied, in the order they were appended
+   */
+  synchronized StockAlertDb replay(final StockAlertDb loaded) throws IOException {
+    awaitCompaction();
+    if (!Files.exists(compacting) && !Files.exists(journal)) {
+      return loaded;
+    }
+    final Replayed replayed = apply(loaded, true);
+    size = replayed.records();
+    journaledMetaInfo = replayed.state().metaInfo();
+    log.info("Replayed {} journal records on {}", size, snapshot.toAbsolutePath());
+    return replayed.state();
+  }
+
+  /**
+   * Like {@link #replay(StockAlertDb)} but for the journal of another replica, which might be appending to it
+   * right now: a torn record at the end is ignored instead of cut off.
+   */
+  StockAlertDb read(final StockAlertDb loaded) throws IOException {
+    return apply(loaded, false).state();
+  }
+
+  private record Replayed(StockAlertDb state, int records) {
+  }
+
+  private Replayed apply(final StockAlertDb loaded, final boolean repair) throws IOException {
+    final Map<SecurityKey, Security> securities = new LinkedHashMap<>();
+    if (loaded.securities() != null) {
+      loaded.securities().forEach(security -> securities.put(SecurityKey.of(security), security));
+    }
+    final MetaInfo[] metaInfo = {loaded.metaInfo()};
+    int records = 0;
+    for (final Path file : new Path[] {compacting, journal}) {
+      records += replay(file, repair, entry -> {
+        if (entry.security() != null) {
+          securities.put(SecurityKey.of(entry.security()), entry.security());
+        } else {
+          metaInfo[0] = entry.metaInfo();
+        }
+      });
+    }
+    return new Replayed(new StockAlertDb(new ArrayList<>(securities.values()), metaInfo[0]), records);
+  }
+
+  /**
+   * Moves the journal aside and writes the given state as new snapshot in the background.
+   *
+   * @param state not changed by the caller afterwards, as it is written by another thread
+   * @return false if the previous compaction did not finish yet
+   */
+  synchronized boolean compact(final StockAlertDb state) throws IOException {
+    if (compaction != null && compaction.isAlive()) {
+      return false;
+    }
+    if (Files.exists(compacting)) {
+      // a former compaction failed, its records are older than the current journal
+      if (Files.exists(journal)) {
+        Files.write(compacting, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+        Files.delete(journal);
+      }
+    } else if (Files.exists(journal)) {
+      Files.move(journal, compacting, StandardCopyOption.ATOMIC_MOVE);
+    }
+    size = 0;
+    compaction = Thread.ofVirtual().name("storage-compaction").start(() -> writeSnapshot(state));
+    return true;
+  }
+
+  /**
+   * Waits for a running compaction to finish.
+   */
+  void awaitCompaction() {
+    final Thread running;
+    synchronized (this) {
+      running = compaction;
+    }
+    if (running == null) {
+      return;
+    }
+    try {
+      running.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Removes the journal once the snapshot was written by other means.
+   */
+  synchronized void delete() throws IOException {
+    awaitCompaction();
+    Files.deleteIfExists(journal);
+    Files.deleteIfExists(compacting);
+    size = 0;
+  }
+
+  private void writeSnapshot(final StockAlertDb state) {
+    try {
+      final Path temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        final ByteBuffer buffer = ByteBuffer.wrap(codec.encode(state));
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+      }
+      // readers see either the previous or the new snapshot, never a partially written one
+      Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      Files.deleteIfExists(compacting);
+      log.info("Compacted journal into {}", snapshot.toAbsolutePath());
+    } catch (Exception e) {
+      log.error("Failed to compact journal into {}, keep replaying it", snapshot.toAbsolutePath(), e);
+    }
+  }
+
+  private void write(final ByteArrayOutputStream records, final Entry entry) {
+    final byte[] json = objectMapper.writeValueAsBytes(entry);
+    final CRC32 crc = new CRC32();
+    crc.update(json);
+    records.writeBytes("%08x\t".formatted(crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+    records.writeBytes(json);
+    records.write('\n');
+  }
+
+  /**
+   * Applies the valid records of the given file. A record not matching its checksum was torn by a crash while
+   * appending; if repairing, it and anything after it is cut off, so later appends are not hidden behind it.
+   *
+   * @return number of records applied
+   */
+  private int replay(final Path file, final boolean repair, final Consumer<Entry> apply) throws IOException {
+    if (!Files.exists(file)) {
+      return 0;
+    }
+    final byte[] content = Files.readAllBytes(file);
+    int count = 0;
+    int start = 0;
+    while (start < content.length) {
+      final int end = indexOf(content, (byte) '\n', start);
+      final Entry entry = end < 0 ? null : parse(content, start, end);
+      if (entry == null && !repair) {
+        log.debug("Journal {} ends with an incomplete record at byte {}", file.toAbsolutePath(), start);
+        break;
+      }
+      if (entry == null) {
+        log.warn("Journal {} is corrupt at byte {}, drop {} bytes", file.toAbsolutePath(), start, content.length - start);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+          channel.truncate(start);
+          channel.force(false);
+        }
+        break;
+      }
+      apply.accept(entry);
+      count++;
+      start = end + 1;
+    }
+    return count;
+  }
+
+  private Entry parse(final byte[] content, final int start, final int end) {
+    final int separator = indexOf(content, (byte) '\t', start);
+    if (separator != start + 8 || separator > end) {
+      return null;
+    }
+    try {
+      final long checksum = Long.parseLong(new String(content, start, 8, StandardCharsets.US_ASCII), 16);
+      final CRC32 crc = new CRC32();
+      crc.update(content, separator + 1, end - separator - 1);
+      if (crc.getValue() != checksum) {
+        return null;
+      }
+      return objectMapper.readValue(content, separator + 1, end - separator - 1, Entry.class);
+    } catch (Exception e) {
+      log.debug("Unreadable journal record: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private static int indexOf(final byte[] content, final byte value, final int from) {
+    for (int i = from; i < content.length; i++) {
+      if (content[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,238 @@
+package com.github.arburk.stockalert.infrastructure.provider.cache;
+
+import com.github.arburk.stockalert.application.domain.PriceRange;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.service.stock.StockProvider;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.Client;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the latest quote per symbol/exchange in memory so frequent update runs do not hit the
+ * provider for quotes which are only seconds old.
+ * <ul>
+ *   <li>an entry is fresh for {@code ttl} after it was fetched</li>
+ *   <li>if the quote's market time ({@link Security#timestamp()}) already was older than
+ *   {@code idle-ttl} when fetched, the market is considered closed and the entry is kept for
+ *   {@code idle-ttl} instead</li>
+ *   <li>within {@code stale} after expiry the cached quote is returned while it is refreshed in
+ *   the background (stale-while-revalidate), afterwards it is fetched synchronously again</li>
+ * </ul>
+ * The least recently used entries are evicted once {@code max-size} is exceeded.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(value = "stock-alert.cache.enabled", havingValue = "true")
+public class CachingStockProvider implements StockProvider {
+
+  enum State { FRESH, STALE, EXPIRED }
+
+  record Entry(Security security, Instant fetchedAt) {
+  }
+
+  private final StockProvider delegate;
+  private final Duration ttl;
+  private final Duration idleTtl;
+  private final Duration staleWindow;
+  private final Clock clock;
+  private final Executor refreshExecutor;
+  private final Map<SecurityKey, Entry> cache;
+  private final Set<SecurityKey> refreshing = ConcurrentHashMap.newKeySet();
+
+  @Autowired
+  public CachingStockProvider(
+      final Client delegate,
+      @Value("${stock-alert.cache.max-size:1000}") final int maxSize,
+      @Value("${stock-alert.cache.ttl-seconds:60}") final long ttlSeconds,
+      @Value("${stock-alert.cache.idle-ttl-seconds:900}") final long idleTtlSeconds,
+      @Value("${stock-alert.cache.stale-seconds:120}") final long staleSeconds) {
+    this(delegate, maxSize, Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(idleTtlSeconds), Duration.ofSeconds(staleSeconds),
+        Clock.systemDefaultZone(), Thread.ofVirtual().name("quote-cache-refresh")::start);
+    log.info("Quote cache enabled: max. {} entries, ttl {}s, idle ttl {}s, stale {}s", maxSize, ttlSeconds, idleTtlSeconds, staleSeconds);
+  }
+
+  CachingStockProvider(final StockProvider delegate, final int maxSize, final Duration ttl, final Duration idleTtl,
+      final Duration staleWindow, final Clock clock, final Executor refreshExecutor) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("cache max-size must be positive but was " + maxSize);
+    }
+    this.delegate = delegate;
+    this.ttl = ttl;
+    this.idleTtl = idleTtl;
+    this.staleWindow = staleWindow;
+    this.clock = clock;
+    this.refreshExecutor = refreshExecutor;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true /* access order for LRU eviction */) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<SecurityKey, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Override
+  public Collection<Security> getLatest(final List<SecurityConfig> securities) {
+    if (securities == null || securities.isEmpty()) {
+      return delegate.getLatest(securities);
+    }
+
+    final Instant now = clock.instant();
+    final Lookup lookup = lookup(securities, now);
+    final Map<SecurityKey, Security> result = lookup.hits();
+    if (!lookup.toFetch().isEmpty()) {
+      final Collection<Security> fetched = delegate.getLatest(lookup.toFetch());
+      store(fetched, now);
+      fetched.forEach(security -> result.put(SecurityKey.of(security), copy(security)));
+    }
+    if (!lookup.toRefresh().isEmpty()) {
+      refreshInBackground(lookup.toRefresh());
+    }
+    return result.values();
+  }
+
+  /**
+   * Cached quotes are passed on right away, missing ones as soon as the delegate fetched them.
+   */
+  @Override
+  public void getLatest(final List<SecurityConfig> securities, final Consumer<Security> onQuote) {
+    if (securities == null || securities.isEmpty()) {
+      delegate.getLatest(securities, onQuote);
+      return;
+    }
+
+    final Instant now = clock.instant();
+    final Lookup lookup = lookup(securities, now);
+    lookup.hits().values().forEach(onQuote);
+    if (!lookup.toFetch().isEmpty()) {
+      delegate.getLatest(lookup.toFetch(), security -> {
+        store(List.of(security), now);
+        onQuote.accept(copy(security));
+      });
+    }
+    if (!lookup.toRefresh().isEmpty()) {
+      refreshInBackground(lookup.toRefresh());
+    }
+  }
+
+  private record Lookup(Map<SecurityKey, Security> hits, List<SecurityConfig> toFetch, List<SecurityConfig> toRefresh) {
+  }
+
+  private Lookup lookup(final List<SecurityConfig> securities, final Instant now) {
+    final Lookup lookup = new Lookup(new LinkedHashMap<>(), new ArrayList<>(), new ArrayList<>());
+    synchronized (cache) {
+      for (final SecurityConfig config : securities) {
+        if (config == null) {
+          continue;
+        }
+        final Entry entry = cache.get(SecurityKey.of(config));
+        switch (entry == null ? State.EXPIRED : stateOf(entry, now)) {
+          case FRESH -> lookup.hits().put(SecurityKey.of(config), copy(entry.security()));
+          case STALE -> {
+            lookup.hits().put(SecurityKey.of(config), copy(entry.security()));
+            lookup.toRefresh().add(config);
+          }
+          case EXPIRED -> lookup.toFetch().add(config);
+        }
+      }
+    }
+    log.debug("quote cache: {} hits, {} stale, {} misses",
+        lookup.hits().size() - lookup.toRefresh().size(), lookup.toRefresh().size(), lookup.toFetch().size());
+    return lookup;
+  }
+
+  /**
+   * Intraday ranges depend on the caller's point in time and are not cached.
+   */
+  @Override
+  public Optional<PriceRange> getIntradayRange(final SecurityConfig security, final LocalDateTime since) {
+    return delegate.getIntradayRange(security, since);
+  }
+
+  State stateOf(final Entry entry, final Instant now) {
+    final Instant expiresAt = entry.fetchedAt().plus(isMarketIdle(entry) ? idleTtl : ttl);
+    if (now.isBefore(expiresAt)) {
+      return State.FRESH;
+    }
+    return now.isBefore(expiresAt.plus(staleWindow))
+        ? State.STALE
+        : State.EXPIRED;
+  }
+
+  private boolean isMarketIdle(final Entry entry) {
+    final var marketTime = entry.security().timestamp();
+    return marketTime != null
+        && idleTtl.compareTo(ttl) > 0
+        && Duration.between(marketTime.atZone(clock.getZone()).toInstant(), entry.fetchedAt()).compareTo(idleTtl) >= 0;
+  }
+
+  private void refreshInBackground(final List<SecurityConfig> stale) {
+    final List<SecurityConfig> claimed = stale.stream()
+        .filter(config -> refreshing.add(SecurityKey.of(config) /* skip if refresh already running */))
+        .toList();
+    if (claimed.isEmpty()) {
+      return;
+    }
+    refreshExecutor.execute(() -> {
+      try {
+        store(delegate.getLatest(claimed), clock.instant());
+      } catch (Exception e) {
+        log.warn("Background refresh of {} cached quotes failed: {}", claimed.size(), e.getMessage());
+      } finally {
+        claimed.forEach(config -> refreshing.remove(SecurityKey.of(config)));
+      }
+    });
+  }
+
+  private void store(final Collection<Security> fetched, final Instant fetchedAt) {
+    if (fetched == null || fetched.isEmpty()) {
+      return;
+    }
+    synchronized (cache) {
+      fetched.stream()
+          .filter(security -> security != null && security.symbol() != null)
+          .forEach(security -> cache.put(SecurityKey.of(security), new Entry(copy(security), fetchedAt)));
+    }
+  }
+
+  int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  Collection<String> keys() {
+    synchronized (cache) {
+      return cache.keySet().stream().map(SecurityKey::toString).toList();
+    }
+  }
+
+  /**
+   * Persistence merges the alert log into the latest instance, so cached instances must never be
+   * handed out directly.
+   */
+  private static Security copy(final Security security) {
+    return new Security(security.symbol(), security.price(), security.currency(), security.changePercentage(),
+        security.timestamp(), security.exchange(), null);
+  }
+}
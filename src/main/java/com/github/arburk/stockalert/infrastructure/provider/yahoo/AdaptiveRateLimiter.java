@@ -0,0 +1,130 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket in front of the Yahoo API. The permitted rate starts at its maximum, is halved on
+ * every throttling response (HTTP 429) and recovers linearly while Yahoo accepts requests again.
+ * A {@code Retry-After} hint pauses all requests until the given point in time.
+ */
+@Slf4j
+@Component
+public class AdaptiveRateLimiter {
+
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final double RECOVERY_SECONDS = 120;
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double maxPermitsPerSecond;
+  private final double minPermitsPerSecond;
+  private final double recoveryPerSecond;
+  private final LongSupplier nanoClock;
+
+  private double permitsPerSecond;
+  private double storedPermits;
+  private long nextFreeNanos;
+  private long lastAdjustNanos;
+
+  @Autowired
+  public AdaptiveRateLimiter(
+      @Value("${stock-alert.yahoo.rate-limit.max-per-second:5}") final double maxPermitsPerSecond,
+      @Value("${stock-alert.yahoo.rate-limit.min-per-second:0.2}") final double minPermitsPerSecond,
+      final ObjectProvider<MeterRegistry> meterRegistry) {
+    this(maxPermitsPerSecond, minPermitsPerSecond, System::nanoTime);
+    meterRegistry.ifAvailable(registry -> Gauge.builder("stockalert.yahoo.permitted.rate", this, AdaptiveRateLimiter::getPermitsPerSecond)
+        .description("Requests per second currently permitted by the adaptive Yahoo rate limiter")
+        .baseUnit("requests/s")
+        .register(registry));
+  }
+
+  AdaptiveRateLimiter(final double maxPermitsPerSecond, final double minPermitsPerSecond, final LongSupplier nanoClock) {
+    if (maxPermitsPerSecond <= 0 || minPermitsPerSecond <= 0 || minPermitsPerSecond > maxPermitsPerSecond) {
+      throw new IllegalArgumentException("invalid rate limit: min %s and max %s must be positive with min <= max"
+          .formatted(minPermitsPerSecond, maxPermitsPerSecond));
+    }
+    this.maxPermitsPerSecond = maxPermitsPerSecond;
+    this.minPermitsPerSecond = minPermitsPerSecond;
+    this.recoveryPerSecond = (maxPermitsPerSecond - minPermitsPerSecond) / RECOVERY_SECONDS;
+    this.nanoClock = nanoClock;
+    this.permitsPerSecond = maxPermitsPerSecond;
+    this.storedPermits = 1;
+    this.nextFreeNanos = nanoClock.getAsLong();
+    this.lastAdjustNanos = nextFreeNanos;
+  }
+
+  /**
+   * Blocks the calling thread until a request may be sent.
+   */
+  public void acquire() {
+    final long waitNanos = reserve();
+    if (waitNanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while waiting for rate limit permit");
+    }
+  }
+
+  /**
+   * Called on throttling responses: halves the permitted rate (bounded by the configured minimum)
+   * and holds back all further requests until {@code retryAfter} elapsed.
+   */
+  public synchronized void onThrottled(final Duration retryAfter) {
+    final long now = nanoClock.getAsLong();
+    recover(now);
+    permitsPerSecond = Math.max(minPermitsPerSecond, permitsPerSecond * DECREASE_FACTOR);
+    storedPermits = 0;
+    if (retryAfter != null && !retryAfter.isNegative()) {
+      nextFreeNanos = Math.max(nextFreeNanos, now + retryAfter.toNanos());
+      lastAdjustNanos = Math.max(lastAdjustNanos, nextFreeNanos /* no recovery while paused */);
+    }
+    log.warn("Yahoo throttles requests: permitted rate reduced to {} requests/s, retry after {}",
+        "%.2f".formatted(permitsPerSecond), retryAfter);
+  }
+
+  public synchronized double getPermitsPerSecond() {
+    recover(nanoClock.getAsLong());
+    return permitsPerSecond;
+  }
+
+  /**
+   * @return nanoseconds the caller has to wait before the reserved permit may be used
+   */
+  synchronized long reserve() {
+    final long now = nanoClock.getAsLong();
+    recover(now);
+    final double intervalNanos = NANOS_PER_SECOND / permitsPerSecond;
+    if (now > nextFreeNanos) {
+      // tokens accumulated while idle, bounded to a burst of one second
+      storedPermits = Math.min(Math.max(1, permitsPerSecond), storedPermits + (now - nextFreeNanos) / intervalNanos);
+      nextFreeNanos = now;
+    }
+    final long waitNanos = nextFreeNanos - now;
+    final double fromStore = Math.min(1, storedPermits);
+    storedPermits -= fromStore;
+    nextFreeNanos += (long) ((1 - fromStore) * intervalNanos);
+    return waitNanos;
+  }
+
+  private void recover(final long now) {
+    if (now <= lastAdjustNanos) {
+      return;
+    }
+    permitsPerSecond = Math.min(maxPermitsPerSecond,
+        permitsPerSecond + recoveryPerSecond * (now - lastAdjustNanos) / NANOS_PER_SECOND);
+    lastAdjustNanos = now;
+  }
+}
@@ -1,21 +1,38 @@
 package com.github.arburk.stockalert.infrastructure.provider.yahoo;
 
+import com.github.arburk.stockalert.application.domain.PriceRange;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.service.stock.StockProvider;
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Chart;
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.IntradayChart;
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Meta;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.QuoteResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Quotes;
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.SecurityMapper;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -24,9 +41,32 @@ public class Client implements StockProvider {
 
   static final String INTERVAL = "1d";
   static final String RANGE = "1d";
+  static final String INTRADAY_INTERVAL = "1m";
+  static final long INTRADAY_BAR_SECONDS = 60;
 
   private final YahooFinanceClient yahooFinanceClient;
 
+  /**
+   * Maximum number of quote requests in flight at the same time. Values below 2 keep the former
+   * sequential behaviour.
+   */
+  @Value("${stock-alert.yahoo.max-concurrency:4}")
+  private int maxConcurrency;
+
+  /**
+   * Number of symbols requested by one call to the multi-symbol quote endpoint. A value of 0
+   * disables the batch mode and requests the chart of each symbol separately.
+   */
+  @Value("${stock-alert.yahoo.batch-size:0}")
+  private int batchSize;
+
+  /**
+   * Requests one-minute bars per security on alert checks to detect thresholds crossed between
+   * two updates. Costs one additional request per security with alerts.
+   */
+  @Value("${stock-alert.yahoo.intraday:false}")
+  private boolean intraday;
+
   public Client(final YahooFinanceClient yahooFinanceClient) {
     this.yahooFinanceClient = yahooFinanceClient;
     log.info("YahooFinanceClient instance created: {}", yahooFinanceClient);
@@ -39,18 +79,141 @@ public class Client implements StockProvider {
       return Collections.emptyList();
     }
 
+    final Set<Security> quotes = new HashSet<>();
+    getLatest(securities, quote -> {
+      synchronized (quotes) {
+        quotes.add(quote);
+      }
+    });
+    return quotes;
+  }
+
+  /**
+   * Passes the quotes of each request on as soon as it completed, see {@link #forEachUnit}.
+   */
+  @Override
+  public void getLatest(final List<SecurityConfig> securities, final Consumer<Security> onQuote) {
+    if (securities == null || securities.isEmpty()) {
+      log.warn("No symbols provided");
+      return;
+    }
+
     final Map<String, String> exchangeBySecConf = getExchangeBySecurityConfig(securities);
-    final Set<String> symbolsToQueryFor = securities.stream().map(SecurityConfig::symbol).collect(Collectors.toSet());
+    final Set<String> symbolsToQueryFor = securities.stream().map(SecurityConfig::symbol)
+        .collect(Collectors.toCollection(LinkedHashSet::new) /* keep config order for predictable chunks */);
     log.debug("perform and process update for {}", symbolsToQueryFor);
 
-    return symbolsToQueryFor.stream()
+    final List<String> symbols = symbolsToQueryFor.stream()
         .filter(Objects::nonNull)
         .map(String::trim)
         .filter(symbol -> !symbol.isEmpty())
         .distinct()
-             .map(symbol -> fetchQuote(symbol, exchangeBySecConf))
-        .flatMap(Optional::stream)
-        .collect(Collectors.toSet());
+        .toList();
+
+    if (batchSize > 0) {
+      forEachUnit(partition(symbols, batchSize), chunk -> fetchQuotes(chunk, exchangeBySecConf), onQuote);
+      return;
+    }
+    forEachUnit(symbols, symbol -> fetchQuote(symbol, exchangeBySecConf).stream().toList(), onQuote);
+  }
+
+  @Override
+  public Optional<PriceRange> getIntradayRange(final SecurityConfig security, final LocalDateTime since) {
+    if (!intraday || security == null || security.symbol() == null || security.symbol().isBlank()) {
+      return Optional.empty();
+    }
+
+    final String symbol = security.symbol().trim();
+    try {
+      final IntradayChart chart = yahooFinanceClient.getChartBars(symbol, INTRADAY_INTERVAL, RANGE);
+      if (chart == null || chart.error() != null) {
+        log.warn("No intraday bars for symbol {}: {}", symbol, chart == null ? "empty response" : chart.error().description());
+        return Optional.empty();
+      }
+
+      // bars which ended after 'since' may contain prices not yet considered
+      final long sinceEpoch = since == null
+          ? Long.MIN_VALUE
+          : since.atZone(ZoneId.systemDefault()).toEpochSecond() - INTRADAY_BAR_SECONDS;
+      final int bars = Math.min(chart.timestamps().length, Math.min(chart.highs().length, chart.lows().length));
+      double low = Double.POSITIVE_INFINITY;
+      double high = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < bars; i++) {
+        if (chart.timestamps()[i] <= sinceEpoch) {
+          continue;
+        }
+        if (!Double.isNaN(chart.lows()[i])) {
+          low = Math.min(low, chart.lows()[i]);
+        }
+        if (!Double.isNaN(chart.highs()[i])) {
+          high = Math.max(high, chart.highs()[i]);
+        }
+      }
+      if (low > high) {
+        log.debug("No intraday bars for symbol {} since {}", symbol, since);
+        return Optional.empty();
+      }
+      log.debug("{}: intraday range {} - {} since {}", symbol, low, high, since);
+      return Optional.of(new PriceRange(low, high));
+    } catch (Exception e) {
+      log.warn("Failed to fetch intraday bars for symbol {}: {}", symbol, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Runs one request per work unit (a single symbol or a chunk of symbols). With
+   * {@link #maxConcurrency} &gt; 1 each unit is fetched on its own virtual thread while a semaphore
+   * caps the number of requests in flight, so large configs do not flood Yahoo. Errors stay
+   * isolated per unit since the fetcher never throws. The quotes of a unit are passed to
+   * {@code onQuote} on the thread which fetched them.
+   */
+  private <T> void forEachUnit(final List<T> units, final Function<T, List<Security>> fetcher, final Consumer<Security> onQuote) {
+    if (maxConcurrency < 2 || units.size() < 2) {
+      units.forEach(unit -> fetcher.apply(unit).forEach(onQuote));
+      return;
+    }
+
+    log.debug("fetch {} requests with max. {} concurrent requests", units.size(), maxConcurrency);
+    final Semaphore inFlight = new Semaphore(maxConcurrency);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<List<Security>>> pending = units.stream()
+          .map(unit -> executor.submit(() -> {
+            final List<Security> quotes;
+            inFlight.acquire();
+            try {
+              quotes = fetcher.apply(unit);
+            } finally {
+              inFlight.release();
+            }
+            quotes.forEach(onQuote);
+            return quotes;
+          }))
+          .toList();
+
+      pending.forEach(Client::await);
+    }
+  }
+
+  private static List<Security> await(final Future<List<Security>> quotes) {
+    try {
+      return quotes.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Interrupted while waiting for quote: skipped");
+      return List.of();
+    } catch (ExecutionException e) {
+      log.error("Failed to fetch quote: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+      return List.of();
+    }
+  }
+
+  private static List<List<String>> partition(final List<String> symbols, final int size) {
+    final List<List<String>> chunks = new ArrayList<>();
+    for (int from = 0; from < symbols.size(); from += size) {
+      chunks.add(symbols.subList(from, Math.min(from + size, symbols.size())));
+    }
+    return chunks;
   }
 
   /**
@@ -96,20 +259,59 @@ public class Client implements StockProvider {
 
       final Meta meta = chart.result().getFirst().meta();
       log.debug("{}: {} {} (previous close {})", meta.symbol(), meta.regularMarketPrice(), meta.currency(), meta.chartPreviousClose());
-      return Optional.of(SecurityMapper.INSTANCE.fromChartMeta(meta, resolveExchange(symbol, meta, exchangeBySymbol)));
+      return Optional.of(SecurityMapper.INSTANCE.fromChartMeta(meta, resolveExchange(symbol, meta.fullExchangeName(), exchangeBySymbol)));
     } catch (Exception e) {
       log.error("Failed to fetch quote for symbol {}: {}", symbol, e.getMessage());
       return Optional.empty();
     }
   }
 
-  private String resolveExchange(final String symbol, final Meta meta, final Map<String, String> exchangeBySymbol) {
+  /**
+   * Fetches all symbols of one chunk by a single call to the multi-symbol quote endpoint.
+   * Symbols missing in the response are logged and skipped like failing single requests.
+   */
+  private List<Security> fetchQuotes(final List<String> symbols, final Map<String, String> exchangeBySymbol) {
+    try {
+      final QuoteResponse response = yahooFinanceClient.getQuotes(String.join(",", symbols));
+      final Quotes quotes = (response == null)
+                              ? null
+                              : response.quoteResponse();
+      if (quotes == null) {
+        log.error("Empty response for symbols {}: skipped", symbols);
+        return List.of();
+      }
+
+      if (quotes.error() != null) {
+        log.error("API error for symbols {}: {} - {}", symbols, quotes.error().code(), quotes.error().description());
+        return List.of();
+      }
+
+      final List<Security> result = (quotes.result() == null)
+          ? List.of()
+          : quotes.result().stream()
+              .filter(quote -> quote != null && quote.symbol() != null && quote.regularMarketPrice() != null)
+              .map(quote -> SecurityMapper.INSTANCE.fromQuote(quote, resolveExchange(quote.symbol(), quote.fullExchangeName(), exchangeBySymbol)))
+              .toList();
+
+      if (result.size() < symbols.size()) {
+        final Set<String> found = result.stream().map(Security::symbol).collect(Collectors.toSet());
+        log.error("No result data for symbols {}: skipped", symbols.stream().filter(symbol -> !found.contains(symbol)).toList());
+      }
+      log.debug("fetched {} quotes by one batch request", result.size());
+      return result;
+    } catch (Exception e) {
+      log.error("Failed to fetch quotes for symbols {}: {}", symbols, e.getMessage());
+      return List.of();
+    }
+  }
+
+  private String resolveExchange(final String symbol, final String yahooExchangeName, final Map<String, String> exchangeBySymbol) {
     final String configured = exchangeBySymbol.get(symbol);
     if (configured != null) {
       return configured;
     }
-    log.warn("Symbol {} not found in alert config: falling back to Yahoo exchange name '{}'", symbol, meta.fullExchangeName());
-    return meta.fullExchangeName();
+    log.warn("Symbol {} not found in alert config: falling back to Yahoo exchange name '{}'", symbol, yahooExchangeName);
+    return yahooExchangeName;
   }
 
 }
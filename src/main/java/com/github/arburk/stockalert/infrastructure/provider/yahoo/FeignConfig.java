@@ -2,8 +2,15 @@ package com.github.arburk.stockalert.infrastructure.provider.yahoo;
 
 import feign.Logger;
 import feign.RequestInterceptor;
+import feign.Retryer;
+import feign.codec.Decoder;
+import feign.codec.ErrorDecoder;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.ObjectMapper;
 
 @Configuration
 public class FeignConfig {
@@ -25,4 +32,38 @@ public class FeignConfig {
         .header("Accept", "application/json");
   }
 
+  /**
+   * Pooled HTTP/2 transport with gzip support. Set {@code stock-alert.yahoo.transport} to
+   * {@code default} to fall back to Feign's default client.
+   */
+  @Bean
+  @ConditionalOnProperty(value = "stock-alert.yahoo.transport", havingValue = "jdk", matchIfMissing = true)
+  feign.Client yahooTransport(
+      @Value("${spring.cloud.openfeign.client.config.yahooFinanceClient.connect-timeout:5000}") long connectTimeoutMillis) {
+    return new JdkHttpTransport(Duration.ofMillis(connectTimeoutMillis));
+  }
+
+  @Bean
+  RequestInterceptor yahooRateLimitInterceptor(AdaptiveRateLimiter yahooRateLimiter) {
+    return requestTemplate -> yahooRateLimiter.acquire();
+  }
+
+  @Bean
+  Decoder yahooDecoder(ObjectMapper objectMapper) {
+    return new YahooResponseDecoder(objectMapper);
+  }
+
+  @Bean
+  ErrorDecoder yahooErrorDecoder(AdaptiveRateLimiter yahooRateLimiter) {
+    return new ThrottlingErrorDecoder(yahooRateLimiter);
+  }
+
+  @Bean
+  Retryer yahooRetryer(
+      @Value("${stock-alert.yahoo.retry.max-attempts:3}") int maxAttempts,
+      @Value("${stock-alert.yahoo.retry.initial-backoff-ms:500}") long initialBackoffMillis,
+      @Value("${stock-alert.yahoo.retry.max-backoff-ms:10000}") long maxBackoffMillis) {
+    return new JitteredRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+  }
+
 }
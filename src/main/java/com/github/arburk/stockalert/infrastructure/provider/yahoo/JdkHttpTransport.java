@@ -0,0 +1,140 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import feign.Request;
+import feign.Response;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Feign transport based on the JDK {@link HttpClient}. A single client instance is shared by all
+ * requests, so connections are pooled and kept alive across the symbols of a run and HTTP/2
+ * multiplexes concurrent requests over one connection. Responses are requested gzip compressed
+ * and decompressed transparently. The read timeout of Feign's {@link Request.Options} is applied
+ * per request, the connect timeout is fixed for the client.
+ */
+@Slf4j
+class JdkHttpTransport implements feign.Client, AutoCloseable {
+
+  static final String ACCEPT_ENCODING = "Accept-Encoding";
+  static final String CONTENT_ENCODING = "Content-Encoding";
+  static final String CONTENT_LENGTH = "Content-Length";
+  static final String GZIP = "gzip";
+
+  /**
+   * Headers managed by {@link HttpClient} which must not be set on a request.
+   */
+  private static final Set<String> RESTRICTED_HEADERS = caseInsensitive(Set.of(
+      "connection", "content-length", "expect", "host", "upgrade"));
+
+  private final HttpClient httpClient;
+
+  JdkHttpTransport(final Duration connectTimeout) {
+    this(HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(connectTimeout)
+        .followRedirects(HttpClient.Redirect.NORMAL)
+        .build());
+    log.info("Yahoo transport: JDK HttpClient (HTTP/2, connect timeout {})", connectTimeout);
+  }
+
+  JdkHttpTransport(final HttpClient httpClient) {
+    this.httpClient = httpClient;
+  }
+
+  @Override
+  public Response execute(final Request request, final Request.Options options) throws IOException {
+    final HttpResponse<InputStream> httpResponse;
+    try {
+      httpResponse = httpClient.send(toHttpRequest(request, options), HttpResponse.BodyHandlers.ofInputStream());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + request.url());
+    }
+    return toResponse(request, httpResponse);
+  }
+
+  private static HttpRequest toHttpRequest(final Request request, final Request.Options options) {
+    final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.url()))
+        .timeout(Duration.of(options.readTimeout(), options.readTimeoutUnit().toChronoUnit()))
+        .method(request.httpMethod().name(), request.body() == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofByteArray(request.body()));
+
+    boolean acceptEncodingSet = false;
+    for (final Map.Entry<String, Collection<String>> header : request.headers().entrySet()) {
+      if (RESTRICTED_HEADERS.contains(header.getKey())) {
+        continue;
+      }
+      acceptEncodingSet |= ACCEPT_ENCODING.equalsIgnoreCase(header.getKey());
+      header.getValue().forEach(value -> builder.header(header.getKey(), value));
+    }
+    if (!acceptEncodingSet) {
+      builder.header(ACCEPT_ENCODING, GZIP);
+    }
+    return builder.build();
+  }
+
+  private static Response toResponse(final Request request, final HttpResponse<InputStream> httpResponse) throws IOException {
+    final Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    httpResponse.headers().map().forEach(headers::put);
+
+    final boolean gzipped = headers.getOrDefault(CONTENT_ENCODING, Set.of()).stream().anyMatch(GZIP::equalsIgnoreCase);
+    final OptionalLong contentLength = httpResponse.headers().firstValueAsLong(CONTENT_LENGTH);
+    InputStream body = httpResponse.body();
+    Integer length = contentLength.isPresent() ? (int) contentLength.getAsLong() : null;
+    if (gzipped) {
+      // body is handed out decompressed, so the encoding related headers no longer apply
+      body = decompressed(body);
+      length = null;
+      headers.remove(CONTENT_ENCODING);
+      headers.remove(CONTENT_LENGTH);
+    }
+
+    return Response.builder()
+        .request(request)
+        .protocolVersion(httpResponse.version() == HttpClient.Version.HTTP_2
+            ? Request.ProtocolVersion.HTTP_2
+            : Request.ProtocolVersion.HTTP_1_1)
+        .status(httpResponse.statusCode())
+        .reason("")
+        .headers(headers)
+        .body(body, length)
+        .build();
+  }
+
+  private static InputStream decompressed(final InputStream body) throws IOException {
+    try {
+      return new GZIPInputStream(body);
+    } catch (EOFException e) {
+      // e.g. HEAD requests or 304 responses announce the encoding without providing a body
+      body.close();
+      return InputStream.nullInputStream();
+    }
+  }
+
+  @Override
+  public void close() {
+    httpClient.close();
+  }
+
+  private static Set<String> caseInsensitive(final Set<String> values) {
+    final Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    result.addAll(values);
+    return result;
+  }
+}
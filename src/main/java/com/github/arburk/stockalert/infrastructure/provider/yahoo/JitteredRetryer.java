@@ -0,0 +1,59 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import feign.RetryableException;
+import feign.Retryer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter between {@code backoff/2} and {@code backoff}, so concurrent
+ * requests do not retry in lockstep. A {@code Retry-After} provided by Yahoo is honoured as lower
+ * bound as long as it does not exceed the maximum backoff.
+ */
+@Slf4j
+class JitteredRetryer implements Retryer {
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private int attempt = 1;
+
+  JitteredRetryer(final int maxAttempts, final long initialBackoffMillis, final long maxBackoffMillis) {
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+    this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+  }
+
+  @Override
+  public void continueOrPropagate(final RetryableException e) {
+    if (attempt++ >= maxAttempts) {
+      throw e;
+    }
+
+    final long backoffMillis = nextBackoffMillis(e.retryAfter());
+    log.debug("Retry attempt {} of {} in {} ms: {}", attempt, maxAttempts, backoffMillis, e.getMessage());
+    try {
+      Thread.sleep(backoffMillis);
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+  }
+
+  long nextBackoffMillis(final Long retryAfterEpochMillis) {
+    final int exponent = Math.min(attempt - 2, 30);
+    final long exponential = Math.min(maxBackoffMillis, initialBackoffMillis << Math.max(0, exponent));
+    final long jittered = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+    if (retryAfterEpochMillis == null) {
+      return jittered;
+    }
+    final long untilRetryAfter = retryAfterEpochMillis - System.currentTimeMillis();
+    return Math.max(jittered, Math.min(untilRetryAfter, maxBackoffMillis));
+  }
+
+  @Override
+  public Retryer clone() {
+    return new JitteredRetryer(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import feign.RetryableException;
+import feign.Response;
+import feign.codec.ErrorDecoder;
+import io.micrometer.common.util.StringUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+
+/**
+ * Turns throttling responses of Yahoo (HTTP 429) and temporary unavailability (HTTP 503) into
+ * {@link RetryableException}s and reports throttling to the {@link AdaptiveRateLimiter}.
+ * All other responses are decoded by Feign's default.
+ */
+class ThrottlingErrorDecoder implements ErrorDecoder {
+
+  static final int TOO_MANY_REQUESTS = 429;
+  static final int SERVICE_UNAVAILABLE = 503;
+
+  private final ErrorDecoder delegate = new ErrorDecoder.Default();
+  private final AdaptiveRateLimiter rateLimiter;
+
+  ThrottlingErrorDecoder(final AdaptiveRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public Exception decode(final String methodKey, final Response response) {
+    final Exception decoded = delegate.decode(methodKey, response);
+    final int status = response.status();
+    if (status != TOO_MANY_REQUESTS && status != SERVICE_UNAVAILABLE) {
+      return decoded;
+    }
+
+    final Duration retryAfter = parseRetryAfter(getRetryAfterHeader(response));
+    if (status == TOO_MANY_REQUESTS) {
+      rateLimiter.onThrottled(retryAfter);
+    }
+    if (decoded instanceof RetryableException) {
+      return decoded;
+    }
+    return new RetryableException(status, decoded.getMessage(), response.request().httpMethod(), decoded,
+        retryAfter == null ? null : System.currentTimeMillis() + retryAfter.toMillis(), response.request());
+  }
+
+  private static String getRetryAfterHeader(final Response response) {
+    final Collection<String> values = response.headers() == null ? null : response.headers().get("Retry-After");
+    return values == null || values.isEmpty()
+        ? null
+        : values.iterator().next();
+  }
+
+  /**
+   * Retry-After is either given in seconds or as HTTP date.
+   */
+  static Duration parseRetryAfter(final String retryAfter) {
+    if (StringUtils.isBlank(retryAfter)) {
+      return null;
+    }
+    final String value = retryAfter.trim();
+    try {
+      return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      // not in seconds -> try HTTP date below
+    }
+    try {
+      final Duration untilDate = Duration.between(Instant.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+      return untilDate.isNegative() ? Duration.ZERO : untilDate;
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package com.github.arburk.stockalert.infrastructure.provider.yahoo;
 
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.IntradayChart;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.QuoteResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,4 +18,25 @@ public interface YahooFinanceClient {
       @RequestParam("range") String range
   );
 
+  /**
+   * Same endpoint as {@link #getChart(String, String, String)}, but decoded including the bars of
+   * the given interval, e.g. one-minute bars of the current day.
+   */
+  @GetMapping("/v8/finance/chart/{symbol}")
+  IntradayChart getChartBars(
+      @PathVariable("symbol") String symbol,
+      @RequestParam("interval") String interval,
+      @RequestParam("range") String range
+  );
+
+  /**
+   * Multi-symbol quote endpoint returning the latest quote of all given symbols in a single call.
+   *
+   * @param symbols comma separated list of Yahoo tickers, e.g. "NESN.SW,MMM"
+   */
+  @GetMapping("/v7/finance/quote")
+  QuoteResponse getQuotes(
+      @RequestParam("symbols") String symbols
+  );
+
 }
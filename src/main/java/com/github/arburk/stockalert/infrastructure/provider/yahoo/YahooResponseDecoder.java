@@ -0,0 +1,360 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Chart;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartError;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResult;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.IntradayChart;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Meta;
+import feign.Response;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Decodes chart responses by a streaming parser reading only the {@link Meta} fields of the first
+ * result and the error. Parsing stops as soon as these are available, so the {@code timestamp}
+ * and {@code indicators} arrays following {@code meta} are neither tokenized nor data-bound; the
+ * rest of the body is drained unparsed, so the connection can be reused. Parser buffers are
+ * recycled by Jackson across calls. Intraday charts are read the same way into primitive arrays.
+ * All other types are data-bound as usual.
+ */
+class YahooResponseDecoder implements Decoder {
+
+  /**
+   * A trading day has up to 510 one-minute bars (e.g. 8.5 hours on SIX).
+   */
+  private static final int INITIAL_ARRAY_SIZE = 512;
+
+  private final ObjectMapper objectMapper;
+
+  private record Bars(double[] highs, double[] lows) {
+  }
+
+  YahooResponseDecoder(final ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public Object decode(final Response response, final Type type) throws IOException {
+    if (response.body() == null) {
+      return null;
+    }
+    try (InputStream body = response.body().asInputStream()) {
+      if (type == ChartResponse.class) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+          final ChartResponse chartResponse = readChartResponse(parser);
+          drain(body);
+          return chartResponse;
+        }
+      }
+      if (type == IntradayChart.class) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+          final IntradayChart intradayChart = readIntradayChart(parser);
+          drain(body);
+          return intradayChart;
+        }
+      }
+      return objectMapper.readValue(body, objectMapper.constructType(type));
+    } catch (JacksonException e) {
+      throw new DecodeException(response.status(), "Failed to decode %s: %s".formatted(type.getTypeName(), e.getMessage()),
+          response.request(), e);
+    }
+  }
+
+  /**
+   * Reads what the parser left of the body as raw bytes. Closing a response with unread content
+   * closes its connection instead of returning it to the pool.
+   */
+  private static void drain(final InputStream body) throws IOException {
+    body.transferTo(OutputStream.nullOutputStream());
+  }
+
+  ChartResponse readChartResponse(final JsonParser parser) {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if ("chart".equals(name)) {
+        return new ChartResponse(readChart(parser) /* nothing of interest after chart */);
+      }
+      parser.skipChildren();
+    }
+    return new ChartResponse(null);
+  }
+
+  private Chart readChart(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+    List<ChartResult> result = null;
+    ChartError error = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      switch (name) {
+        case "result" -> result = readFirstResult(parser);
+        case "error" -> error = readError(parser);
+        default -> parser.skipChildren();
+      }
+      if (result != null && !result.isEmpty() && result.getFirst().meta() != null) {
+        // Yahoo either provides a result or an error: stop reading once meta is present
+        return new Chart(result, error);
+      }
+    }
+    return new Chart(result, error);
+  }
+
+  /**
+   * Only the first result is used by the client, further results are not read.
+   */
+  private List<ChartResult> readFirstResult(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return null;
+    }
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return List.of();
+    }
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if ("meta".equals(name)) {
+        return List.of(new ChartResult(readMeta(parser)));
+      }
+      parser.skipChildren();
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY && parser.currentToken() != null) {
+      parser.skipChildren();
+    }
+    return List.of(new ChartResult(null));
+  }
+
+  /**
+   * Reads meta, timestamps and the high/low prices of the first result. Open, close and volume
+   * are skipped.
+   */
+  IntradayChart readIntradayChart(final JsonParser parser) {
+    if (parser.nextToken() != JsonToken.START_OBJECT || !moveToProperty(parser, "chart")
+        || parser.currentToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    Meta meta = null;
+    long[] timestamps = new long[0];
+    double[] highs = new double[0];
+    double[] lows = new double[0];
+    ChartError error = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if ("error".equals(name)) {
+        error = readError(parser);
+        continue;
+      }
+      if (!"result".equals(name) || parser.currentToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+      while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+        final String resultProperty = parser.currentName();
+        parser.nextToken();
+        switch (resultProperty) {
+          case "meta" -> meta = readMeta(parser);
+          case "timestamp" -> timestamps = readLongs(parser);
+          case "indicators" -> {
+            final Bars bars = readBars(parser);
+            highs = bars.highs();
+            lows = bars.lows();
+          }
+          default -> parser.skipChildren();
+        }
+      }
+      // further results are not of interest
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        parser.skipChildren();
+      }
+    }
+    return new IntradayChart(meta, timestamps, highs, lows, error);
+  }
+
+  /**
+   * Advances within the current object to the value of the given property.
+   *
+   * @return false if the object does not contain the property, the parser then points to its end
+   */
+  private static boolean moveToProperty(final JsonParser parser, final String property) {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return false;
+    }
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if (property.equals(name)) {
+        return true;
+      }
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * Reads the high and low prices of the first quote within {@code indicators}.
+   */
+  private static Bars readBars(final JsonParser parser) {
+    double[] highs = new double[0];
+    double[] lows = new double[0];
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return new Bars(highs, lows);
+    }
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      if (!"quote".equals(name) || parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      boolean first = true;
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        if (!first || parser.currentToken() != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        first = false;
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+          final String quoteProperty = parser.currentName();
+          parser.nextToken();
+          switch (quoteProperty) {
+            case "high" -> highs = readDoubles(parser);
+            case "low" -> lows = readDoubles(parser);
+            default -> parser.skipChildren();
+          }
+        }
+      }
+    }
+    return new Bars(highs, lows);
+  }
+
+  private static long[] readLongs(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return new long[0];
+    }
+    long[] values = new long[INITIAL_ARRAY_SIZE];
+    int size = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = parser.currentToken().isNumeric() ? parser.getValueAsLong() : 0;
+    }
+    return Arrays.copyOf(values, size);
+  }
+
+  private static double[] readDoubles(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return new double[0];
+    }
+    double[] values = new double[INITIAL_ARRAY_SIZE];
+    int size = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = parser.currentToken().isNumeric() ? parser.getDoubleValue() : Double.NaN;
+    }
+    return Arrays.copyOf(values, size);
+  }
+
+  private Meta readMeta(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+    String currency = null;
+    String symbol = null;
+    String exchangeName = null;
+    String fullExchangeName = null;
+    Double regularMarketPrice = null;
+    Double chartPreviousClose = null;
+    Double previousClose = null;
+    Long regularMarketTime = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      switch (name) {
+        case "currency" -> currency = readString(parser);
+        case "symbol" -> symbol = readString(parser);
+        case "exchangeName" -> exchangeName = readString(parser);
+        case "fullExchangeName" -> fullExchangeName = readString(parser);
+        case "regularMarketPrice" -> regularMarketPrice = readDouble(parser);
+        case "chartPreviousClose" -> chartPreviousClose = readDouble(parser);
+        case "previousClose" -> previousClose = readDouble(parser);
+        case "regularMarketTime" -> regularMarketTime = readLong(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return new Meta(currency, symbol, exchangeName, fullExchangeName, regularMarketPrice, chartPreviousClose, previousClose,
+        regularMarketTime);
+  }
+
+  private ChartError readError(final JsonParser parser) {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+    String code = null;
+    String description = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      final String name = parser.currentName();
+      parser.nextToken();
+      switch (name) {
+        case "code" -> code = readString(parser);
+        case "description" -> description = readString(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return new ChartError(code, description);
+  }
+
+  private static String readString(final JsonParser parser) {
+    if (!parser.currentToken().isScalarValue()) {
+      parser.skipChildren();
+      return null;
+    }
+    return parser.currentToken() == JsonToken.VALUE_NULL
+        ? null
+        : parser.getValueAsString();
+  }
+
+  private static Double readDouble(final JsonParser parser) {
+    if (!parser.currentToken().isNumeric()) {
+      parser.skipChildren();
+      return null;
+    }
+    return parser.getDoubleValue();
+  }
+
+  private static Long readLong(final JsonParser parser) {
+    if (!parser.currentToken().isNumeric()) {
+      parser.skipChildren();
+      return null;
+    }
+    return parser.getValueAsLong();
+  }
+}
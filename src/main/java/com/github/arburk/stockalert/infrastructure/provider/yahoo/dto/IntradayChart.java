@@ -0,0 +1,15 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo.dto;
+
+/**
+ * First result of a chart response including its bars. The arrays share the same index, missing
+ * prices are {@link Double#NaN}.
+ *
+ * @param timestamps start of each bar in epoch seconds
+ */
+public record IntradayChart(
+    Meta meta,
+    long[] timestamps,
+    double[] highs,
+    double[] lows,
+    ChartError error
+) {}
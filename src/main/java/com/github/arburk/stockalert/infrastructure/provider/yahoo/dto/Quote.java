@@ -0,0 +1,20 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Quote(
+    String symbol,
+    String currency,
+    String exchange,
+    String fullExchangeName,
+    Double regularMarketPrice,
+    Double regularMarketPreviousClose,
+    Long regularMarketTime
+) {
+
+  public Meta asMeta() {
+    return new Meta(currency, symbol, exchange, fullExchangeName,
+        regularMarketPrice, regularMarketPreviousClose, regularMarketPreviousClose, regularMarketTime);
+  }
+}
@@ -0,0 +1,8 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record QuoteResponse(
+    Quotes quoteResponse
+) {}
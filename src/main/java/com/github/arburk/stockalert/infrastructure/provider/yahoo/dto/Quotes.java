@@ -0,0 +1,11 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Quotes(
+    List<Quote> result,
+    ChartError error
+) {}
@@ -26,6 +26,15 @@ public interface SecurityMapper {
   @Mapping(target = "alertLog", ignore = true)
   Security fromChartMeta(Meta meta, String exchange);
 
+  /**
+   * A batch quote carries the same figures as the chart meta, so it is mapped the very same way.
+   */
+  default Security fromQuote(Quote quote, String exchange) {
+    return quote == null
+        ? null
+        : fromChartMeta(quote.asMeta(), exchange);
+  }
+
   /**
    * Domain object expects percentage value between -1 and 1 related to 100%.
    * Yahoo meta does not provide a reliable change percentage, so it is derived from
@@ -4,23 +4,35 @@ import com.github.arburk.stockalert.application.domain.config.AlertConfig;
 import com.github.arburk.stockalert.application.domain.config.NotificationChannel;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -111,6 +123,44 @@ class ApplicationConfigTest {
       assertFalse(cause.getMessage().startsWith("unknown protocol: c"));
     }
 
+    @Test
+    void url_ConnectionKeptAliveAfterErrorAndNotModified() throws IOException {
+      final byte[] body = Files.readAllBytes(EXAMPLE);
+      final byte[] error = "temporarily unavailable".getBytes(StandardCharsets.UTF_8);
+      final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/config.json", exchange -> {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        if (clientPorts.size() == 2) {
+          exchange.sendResponseHeaders(503, error.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(error);
+          }
+          return;
+        }
+        if (clientPorts.size() > 2) {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      server.start();
+      testee.setConfigUrl("http://localhost:%d/config.json".formatted(server.getAddress().getPort()));
+
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+      assertSame(first, testee.getStockAlertsConfig());
+      assertSame(first, testee.getStockAlertsConfig());
+      assertSame(first, testee.getStockAlertsConfig());
+
+      assertEquals(4, clientPorts.size());
+      assertEquals(1, clientPorts.stream().distinct().count(), "one connection for all reloads " + clientPorts);
+    }
+
     private void assertConfigExample(final StockAlertsConfig stockAlertsConfig) {
       assertNotNull(stockAlertsConfig);
       assertEquals("0.2.1-SNAPSHOT", stockAlertsConfig.version());
@@ -151,4 +201,142 @@ class ApplicationConfigTest {
       );
     }
   }
-}
\ No newline at end of file
+
+  @Nested
+  class CachedConfigTest {
+
+    private static final Path EXAMPLE = Path.of("src/main/resources/config-example.json");
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    @BeforeEach
+    void enableCache() {
+      testee.setConfigCache(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+      if (server != null) {
+        server.stop(0);
+      }
+    }
+
+    @Test
+    void unchangedFile_NotParsedAgain() throws IOException {
+      final Path config = Files.copy(EXAMPLE, tempDir.resolve("config.json"));
+      testee.setConfigUrl(config.toUri().toString());
+
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+
+      assertSame(first, testee.getStockAlertsConfig());
+    }
+
+    @Test
+    void changedFile_Reloaded() throws IOException {
+      final Path config = Files.copy(EXAMPLE, tempDir.resolve("config.json"));
+      testee.setConfigUrl(config.toString());
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+
+      Files.writeString(config, Files.readString(config).replace("0.2.1-SNAPSHOT", "0.3.0"));
+      Files.setLastModifiedTime(config, FileTime.fromMillis(Files.getLastModifiedTime(config).toMillis() + 2_000));
+
+      final StockAlertsConfig reloaded = testee.getStockAlertsConfig();
+      assertNotSame(first, reloaded);
+      assertEquals("0.3.0", reloaded.version());
+    }
+
+    @Test
+    void brokenReload_LastLoadedKept() throws IOException {
+      final Path config = Files.copy(EXAMPLE, tempDir.resolve("config.json"));
+      testee.setConfigUrl(config.toUri().toString());
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+
+      Files.writeString(config, "{ \"stock-alert-config\": ");
+
+      assertSame(first, testee.getStockAlertsConfig());
+    }
+
+    @Test
+    void initialLoadFailing_Throws() {
+      testee.setConfigUrl(tempDir.resolve("missing.json").toString());
+
+      assertThrows(IllegalArgumentException.class, () -> testee.getStockAlertsConfig());
+    }
+
+    @Test
+    void url_ConditionalRequest() throws IOException {
+      final byte[] body = Files.readAllBytes(EXAMPLE);
+      final List<String> receivedETags = new CopyOnWriteArrayList<>();
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/config.json", exchange -> {
+        final String eTag = exchange.getRequestHeaders().getFirst("If-None-Match");
+        receivedETags.add(String.valueOf(eTag));
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        if ("\"v1\"".equals(eTag)) {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      server.start();
+      testee.setConfigUrl("http://localhost:%d/config.json".formatted(server.getAddress().getPort()));
+
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+      assertConfigExample(first);
+
+      assertSame(first, testee.getStockAlertsConfig());
+      assertEquals(List.of("null", "\"v1\""), receivedETags);
+    }
+
+    @Test
+    void url_ConnectionKeptAliveAfterErrorAndNotModified() throws IOException {
+      final byte[] body = Files.readAllBytes(EXAMPLE);
+      final byte[] error = "temporarily unavailable".getBytes(StandardCharsets.UTF_8);
+      final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/config.json", exchange -> {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        if (clientPorts.size() == 2) {
+          exchange.sendResponseHeaders(503, error.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(error);
+          }
+          return;
+        }
+        if (clientPorts.size() > 2) {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      });
+      server.start();
+      testee.setConfigUrl("http://localhost:%d/config.json".formatted(server.getAddress().getPort()));
+
+      final StockAlertsConfig first = testee.getStockAlertsConfig();
+      assertSame(first, testee.getStockAlertsConfig());
+      assertSame(first, testee.getStockAlertsConfig());
+      assertSame(first, testee.getStockAlertsConfig());
+
+      assertEquals(4, clientPorts.size());
+      assertEquals(1, clientPorts.stream().distinct().count(), "one connection for all reloads " + clientPorts);
+    }
+
+    private void assertConfigExample(final StockAlertsConfig stockAlertsConfig) {
+      assertNotNull(stockAlertsConfig);
+      assertEquals("0.2.1-SNAPSHOT", stockAlertsConfig.version());
+      assertEquals(1, stockAlertsConfig.securities().size());
+    }
+  }
+}
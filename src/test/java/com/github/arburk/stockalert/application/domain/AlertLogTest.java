@@ -0,0 +1,86 @@
+package com.github.arburk.stockalert.application.domain;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertLogTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 2, 10, 0);
+
+  @Test
+  void latestPerThresholdAndUnitKept() {
+    final AlertLog testee = new AlertLog(List.of(
+        new Alert(NOW.minusHours(1), 100., "CHF"),
+        new Alert(NOW.minusHours(2), 100., "CHF"),
+        new Alert(NOW.minusHours(3), 100., "EUR")));
+
+    assertEquals(2, testee.size());
+    assertEquals(NOW.minusHours(1), testee.find(new Alert(null, 100., "CHF")).orElseThrow().timestamp());
+    assertFalse(testee.add(new Alert(NOW.minusDays(1), 100., "CHF")));
+    assertTrue(testee.add(new Alert(NOW, 100., "CHF")));
+    assertEquals(NOW, testee.find(new Alert(null, 100., "CHF")).orElseThrow().timestamp());
+    assertTrue(testee.find(new Alert(null, 101., "CHF")).isEmpty());
+    assertTrue(testee.contains(new Alert(null, 100., "EUR")));
+  }
+
+  @Test
+  void replacedAlertMovesToEnd() {
+    final AlertLog testee = new AlertLog(List.of(new Alert(NOW.minusHours(2), 1., "CHF"), new Alert(NOW.minusHours(1), 2., "CHF")));
+
+    testee.add(new Alert(NOW, 1., "CHF"));
+
+    assertEquals(List.of(2., 1.), testee.stream().map(Alert::threshold).toList());
+  }
+
+  @Test
+  void latestPercentageAlertKept() {
+    final AlertLog testee = new AlertLog(List.of(new Alert(NOW.minusHours(2), .052, "%"), new Alert(NOW.minusHours(1), -.061, "%")));
+    testee.add(new Alert(NOW, 100., "CHF"));
+
+    assertFalse(testee.add(new Alert(NOW.minusDays(1), .07, "%")));
+    assertTrue(testee.add(new Alert(NOW, .055, "%")));
+
+    assertEquals(List.of(100., .055), testee.stream().map(Alert::threshold).toList());
+    assertEquals(.055, testee.find(new Alert(null, .2, "%")).orElseThrow().threshold());
+  }
+
+  @Test
+  void mostRecent() {
+    final AlertLog testee = new AlertLog();
+    assertTrue(testee.mostRecent().isEmpty());
+
+    testee.add(new Alert(NOW.minusHours(1), 1., "CHF"));
+    testee.add(new Alert(NOW, 2., "CHF"));
+    testee.add(new Alert(NOW.minusHours(2), 3., "CHF"));
+    assertEquals(2., testee.mostRecent().orElseThrow().threshold());
+
+    testee.remove(new Alert(null, 2., "CHF"));
+    assertEquals(1., testee.mostRecent().orElseThrow().threshold());
+  }
+
+  @Test
+  void pruneByAgeAndCount() {
+    final AlertLog testee = new AlertLog(List.of(
+        new Alert(NOW.minusDays(40), 1., "CHF"),
+        new Alert(NOW.minusDays(3), 2., "CHF"),
+        new Alert(NOW.minusDays(1), 3., "CHF"),
+        new Alert(NOW, 4., "CHF")));
+
+    assertEquals(0, testee.prune(null, 0));
+    assertEquals(1, testee.prune(NOW.minusDays(30), 0));
+    assertEquals(1, testee.prune(null, 2));
+    assertEquals(List.of(3., 4.), testee.stream().map(Alert::threshold).toList());
+    assertEquals(4., testee.mostRecent().orElseThrow().threshold());
+  }
+
+  @Test
+  void hashCodeConsistentWithEquals() {
+    assertEquals(new Alert(NOW, 1., "CHF"), new Alert(NOW.minusDays(1), 1., "CHF"));
+    assertEquals(new Alert(NOW, 1., "CHF").hashCode(), new Alert(NOW.minusDays(1), 1., "CHF").hashCode());
+  }
+}
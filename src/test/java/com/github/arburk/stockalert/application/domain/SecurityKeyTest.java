@@ -0,0 +1,40 @@
+package com.github.arburk.stockalert.application.domain;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SecurityKeyTest {
+
+  @Test
+  void sameSymbolAndExchange_Equal() {
+    final SecurityKey fromConfig = SecurityKey.of(new SecurityConfig("NESN.SW", "Switzerland", "CH0038863350", null, null, null));
+    final SecurityKey fromSecurity = SecurityKey.of(new Security("NESN.SW", 78.5, "CHF", null, null, "Switzerland", null));
+
+    assertEquals(fromConfig, fromSecurity);
+    assertEquals(fromConfig.hashCode(), SecurityKey.of("NESN.SW", "Switzerland").hashCode());
+  }
+
+  @Test
+  void exchangeIsPartOfIdentity() {
+    assertNotEquals(SecurityKey.of("ABB", "Switzerland"), SecurityKey.of("ABB", "NYSE"));
+    assertNotEquals(SecurityKey.of("ABB", null), SecurityKey.of("ABB", "NYSE"));
+    assertEquals(SecurityKey.of("ABB", null), SecurityKey.of("ABB", null));
+  }
+
+  @Test
+  void usableAsMapKey() {
+    final Map<SecurityKey, String> map = Map.of(SecurityKey.of("MMM", "NYSE"), "3M");
+
+    assertEquals("3M", map.get(SecurityKey.of(new SecurityConfig("MMM", "NYSE", null, null, null, null))));
+  }
+
+  @Test
+  void formattedLikeFormerStringKey() {
+    assertEquals("NESN.SW::Switzerland", SecurityKey.of("NESN.SW", "Switzerland").toString());
+    assertEquals("HELN::null", SecurityKey.of("HELN", null).toString());
+  }
+}
@@ -0,0 +1,69 @@
+package com.github.arburk.stockalert.application.domain.config;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertPlanTest {
+
+  private static final SecurityConfig NESN = new SecurityConfig("NESN.SW", "Switzerland", null, null, "10", null);
+  private static final SecurityConfig BALN = new SecurityConfig("BALN.SW", "Switzerland", null, null, null,
+      List.of(new AlertConfig(200, "email", null)));
+  private static final NotificationChannel MAIL = new NotificationChannel("Email", "me@here.com, you@there.com ; us@everywhere.com", true, true);
+
+  private final StockAlertsConfig config = new StockAlertsConfig("1", "6h", "5%", List.of(MAIL), List.of(NESN, BALN));
+
+  @Test
+  void valuesResolved() {
+    final AlertPlan plan = AlertPlan.compile(config);
+
+    assertSame(config, plan.config());
+    assertEquals(Duration.ofHours(6), plan.silenceDuration());
+    assertEquals(.1, plan.percentageAlert(NESN));
+    assertEquals(.05, plan.percentageAlert(BALN));
+    assertArrayEquals(new String[] {"me@here.com", "you@there.com", "us@everywhere.com"}, plan.recipients("email").orElseThrow());
+    assertTrue(plan.recipients("sms").isEmpty());
+    assertSame(BALN, plan.findConfig(new Security("BALN.SW", 190., "CHF", null, null, "Switzerland", null)));
+    assertNull(plan.findConfig(new Security("BALN.SW", 190., "CHF", null, null, "NYSE", null)));
+    assertSame(plan.ladder(BALN), plan.ladder(BALN));
+    assertEquals(1, plan.ladder(BALN).size());
+    assertEquals(0, plan.ladder(NESN).size());
+  }
+
+  @Test
+  void securityNotInPlan_ResolvedOnDemand() {
+    final AlertPlan plan = AlertPlan.compile(config);
+
+    assertEquals(.05, plan.percentageAlert(new SecurityConfig("ABBN.SW", "Switzerland", null, null, null, null)));
+    assertEquals(.2, plan.percentageAlert(new SecurityConfig("NESN.SW", "Switzerland", null, null, "20%", null)));
+    assertEquals(2, plan.ladder(new SecurityConfig("BALN.SW", "Switzerland", null, null, null,
+        List.of(new AlertConfig(200, "email", null), new AlertConfig(210, "email", null)))).size());
+  }
+
+  @Test
+  void notPositiveGlobalPercentage_Ignored() {
+    final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, "0", null, List.of(BALN)));
+
+    assertNull(plan.percentageAlert(BALN));
+    assertEquals(Duration.ZERO, plan.silenceDuration());
+  }
+
+  @Test
+  void invalidConfig_Rejected() {
+    assertThrows(IllegalArgumentException.class, () -> AlertPlan.compile(null));
+    assertThrows(IllegalArgumentException.class, () -> AlertPlan.compile(new StockAlertsConfig(null, "2 days", null, null, null)));
+    assertThrows(IllegalArgumentException.class, () -> AlertPlan.compile(new StockAlertsConfig(null, null, "five", null, null)));
+    assertThrows(IllegalArgumentException.class, () -> AlertPlan.compile(new StockAlertsConfig(null, null, null, null,
+        List.of(new SecurityConfig("NESN.SW", null, null, null, "ten", null)))));
+    assertThrows(IllegalArgumentException.class, () -> AlertPlan.compile(new StockAlertsConfig(null, null, null, null,
+        List.of(new SecurityConfig(" ", null, null, null, null, null)))));
+  }
+}
@@ -0,0 +1,72 @@
+package com.github.arburk.stockalert.application.domain.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ThresholdLadderTest {
+
+  private static final AlertConfig A_90 = new AlertConfig(90, "mail", "a");
+  private static final AlertConfig B_100 = new AlertConfig(100, "mail", "b");
+  private static final AlertConfig C_100 = new AlertConfig(100, "sms", "c");
+  private static final AlertConfig D_110 = new AlertConfig(110, "mail", "d");
+
+  private final ThresholdLadder ladder = ThresholdLadder.of(List.of(D_110, B_100, A_90, C_100));
+
+  @Test
+  void boundsAreInclusive() {
+    assertEquals(List.of(B_100, C_100), crossed(100, 100, true));
+    assertEquals(List.of(A_90, B_100, C_100, D_110), crossed(90, 110, true));
+    assertEquals(List.of(), crossed(100.01, 109.99, true));
+  }
+
+  @Test
+  void orderFollowsDirection() {
+    assertEquals(List.of(A_90, B_100, C_100), crossed(85, 105, true));
+    assertEquals(List.of(C_100, B_100, A_90), crossed(85, 105, false));
+  }
+
+  @Test
+  void outsideOfLadder() {
+    assertEquals(List.of(), crossed(10, 20, true));
+    assertEquals(List.of(), crossed(111, 200, false));
+    assertEquals(List.of(), crossed(110, 90, true));
+  }
+
+  @Test
+  void distanceToNearest() {
+    assertEquals(5., ladder.distanceToNearest(95));
+    assertEquals(0., ladder.distanceToNearest(100));
+    assertEquals(10., ladder.distanceToNearest(80));
+    assertEquals(2., ladder.distanceToNearest(112));
+    assertEquals(Double.POSITIVE_INFINITY, ThresholdLadder.of(List.of()).distanceToNearest(100));
+  }
+
+  @Test
+  void binarySearchBounds() {
+    assertEquals(0, ladder.firstAtOrAbove(0));
+    assertEquals(1, ladder.firstAtOrAbove(100));
+    assertEquals(3, ladder.firstAbove(100));
+    assertEquals(4, ladder.firstAbove(110));
+    assertEquals(4, ladder.size());
+  }
+
+  @Test
+  void nullAndEmptyAlerts() {
+    final List<AlertConfig> withNull = new ArrayList<>();
+    withNull.add(null);
+    withNull.add(A_90);
+
+    assertEquals(0, ThresholdLadder.of(null).size());
+    assertEquals(0, ThresholdLadder.of(List.of()).size());
+    assertEquals(1, ThresholdLadder.of(withNull).size());
+  }
+
+  private List<AlertConfig> crossed(final double low, final double high, final boolean ascending) {
+    final List<AlertConfig> result = new ArrayList<>();
+    ladder.forEachCrossed(low, high, ascending, result::add);
+    return result;
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.arburk.stockalert.application.domain.market;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeCalendarTest {
+
+  @ParameterizedTest
+  @CsvSource(nullValues = "null", value = {
+      "NESN.SW, null, SIX",
+      "nesn.sw, Amsterdam, SIX",
+      "ALV.DE, null, Xetra",
+      "INGA.AS, null, Euronext",
+      "VOD.L, null, LSE",
+      "MMM, null, US",
+      "BRK-B, null, US",
+      "ABB, Switzerland, SIX",
+      "SAP, XETRA, Xetra",
+      "RY.TO, NYSE, US"
+  })
+  void resolve(final String symbol, final String exchange, final String expected) {
+    assertEquals(expected, ExchangeCalendar.resolve(symbol, exchange).map(ExchangeSession::name).orElse(null));
+  }
+
+  @ParameterizedTest
+  @CsvSource(nullValues = "null", value = {
+      "BTC-USD, null",
+      "EURUSD=X, null",
+      "^GSPC, null",
+      "RY.TO, Toronto",
+      "null, Switzerland"
+  })
+  void resolve_UnknownSession(final String symbol, final String exchange) {
+    assertEquals(Optional.empty(), ExchangeCalendar.resolve(symbol, exchange));
+  }
+
+  @Test
+  void resolveFromConfig() {
+    assertEquals(Optional.of(ExchangeCalendar.SIX),
+        ExchangeCalendar.resolve(new SecurityConfig("NESN.SW", "Switzerland", null, null, null, null)));
+    assertEquals(Optional.empty(), ExchangeCalendar.resolve(null));
+  }
+
+  @Test
+  void easterSunday() {
+    assertEquals(LocalDate.of(2024, 3, 31), HolidayRule.easterSunday(2024));
+    assertEquals(LocalDate.of(2025, 4, 20), HolidayRule.easterSunday(2025));
+    assertEquals(LocalDate.of(2026, 4, 5), HolidayRule.easterSunday(2026));
+    assertEquals(LocalDate.of(2038, 4, 25), HolidayRule.easterSunday(2038));
+  }
+
+  @Test
+  void holidays() {
+    assertFalse(ExchangeCalendar.SIX.isTradingDay(LocalDate.of(2026, 4, 3)), "Good Friday");
+    assertFalse(ExchangeCalendar.SIX.isTradingDay(LocalDate.of(2026, 4, 6)), "Easter Monday");
+    assertFalse(ExchangeCalendar.SIX.isTradingDay(LocalDate.of(2026, 5, 14)), "Ascension");
+    assertFalse(ExchangeCalendar.SIX.isTradingDay(LocalDate.of(2026, 5, 25)), "Whit Monday");
+    assertTrue(ExchangeCalendar.SIX.isTradingDay(LocalDate.of(2026, 4, 7)));
+    assertFalse(ExchangeCalendar.US.isTradingDay(LocalDate.of(2026, 11, 26)), "Thanksgiving");
+    assertFalse(ExchangeCalendar.US.isTradingDay(LocalDate.of(2026, 7, 3)), "Independence Day observed on Friday");
+    assertFalse(ExchangeCalendar.US.isTradingDay(LocalDate.of(2026, 5, 25)), "Memorial Day");
+    assertTrue(ExchangeCalendar.US.isTradingDay(LocalDate.of(2026, 5, 18)));
+    assertFalse(ExchangeCalendar.LSE.isTradingDay(LocalDate.of(2026, 8, 31)), "Summer bank holiday");
+    assertFalse(ExchangeCalendar.XETRA.isTradingDay(LocalDate.of(2026, 3, 7)), "Saturday");
+  }
+
+  @Test
+  void isOpen_InExchangeTimeZone() {
+    assertTrue(ExchangeCalendar.SIX.isOpen(zurich("2026-03-02T09:00")));
+    assertTrue(ExchangeCalendar.SIX.isOpen(zurich("2026-03-02T17:29")));
+    assertFalse(ExchangeCalendar.SIX.isOpen(zurich("2026-03-02T17:30")));
+    assertFalse(ExchangeCalendar.SIX.isOpen(zurich("2026-03-02T08:59")));
+    assertTrue(ExchangeCalendar.US.isOpen(zurich("2026-03-02T15:30")), "9:30 AM in New York");
+    assertFalse(ExchangeCalendar.US.isOpen(zurich("2026-03-02T15:29")));
+  }
+
+  @Test
+  void lastCloseBefore() {
+    assertEquals(zurich("2026-03-02T17:30"), ExchangeCalendar.SIX.lastCloseBefore(zurich("2026-03-02T17:30")));
+    assertEquals(zurich("2026-03-02T17:30"), ExchangeCalendar.SIX.lastCloseBefore(zurich("2026-03-03T09:15")));
+    assertEquals(zurich("2026-02-27T17:30"), ExchangeCalendar.SIX.lastCloseBefore(zurich("2026-03-01T12:00")), "Friday before weekend");
+    assertEquals(zurich("2026-04-02T17:30"), ExchangeCalendar.SIX.lastCloseBefore(zurich("2026-04-06T12:00")), "Thursday before Easter");
+  }
+
+  private static Instant zurich(final String localDateTime) {
+    return LocalDateTime.parse(localDateTime).atZone(ZoneId.of("Europe/Zurich")).toInstant();
+  }
+}
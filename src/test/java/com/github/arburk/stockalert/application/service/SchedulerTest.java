@@ -1,5 +1,6 @@
 package com.github.arburk.stockalert.application.service;
 
+import com.github.arburk.stockalert.application.service.cluster.LeaderElection;
 import com.github.arburk.stockalert.application.service.stock.StockService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -7,8 +8,10 @@ import org.mockito.Mockito;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class SchedulerTest {
 
@@ -22,6 +25,21 @@ class SchedulerTest {
     verify(stockService, times(1)).update();
   }
 
+  @Test
+  void standby_OnlyWarmsUp() {
+    final LeaderElection leaderElection = Mockito.mock(LeaderElection.class);
+    final Scheduler testee = new Scheduler(stockService);
+    testee.leaderElection = leaderElection;
+
+    testee.updateStock();
+    verify(stockService, never()).update();
+    verify(stockService, times(1)).warmUp();
+
+    when(leaderElection.isLeader()).thenReturn(true);
+    testee.updateStock();
+    verify(stockService, times(1)).update();
+  }
+
   @Test
   void verifyExceptionsDoNotBreak() {
     doThrow(new RuntimeException("Test Exception")).when(stockService).update();
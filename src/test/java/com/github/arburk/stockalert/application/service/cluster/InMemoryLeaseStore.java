@@ -0,0 +1,62 @@
+package com.github.arburk.stockalert.application.service.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class InMemoryLeaseStore implements LeaseStore {
+
+  private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+  private boolean failing;
+
+  public void setFailing(final boolean failing) {
+    this.failing = failing;
+  }
+
+  @Override
+  public List<Lease> list(final String prefix) {
+    checkAvailable();
+    return leases.values().stream().filter(lease -> lease.name().startsWith(prefix)).toList();
+  }
+
+  @Override
+  public void put(final Lease lease) {
+    checkAvailable();
+    leases.put(lease.name(), lease);
+  }
+
+  @Override
+  public void delete(final String name) {
+    leases.remove(name);
+  }
+
+  @Override
+  public synchronized Optional<Lease> tryAcquire(final String name, final String holder, final Instant now, final Duration ttl) {
+    checkAvailable();
+    final Lease claimed = Lease.claim(leases.get(name), name, holder, now, ttl);
+    if (claimed != null) {
+      leases.put(name, claimed);
+    }
+    return Optional.ofNullable(claimed);
+  }
+
+  @Override
+  public synchronized boolean release(final String name, final String holder, final long token, final Instant now) {
+    checkAvailable();
+    final Lease current = leases.get(name);
+    if (current == null || !current.isHeldBy(holder, token, now)) {
+      return false;
+    }
+    leases.put(name, new Lease(name, holder, now, token));
+    return true;
+  }
+
+  private void checkAvailable() {
+    if (failing) {
+      throw new IllegalStateException("storage not available");
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.arburk.stockalert.application.service.cluster;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LeaderElectionTest {
+
+  private static final Instant NOW = Instant.parse("2026-03-02T09:16:00Z");
+
+  private final InMemoryLeaseStore leaseStore = new InMemoryLeaseStore();
+  private final Clock clock = mock(Clock.class);
+
+  private LeaderElection replica(final String replicaId) {
+    return new LeaderElection(leaseStore, replicaId, 90, clock);
+  }
+
+  @Test
+  void onlyOneLeader() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    final LeaderElection b = replica("b");
+
+    a.heartbeat();
+    b.heartbeat();
+
+    assertTrue(a.isLeader());
+    assertTrue(a.isLeaseHeld());
+    assertEquals(1, a.fencingToken());
+    assertFalse(b.isLeader());
+    assertFalse(b.isLeaseHeld());
+  }
+
+  @Test
+  void renewalKeepsToken_TakeoverIncrementsIt() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    final LeaderElection b = replica("b");
+    a.heartbeat();
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+    a.heartbeat();
+    b.heartbeat();
+    assertEquals(1, a.fencingToken());
+    assertFalse(b.isLeader());
+
+    // a stalls and misses its renewals
+    when(clock.instant()).thenReturn(NOW.plusSeconds(151));
+    b.heartbeat();
+
+    assertTrue(b.isLeader());
+    assertEquals(2, b.fencingToken());
+    assertFalse(a.isLeader());
+    assertFalse(a.isLeaseHeld());
+  }
+
+  @Test
+  void leaseHeldVerifiedAgainstStore() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    a.heartbeat();
+
+    // lease got taken over while a was not looking
+    leaseStore.put(new Lease(LeaderElection.LEASE_NAME, "b", NOW.plusSeconds(90), 2));
+
+    assertTrue(a.isLeader());
+    assertFalse(a.isLeaseHeld());
+  }
+
+  @Test
+  void storeUnavailable_LeadershipRunsOut() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    a.heartbeat();
+    leaseStore.setFailing(true);
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+    a.heartbeat();
+    assertTrue(a.isLeader());
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(91));
+    a.heartbeat();
+    assertFalse(a.isLeader());
+  }
+
+  @Test
+  void release_NextReplicaTakesOverRightAway() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    final LeaderElection b = replica("b");
+    a.heartbeat();
+
+    a.release();
+    b.heartbeat();
+
+    assertFalse(a.isLeader());
+    assertTrue(b.isLeader());
+    assertEquals(2, b.fencingToken());
+  }
+
+  @Test
+  void release_LeaseTakenOverMeanwhile_Kept() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    a.heartbeat();
+    final Lease successor = new Lease(LeaderElection.LEASE_NAME, "b", NOW.plusSeconds(90), 2);
+    leaseStore.put(successor);
+
+    a.release();
+
+    assertFalse(a.isLeader());
+    assertEquals(List.of(successor), leaseStore.list(LeaderElection.LEASE_NAME));
+  }
+
+  @Test
+  void runFenced_SkippedOnceTakenOver() {
+    when(clock.instant()).thenReturn(NOW);
+    final LeaderElection a = replica("a");
+    a.heartbeat();
+    final AtomicInteger writes = new AtomicInteger();
+
+    assertTrue(a.runFenced(writes::incrementAndGet));
+    leaseStore.put(new Lease(LeaderElection.LEASE_NAME, "b", NOW.plusSeconds(90), 2));
+    assertFalse(a.runFenced(writes::incrementAndGet));
+
+    assertEquals(1, writes.get());
+  }
+}
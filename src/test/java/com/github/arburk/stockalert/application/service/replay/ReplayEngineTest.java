@@ -0,0 +1,121 @@
+package com.github.arburk.stockalert.application.service.replay;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.NotificationChannel;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplayEngineTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2026, 3, 2, 9, 0);
+  private static final SecurityConfig BALN = new SecurityConfig("BALN.SW", "Switzerland", null, null, null,
+      List.of(new AlertConfig(200, "email", null), new AlertConfig(210, "email", null)));
+  private static final NotificationChannel MAIL = new NotificationChannel("email", "me@here.com", true, true);
+
+  private final ReplayEngine testee = new ReplayEngine();
+
+  @TempDir
+  private Path directory;
+
+  private static Security tick(final int minutes, final double price) {
+    return new Security("BALN.SW", price, "CHF", null, START.plusMinutes(minutes), "Switzerland", null);
+  }
+
+  @Test
+  void replayClock_OtherZoneFollowsTicks() {
+    final ReplayEngine.ReplayClock clock = new ReplayEngine.ReplayClock();
+    final Clock utc = clock.withZone(ZoneOffset.UTC);
+    final Clock tokyo = clock.withZone(ZoneId.of("Asia/Tokyo"));
+
+    clock.set(START);
+
+    assertEquals(ZoneOffset.UTC, utc.getZone());
+    assertEquals(clock.instant(), utc.instant());
+    assertEquals(clock.instant(), tokyo.instant());
+    assertEquals(START, LocalDateTime.now(clock));
+    assertEquals(LocalDateTime.ofInstant(clock.instant(), ZoneId.of("Asia/Tokyo")), LocalDateTime.now(tokyo));
+    assertSame(clock, clock.withZone(clock.getZone()));
+  }
+
+  @Test
+  void thresholdCrossings() {
+    final StockAlertsConfig config = new StockAlertsConfig("1", null, null, List.of(MAIL), List.of(BALN));
+
+    final ReplayReport report = testee.replay(config, List.of(
+        tick(0, 195), tick(1, 199), tick(2, 201), tick(3, 211), tick(4, 205), tick(5, 199),
+        new Security("NESN.SW", 80., "CHF", null, START, "Switzerland", null)));
+
+    final ReplayReport.SecurityResult baln = report.securities().get(SecurityKey.of("BALN.SW", "Switzerland"));
+    assertEquals(6, report.ticks());
+    assertEquals(6, baln.ticks());
+    // 200 and 210 upwards, 210 and 200 downwards
+    assertEquals(4, baln.thresholdAlerts());
+    assertEquals(0, baln.percentageAlerts());
+    assertEquals(START.plusMinutes(2), baln.firstAlert());
+    assertEquals(START.plusMinutes(5), baln.lastAlert());
+    assertEquals(Duration.ofMinutes(1), baln.minAlertInterval());
+  }
+
+  @Test
+  void percentageAlertsSilenced() {
+    final StockAlertsConfig loud = new StockAlertsConfig("1", null, "5%", List.of(MAIL), List.of(BALN));
+    final StockAlertsConfig silenced = new StockAlertsConfig("1", "1h", "5%", List.of(MAIL), List.of(BALN));
+    final List<Security> ticks = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      // provided daily change always beyond the percentage alert
+      ticks.add(new Security("BALN.SW", 150. + i, "CHF", .06, START.plusMinutes(i), "Switzerland", null));
+    }
+
+    final SecurityKey key = SecurityKey.of("BALN.SW", "Switzerland");
+    assertEquals(9, testee.replay(loud, ticks).securities().get(key).percentageAlerts());
+    assertEquals(1, testee.replay(silenced, ticks).securities().get(key).percentageAlerts());
+  }
+
+  @Test
+  void replayFromFile() throws IOException {
+    final Path file = directory.resolve("baln.csv");
+    Files.writeString(file, """
+        timestamp,symbol,exchange,price,change-percentage,currency
+        # opening
+        2026-03-02T09:00:00,BALN.SW,Switzerland,199.5
+
+        2026-03-02T09:01:00,BALN.SW,Switzerland,200.5,0.005,CHF
+        """);
+
+    final ReplayReport report = testee.replay(new StockAlertsConfig("1", null, null, List.of(MAIL), List.of(BALN)), List.of(file));
+
+    assertEquals(2, report.ticks());
+    assertEquals(1, report.alerts());
+  }
+
+  @Test
+  void parse() {
+    final Path file = Path.of("ticks.csv");
+
+    assertNull(ReplayEngine.parse("timestamp,symbol,exchange,price", file, 1));
+    assertEquals(
+        new Security("ABBN.SW", 50.2, "CHF", -.01, START, "Switzerland", null).toString(),
+        ReplayEngine.parse("2026-03-02T09:00,ABBN.SW,Switzerland,50.2,-0.01", file, 2).toString());
+    assertThrows(IllegalArgumentException.class, () -> ReplayEngine.parse("2026-03-02T09:00,ABBN.SW,Switzerland", file, 3));
+    assertThrows(IllegalArgumentException.class, () -> ReplayEngine.parse("yesterday,ABBN.SW,Switzerland,50.2", file, 4));
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptivePollFilterTest {
+
+  private static final Instant NOW = Instant.parse("2026-03-02T09:16:00Z");
+  private static final SecurityConfig NEAR = new SecurityConfig("NEAR.SW", "Switzerland", null, null, null,
+      List.of(new AlertConfig(100.2, "email", null)));
+  private static final SecurityConfig FAR = new SecurityConfig("FAR.SW", "Switzerland", null, null, null,
+      List.of(new AlertConfig(60, "email", null)));
+  private static final SecurityConfig PERCENTAGE = new SecurityConfig("PCT.SW", "Switzerland", null, null, "5%", null);
+  private static final List<SecurityConfig> ALL = List.of(NEAR, FAR, PERCENTAGE);
+  private static final AlertPlan PLAN = AlertPlan.compile(new StockAlertsConfig(null, null, null, null, ALL));
+
+  private AdaptivePollFilter testee;
+
+  @BeforeEach
+  void setUp() {
+    testee = new AdaptivePollFilter(240, 0);
+  }
+
+  private static Security quote(final SecurityConfig config, final double price, final double change) {
+    return new Security(config.symbol(), price, "CHF", change, null, config.exchange(), null);
+  }
+
+  @Test
+  void unknownSecuritiesPolled() {
+    assertEquals(ALL, testee.filter(ALL, NOW));
+  }
+
+  @Test
+  void intervalFollowsDistanceToAlert() {
+    testee.filter(ALL, NOW);
+    testee.polled(List.of(quote(NEAR, 100, .01), quote(FAR, 100, .01), quote(PERCENTAGE, 100, .045)), PLAN, NOW);
+
+    final Duration near = testee.state(SecurityKey.of(NEAR)).interval();
+    final Duration far = testee.state(SecurityKey.of(FAR)).interval();
+    final Duration percentage = testee.state(SecurityKey.of(PERCENTAGE)).interval();
+    assertTrue(near.compareTo(Duration.ofMinutes(20)) < 0, "near: " + near);
+    assertEquals(Duration.ofMinutes(240), far);
+    assertTrue(percentage.compareTo(Duration.ofMinutes(15)) < 0, "percentage: " + percentage);
+
+    assertEquals(List.of(NEAR, PERCENTAGE), testee.filter(ALL, NOW.plus(Duration.ofMinutes(60))));
+    assertEquals(ALL, testee.filter(ALL, NOW.plus(Duration.ofMinutes(240))));
+  }
+
+  @Test
+  void higherVolatility_ShorterInterval() {
+    testee.filter(List.of(FAR), NOW);
+    testee.polled(List.of(quote(FAR, 60.5, .0)), PLAN, NOW);
+    final Duration calm = testee.state(SecurityKey.of(FAR)).interval();
+
+    testee.polled(List.of(quote(FAR, 60.5, .08)), PLAN, NOW);
+    final Duration volatile_ = testee.state(SecurityKey.of(FAR)).interval();
+
+    assertTrue(volatile_.compareTo(calm) < 0, calm + " vs " + volatile_);
+  }
+
+  @Test
+  void securitiesNoLongerPassed_Forgotten() {
+    testee.filter(ALL, NOW);
+    testee.polled(List.of(quote(NEAR, 100, .01), quote(FAR, 100, .01)), PLAN, NOW);
+
+    testee.filter(List.of(NEAR), NOW.plus(Duration.ofMinutes(15)));
+
+    assertNotNull(testee.state(SecurityKey.of(NEAR)));
+    assertNull(testee.state(SecurityKey.of(FAR)));
+  }
+
+  @Test
+  void budgetLimitsSecuritiesPerRun_MostOverdueFirst() {
+    testee = new AdaptivePollFilter(240, 1);
+    testee.filter(ALL, NOW);
+    testee.polled(List.of(quote(NEAR, 100, .01), quote(FAR, 100, .01)), PLAN, NOW);
+
+    // never polled before
+    assertEquals(List.of(PERCENTAGE), testee.filter(ALL, NOW.plus(Duration.ofMinutes(300))));
+    testee.polled(List.of(quote(PERCENTAGE, 100, 0)), PLAN, NOW.plus(Duration.ofMinutes(300)));
+
+    // due for the longest time relative to its interval
+    assertEquals(List.of(NEAR), testee.filter(ALL, NOW.plus(Duration.ofMinutes(300))));
+  }
+}
@@ -0,0 +1,80 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MarketHoursPollFilterTest {
+
+  private static final SecurityConfig NESN = new SecurityConfig("NESN.SW", "Switzerland", null, null, null, null);
+  private static final SecurityConfig MMM = new SecurityConfig("MMM", "NYSE", null, null, null, null);
+  private static final SecurityConfig BTC = new SecurityConfig("BTC-USD", "Crypto", null, null, null, null);
+  private static final List<SecurityConfig> ALL = List.of(NESN, MMM, BTC);
+  private static final AlertPlan PLAN = AlertPlan.compile(new StockAlertsConfig(null, null, null, null, ALL));
+
+  private MarketHoursPollFilter testee;
+
+  @BeforeEach
+  void setUp() {
+    testee = new MarketHoursPollFilter(15);
+  }
+
+  @Test
+  void openMarketsPolled() {
+    assertEquals(ALL, poll(zurich("2026-03-02T16:16")));
+    assertEquals(ALL, poll(zurich("2026-03-02T17:16")));
+  }
+
+  @Test
+  void closedMarketSkippedBeforeOpening() {
+    poll(zurich("2026-03-02T08:16"));
+    assertEquals(List.of(BTC), poll(zurich("2026-03-02T08:46")));
+  }
+
+  @Test
+  void oneFinalPollAfterCloseSettled() {
+    assertEquals(ALL, poll(zurich("2026-03-02T17:16")));
+    assertEquals(ALL, poll(zurich("2026-03-02T17:40")), "within post close delay");
+    assertEquals(ALL, poll(zurich("2026-03-02T18:16")), "final poll after close");
+    assertEquals(List.of(MMM, BTC), poll(zurich("2026-03-02T19:16")));
+    assertEquals(List.of(MMM, BTC), poll(zurich("2026-03-02T21:16")));
+  }
+
+  @Test
+  void unpolledSecurityPolledOnceWhileClosed() {
+    assertEquals(ALL, poll(zurich("2026-03-01T12:00")), "Sunday: one poll after start up");
+    assertEquals(List.of(BTC), poll(zurich("2026-03-01T13:00")));
+    assertEquals(List.of(BTC), poll(zurich("2026-03-02T08:30")), "Monday before opening");
+  }
+
+  @Test
+  void failedFinalPollRetried() {
+    testee.polled(List.of(security(NESN)), PLAN, zurich("2026-03-02T17:16"));
+    testee.filter(List.of(NESN), zurich("2026-03-02T18:16") /* provider did not return a quote */);
+
+    assertEquals(List.of(NESN), testee.filter(List.of(NESN), zurich("2026-03-02T19:16")));
+  }
+
+  private List<SecurityConfig> poll(final Instant now) {
+    final List<SecurityConfig> result = testee.filter(ALL, now);
+    testee.polled(result.stream().map(MarketHoursPollFilterTest::security).toList(), PLAN, now);
+    return result;
+  }
+
+  private static Security security(final SecurityConfig config) {
+    return new Security(config.symbol(), 1d, "CHF", null, null, config.exchange(), null);
+  }
+
+  private static Instant zurich(final String localDateTime) {
+    return LocalDateTime.parse(localDateTime).atZone(ZoneId.of("Europe/Zurich")).toInstant();
+  }
+}
@@ -0,0 +1,122 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.SecurityKey;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.service.cluster.InMemoryLeaseStore;
+import com.github.arburk.stockalert.application.service.cluster.Lease;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class ShardPollFilterTest {
+
+  private static final Instant NOW = Instant.parse("2026-03-02T09:16:00Z");
+  private static final List<SecurityConfig> SECURITIES = IntStream.range(0, 300)
+      .mapToObj(i -> new SecurityConfig("SYM" + i, "Switzerland", null, null, null, null))
+      .toList();
+
+  private final InMemoryLeaseStore leaseStore = new InMemoryLeaseStore();
+  private final PersistenceProvider persistenceProvider = mock(PersistenceProvider.class);
+
+  private ShardPollFilter replica(final String replicaId) {
+    return new ShardPollFilter(leaseStore, persistenceProvider, replicaId, 90, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  void securitiesSplitWithoutOverlap() {
+    final List<ShardPollFilter> replicas = List.of(replica("a"), replica("b"), replica("c"));
+    replicas.forEach(ShardPollFilter::heartbeat);
+
+    final List<SecurityConfig> polled = new ArrayList<>();
+    for (final ShardPollFilter replica : replicas) {
+      final List<SecurityConfig> shard = replica.filter(SECURITIES, NOW);
+      assertTrue(shard.size() > 50, "unbalanced shard of " + shard.size());
+      polled.addAll(shard);
+    }
+
+    assertEquals(SECURITIES.size(), polled.size());
+    assertEquals(new HashSet<>(SECURITIES), new HashSet<>(polled));
+  }
+
+  @Test
+  void joiningReplica_OnlyTakesOverItsShare() {
+    final ShardPollFilter a = replica("a");
+    final ShardPollFilter b = replica("b");
+    a.heartbeat();
+    b.heartbeat();
+    final Set<SecurityConfig> before = new HashSet<>(a.filter(SECURITIES, NOW));
+
+    final ShardPollFilter c = replica("c");
+    c.heartbeat();
+    final Set<SecurityConfig> after = new HashSet<>(a.filter(SECURITIES, NOW));
+    final List<SecurityConfig> taken = c.filter(SECURITIES, NOW);
+
+    assertTrue(before.containsAll(after), "securities moved between remaining replicas");
+    taken.forEach(security -> assertFalse(after.contains(security)));
+  }
+
+  @Test
+  void expiredOrLeftReplica_Rebalanced() {
+    final ShardPollFilter a = replica("a");
+    final ShardPollFilter b = replica("b");
+    a.heartbeat();
+    b.heartbeat();
+    assertEquals(List.of("a", "b"), a.members());
+
+    b.leave();
+    assertEquals(SECURITIES, a.filter(SECURITIES, NOW));
+    assertEquals(List.of("a"), a.members());
+
+    leaseStore.put(new Lease(ShardPollFilter.LEASE_PREFIX + "c", "c", NOW.minusSeconds(1)));
+    assertEquals(SECURITIES, a.filter(SECURITIES, NOW));
+  }
+
+  @Test
+  void reassignedSecurities_StateTakenOver() {
+    final ShardPollFilter a = replica("a");
+    final ShardPollFilter b = replica("b");
+    a.heartbeat();
+    b.heartbeat();
+    final List<SecurityConfig> shard = a.filter(SECURITIES, NOW);
+    verify(persistenceProvider).takeOver(argThat(keys -> keys.size() == shard.size()));
+    a.filter(SECURITIES, NOW);
+    verifyNoMoreInteractions(persistenceProvider);
+
+    b.leave();
+    a.filter(SECURITIES, NOW);
+
+    final Set<SecurityKey> moved = SECURITIES.stream()
+        .filter(security -> !shard.contains(security))
+        .map(SecurityKey::of)
+        .collect(Collectors.toSet());
+    verify(persistenceProvider).takeOver(argThat(keys -> new HashSet<>(keys).equals(moved)));
+  }
+
+  @Test
+  void leaseStoreUnavailable_MembersKept() {
+    final ShardPollFilter a = replica("a");
+    replica("b").heartbeat();
+    a.heartbeat();
+    leaseStore.setFailing(true);
+
+    final List<SecurityConfig> shard = a.filter(SECURITIES, NOW);
+
+    assertEquals(List.of("a", "b"), a.members());
+    shard.forEach(security -> assertEquals("a", ShardPollFilter.owner(SecurityKey.of(security), List.of("a", "b"))));
+  }
+}
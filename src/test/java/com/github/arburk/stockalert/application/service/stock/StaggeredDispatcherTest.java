@@ -0,0 +1,89 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaggeredDispatcherTest {
+
+  private static final Instant TICK = Instant.parse("2026-03-02T09:16:00Z");
+
+  @Test
+  void windowUntilNextRun() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("0 16 9-21 * * MON-FRI", .8, .5, Clock.fixed(TICK, ZoneOffset.UTC));
+
+    assertEquals(Duration.ofMinutes(48), testee.window(TICK));
+    assertEquals(Duration.ofMinutes(48), testee.window(Instant.parse("2026-03-02T20:16:00Z")));
+  }
+
+  @Test
+  void lastRunOfTheDay_CappedAtInterval() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("0 16 9-21 * * MON-FRI", .8, .5, Clock.fixed(TICK, ZoneOffset.UTC));
+
+    // not spread until next morning
+    assertEquals(Duration.ofMinutes(48), testee.window(Instant.parse("2026-03-02T21:16:00Z")));
+  }
+
+  @Test
+  void lastRunOfTheWeek_CappedAtInterval() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("0 16 9-21 * * MON-FRI", .8, .5, Clock.fixed(TICK, ZoneOffset.UTC));
+
+    // friday evening, not spread over the weekend
+    assertEquals(Duration.ofMinutes(48), testee.window(Instant.parse("2026-03-06T21:16:00Z")));
+  }
+
+  @Test
+  void offsetsStayWithinTheirSlot() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("0 16 9-21 * * MON-FRI", .8, 1, Clock.systemUTC());
+
+    final List<Duration> offsets = testee.offsets(10, Duration.ofMinutes(10));
+
+    assertEquals(10, offsets.size());
+    for (int i = 0; i < offsets.size(); i++) {
+      assertTrue(offsets.get(i).compareTo(Duration.ofMinutes(i)) >= 0, "slot " + i + ": " + offsets.get(i));
+      assertTrue(offsets.get(i).compareTo(Duration.ofMinutes(i + 1)) <= 0, "slot " + i + ": " + offsets.get(i));
+    }
+  }
+
+  @Test
+  void noJitter_EvenlySpaced() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("0 16 9-21 * * MON-FRI", .8, 0, Clock.systemUTC());
+
+    assertEquals(List.of(Duration.ofMinutes(1), Duration.ofMinutes(3), Duration.ofMinutes(5)), testee.offsets(3, Duration.ofMinutes(6)));
+  }
+
+  @Test
+  void dispatchSpreadsInConfigOrder() {
+    final StaggeredDispatcher testee = new StaggeredDispatcher("* * * * * *", .5, .5, Clock.systemUTC());
+    final List<SecurityConfig> securities = IntStream.range(0, 4)
+        .mapToObj(i -> new SecurityConfig("SYM" + i, "Switzerland", null, null, null, null))
+        .toList();
+    final List<SecurityConfig> fetched = new ArrayList<>();
+    final List<Instant> fetchedAt = new ArrayList<>();
+
+    final Instant started = Instant.now();
+    testee.dispatch(securities, started, slot -> {
+      fetched.addAll(slot);
+      fetchedAt.add(Instant.now());
+    });
+
+    assertEquals(securities, fetched);
+    assertTrue(Duration.between(started, fetchedAt.getLast()).compareTo(Duration.ofSeconds(1)) < 0);
+  }
+
+  @Test
+  void invalidSettings_Rejected() {
+    assertThrows(IllegalArgumentException.class, () -> new StaggeredDispatcher("* * * * * *", 0, .5, Clock.systemUTC()));
+    assertThrows(IllegalArgumentException.class, () -> new StaggeredDispatcher("* * * * * *", .8, 2, Clock.systemUTC()));
+  }
+}
@@ -3,20 +3,28 @@ package com.github.arburk.stockalert.application.service.stock;
 import com.github.arburk.stockalert.application.config.ApplicationConfig;
 import com.github.arburk.stockalert.application.config.JacksonConfig;
 import com.github.arburk.stockalert.application.domain.Alert;
+import com.github.arburk.stockalert.application.domain.PriceRange;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import com.github.arburk.stockalert.application.service.cluster.InMemoryLeaseStore;
 import com.github.arburk.stockalert.application.service.notification.NotificationService;
 import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -26,12 +34,18 @@ import org.springframework.test.util.ReflectionTestUtils;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -51,6 +65,7 @@ class StockServiceTest {
     stockProvider = mock(StockProvider.class);
     notifyService = mock(NotificationService.class);
     persistenceProvider = mock(PersistenceProvider.class);
+    doCallRealMethod().when(persistenceProvider).logAlert(any(), any());
     testee = new StockService(applicationConfig, stockProvider, persistenceProvider, notifyService);
   }
 
@@ -116,6 +131,120 @@ class StockServiceTest {
     verify(persistenceProvider).commitChanges();
   }
 
+  @Test
+  void update_PollFilterNarrowsRequestAndIsNotified() {
+    applicationConfig.setConfigUrl(Path.of("src/test/resources/config/config-test.json").toUri().toString());
+    final PollFilter pollFilter = mock(PollFilter.class);
+    final Instant now = Instant.parse("2026-03-02T10:00:00Z");
+    testee = new StockService(applicationConfig, stockProvider, persistenceProvider, notifyService, List.of(pollFilter),
+        Clock.fixed(now, ZoneOffset.UTC));
+    when(pollFilter.filter(anyList(), eq(now))).thenAnswer(invocation -> List.of(invocation.<List<SecurityConfig>>getArgument(0).getLast()));
+    final Security heln = new Security("HELN", 176.25, "CHF", null, LocalDateTime.now(), "Switzerland", null);
+    when(stockProvider.getLatest(anyList())).thenReturn(List.of(heln));
+
+    testee.update();
+
+    final ArgumentCaptor<List<SecurityConfig>> request = ArgumentCaptor.forClass(List.class);
+    verify(stockProvider).getLatest(request.capture());
+    assertEquals(List.of("HELN"), request.getValue().stream().map(SecurityConfig::symbol).toList());
+    verify(pollFilter).polled(eq(List.of(heln)), any(), eq(now));
+  }
+
+  @Test
+  void update_NothingToPoll_ProviderNotCalled() {
+    final PollFilter pollFilter = mock(PollFilter.class);
+    testee = new StockService(applicationConfig, stockProvider, persistenceProvider, notifyService, List.of(pollFilter), Clock.systemUTC());
+    when(pollFilter.filter(anyList(), any())).thenReturn(List.of());
+
+    testee.update();
+
+    verify(stockProvider, never()).getLatest(any());
+    verify(persistenceProvider, never()).commitChanges();
+  }
+
+  @Test
+  void warmUp_SameConfig_PlanCompiledOnce() {
+    applicationConfig.setConfigCache(true);
+    testee.warmUp();
+    final Object plan = ReflectionTestUtils.getField(testee, "alertPlan");
+    testee.warmUp();
+
+    assertNotNull(plan);
+    assertSame(plan, ReflectionTestUtils.getField(testee, "alertPlan"));
+  }
+
+  @Test
+  void update_Staged_IntradayRangeRequestedWithoutLock() {
+    applicationConfig.setConfigUrl(Path.of("src/test/resources/config/config-test.json").toUri().toString());
+    ReflectionTestUtils.setField(testee, "updatePipeline", new UpdatePipeline(1));
+    final Security persisted = new Security("BALN", 190., "CHF", null, LocalDateTime.now().minusHours(1), "Switzerland", null);
+    final Security latest = new Security("BALN", 195., "CHF", null, LocalDateTime.now(), "Switzerland", null);
+    when(persistenceProvider.getSecurity(any())).thenReturn(Optional.of(persisted));
+    doAnswer(invocation -> {
+      invocation.<Consumer<Security>>getArgument(1).accept(latest);
+      return null;
+    }).when(stockProvider).getLatest(anyList(), any());
+    final AtomicBoolean lockHeld = new AtomicBoolean();
+    when(stockProvider.getIntradayRange(any(), any())).thenAnswer(invocation -> {
+      lockHeld.compareAndSet(false, Thread.holdsLock(persistenceProvider));
+      return Optional.of(new PriceRange(189., 201.));
+    });
+
+    testee.update();
+
+    verify(stockProvider).getIntradayRange(any(), eq(persisted.timestamp()));
+    assertFalse(lockHeld.get(), "intraday range requested while holding the persistence lock");
+    verify(notifyService).send(any(), argThat(alert -> alert.threshold() == 200.), eq(latest), eq(persisted));
+    verify(persistenceProvider).updateSecurity(latest);
+  }
+
+  @Test
+  void update_PollFiltersOrdered_BudgetSpentOnOwnShard() {
+    applicationConfig.setConfigUrl(Path.of("src/test/resources/config/config-test.json").toUri().toString());
+    final Instant now = Instant.parse("2026-03-02T10:00:00Z");
+    final Clock clock = Clock.fixed(now, ZoneOffset.UTC);
+    final InMemoryLeaseStore leaseStore = new InMemoryLeaseStore();
+    // BALN is polled by replica-1, HELN by replica-2
+    new ShardPollFilter(leaseStore, persistenceProvider, "replica-1", 90, clock).heartbeat();
+    final ShardPollFilter shard = new ShardPollFilter(leaseStore, persistenceProvider, "replica-2", 90, clock);
+    shard.heartbeat();
+    // given in the wrong order, a budget of one spent before sharding would be spent on BALN
+    testee = new StockService(applicationConfig, stockProvider, persistenceProvider, notifyService,
+        List.of(new AdaptivePollFilter(240, 1), shard), clock);
+    when(stockProvider.getLatest(anyList())).thenReturn(List.of());
+
+    testee.update();
+
+    final ArgumentCaptor<List<SecurityConfig>> request = ArgumentCaptor.forClass(List.class);
+    verify(stockProvider).getLatest(request.capture());
+    assertEquals(List.of("HELN"), request.getValue().stream().map(SecurityConfig::symbol).toList());
+  }
+
+  @Test
+  void update_ParallelEvaluation_NotifiesInConfigOrder() {
+    applicationConfig.setConfigUrl(Path.of("src/test/resources/config/config-test.json").toUri().toString());
+    ReflectionTestUtils.setField(testee, "evaluationParallelism", 2);
+    final LocalDateTime oldTs = LocalDateTime.of(2025, Month.JULY, 4, 17, 25, 32);
+    final List<Security> persisted = List.of(
+        new Security("BALN", 180., "CHF", null, oldTs, "Switzerland", null),
+        new Security("HELN", 199., "CHF", null, oldTs, "Switzerland", null));
+    when(persistenceProvider.getSecurites()).thenReturn(persisted);
+    when(persistenceProvider.getSecurity(any())).thenAnswer(invocation ->
+        persisted.stream().filter(security -> security.equals(invocation.getArgument(0))).findFirst());
+    final Security baln = new Security("BALN", 201., "CHF", null, LocalDateTime.now(), "Switzerland", null);
+    final Security heln = new Security("HELN", 211., "CHF", null, LocalDateTime.now(), "Switzerland", null);
+    when(stockProvider.getLatest(anyList())).thenReturn(List.of(baln, heln));
+
+    testee.update();
+
+    final ArgumentCaptor<AlertConfig> sent = ArgumentCaptor.forClass(AlertConfig.class);
+    verify(notifyService, times(4)).send(any(), sent.capture(), any(), any());
+    assertEquals(List.of(185., 200., 199.25, 210.5), sent.getAllValues().stream().map(AlertConfig::threshold).toList());
+    assertEquals(2, persisted.getFirst().alertLog().size());
+    assertEquals(2, persisted.getLast().alertLog().size());
+    verify(persistenceProvider).commitChanges();
+  }
+
   private Collection<Security> getSecurites(final boolean completeForTest, final LocalDateTime timestamp) {
     // complete according to config-example.json
     ArrayList<Security> securites = new ArrayList<>();
@@ -133,9 +262,11 @@ class StockServiceTest {
     private static final SecurityConfig SECURITY_CONFIG = new SecurityConfig("ABC", "SIX", null, null, null, List.of(email));
 
     private Security persisted;
+    private AlertPlan plan;
 
     @BeforeEach
     void setUp() {
+      plan = AlertPlan.compile(applicationConfig.getStockAlertsConfig());
       persisted = new Security("ABC", 100., "CHF", null, null, "SIX", null);
       when(persistenceProvider.getSecurity(Security.fromConfig(SECURITY_CONFIG))).thenReturn(Optional.of(persisted));
     }
@@ -143,9 +274,9 @@ class StockServiceTest {
     @Test
     void checkAndRaisePriceAlert_EmptyLog() {
       final Security latestExceedsThreshold = new Security("ABC", 102., "CHF", null, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", applicationConfig.getStockAlertsConfig(), SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
+      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", plan, SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
 
-      verify(notifyService).send(applicationConfig.getStockAlertsConfig(), email, latestExceedsThreshold, persisted);
+      verify(notifyService).send(plan, email, latestExceedsThreshold, persisted);
       assertFalse(persisted.alertLog().isEmpty());
       assertEquals(1 , persisted.alertLog().size());
       final Alert alertAdd = persisted.alertLog().stream().toList().getFirst();
@@ -154,14 +285,34 @@ class StockServiceTest {
       assertEquals("CHF", alertAdd.unit());
     }
 
+    @Test
+    void checkAndRaisePriceAlert_ThresholdCrossedBetweenUpdates() {
+      final Security latestBelowThreshold = new Security("ABC", 100.5, "CHF", null, CURRENT_TIMESTAMP, null, null);
+      when(stockProvider.getIntradayRange(eq(SECURITY_CONFIG), any())).thenReturn(Optional.of(new PriceRange(99.8, 101.3)));
+      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", plan, SECURITY_CONFIG, Optional.of(latestBelowThreshold));
+
+      verify(notifyService).send(plan, email, latestBelowThreshold, persisted);
+      assertEquals(1, persisted.alertLog().size());
+    }
+
+    @Test
+    void checkAndRaisePriceAlert_IntradayRangeBelowThreshold_SkipNotification() {
+      final Security latestBelowThreshold = new Security("ABC", 100.5, "CHF", null, CURRENT_TIMESTAMP, null, null);
+      when(stockProvider.getIntradayRange(eq(SECURITY_CONFIG), any())).thenReturn(Optional.of(new PriceRange(99.8, 100.9)));
+      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", plan, SECURITY_CONFIG, Optional.of(latestBelowThreshold));
+
+      verify(notifyService, never()).send(any(), any(), any(), any());
+      assertTrue(persisted.alertLog().isEmpty());
+    }
+
     @Test
     void checkAndRaisePriceAlert_OutdatedLog() {
       final Alert outdatedEntry = new Alert(CURRENT_TIMESTAMP.minusHours(1), 101., "CHF");
       persisted.alertLog().add(outdatedEntry);
       final Security latestExceedsThreshold = new Security("ABC", 102., "CHF", null, CURRENT_TIMESTAMP, null,null);
-      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", applicationConfig.getStockAlertsConfig(), SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
+      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", plan, SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
 
-      verify(notifyService).send(applicationConfig.getStockAlertsConfig(), email, latestExceedsThreshold, persisted);
+      verify(notifyService).send(plan, email, latestExceedsThreshold, persisted);
       assertFalse(persisted.alertLog().isEmpty());
       assertEquals(1 , persisted.alertLog().size());
       final Alert alertAdd = persisted.alertLog().stream().toList().getFirst();
@@ -175,9 +326,9 @@ class StockServiceTest {
       final Alert currentEntry = new Alert(CURRENT_TIMESTAMP, 101., "CHF");
       persisted.alertLog().add(currentEntry);
       final Security latestExceedsThreshold = new Security("ABC", 102., "CHF", null, CURRENT_TIMESTAMP.minusHours(1), null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", applicationConfig.getStockAlertsConfig(), SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
+      ReflectionTestUtils.invokeMethod(testee, "checkSecurityAndRaiseAlert", plan, SECURITY_CONFIG, Optional.of(latestExceedsThreshold));
 
-      verify(notifyService, never()).send(applicationConfig.getStockAlertsConfig(), email, latestExceedsThreshold, persisted);
+      verify(notifyService, never()).send(plan, email, latestExceedsThreshold, persisted);
       assertFalse(persisted.alertLog().isEmpty());
       assertEquals(1 , persisted.alertLog().size());
       final Alert alertAdd = persisted.alertLog().stream().toList().getFirst();
@@ -191,13 +342,20 @@ class StockServiceTest {
     private static final Security PERSISTED = new Security(null, 100., null, null, null, null, null);
     private static final SecurityConfig EMPTY_CONFIG = new SecurityConfig(null, null, null, null, null, null);
 
+    private AlertPlan plan;
+
+    @BeforeEach
+    void setUp() {
+      plan = AlertPlan.compile(applicationConfig.getStockAlertsConfig());
+    }
+
     @Test
     void checkAndRaisePercentageAlert_Increased() {
       final Security latestExceedsThreshold = new Security(null, 105., null, null, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", applicationConfig.getStockAlertsConfig(), EMPTY_CONFIG, latestExceedsThreshold, PERSISTED);
+      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", plan, EMPTY_CONFIG, latestExceedsThreshold, PERSISTED);
 
       ArgumentCaptor<Double> captor = ArgumentCaptor.forClass(Double.class);
-      verify(notifyService).sendPercentage(eq(applicationConfig.getStockAlertsConfig()), eq(latestExceedsThreshold), eq(PERSISTED), eq(0.05), captor.capture());
+      verify(notifyService).sendPercentage(eq(plan), eq(latestExceedsThreshold), eq(PERSISTED), eq(0.05), captor.capture());
       assertTrue(captor.getValue() >= 0.05);
     }
 
@@ -205,27 +363,27 @@ class StockServiceTest {
     void checkAndRaisePercentageAlert_Decreased() {
       final SecurityConfig config = new SecurityConfig(null, null, null, null, "0.05", null);
       final Security latestDecreasedCrossingThreshold = new Security(null, 95., null, null, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", applicationConfig.getStockAlertsConfig(), config, latestDecreasedCrossingThreshold, PERSISTED);
+      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", plan, config, latestDecreasedCrossingThreshold, PERSISTED);
 
       ArgumentCaptor<Double> captor = ArgumentCaptor.forClass(Double.class);
-      verify(notifyService).sendPercentage(eq(applicationConfig.getStockAlertsConfig()), eq(latestDecreasedCrossingThreshold), eq(PERSISTED), eq(0.05), captor.capture());
+      verify(notifyService).sendPercentage(eq(plan), eq(latestDecreasedCrossingThreshold), eq(PERSISTED), eq(0.05), captor.capture());
       assertTrue(captor.getValue() <= 0.05);
     }
 
     @Test
     void checkAndRaisePercentageAlert_NotRequired() {
       final Security latestWithinBoundary = new Security(null, 96., null, null, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", applicationConfig.getStockAlertsConfig(), EMPTY_CONFIG, latestWithinBoundary, PERSISTED);
-      verify(notifyService, never()).sendPercentage(eq(applicationConfig.getStockAlertsConfig()), any(Security.class), any(Security.class), eq(0.05), anyDouble());
+      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", plan, EMPTY_CONFIG, latestWithinBoundary, PERSISTED);
+      verify(notifyService, never()).sendPercentage(eq(plan), any(Security.class), any(Security.class), eq(0.05), anyDouble());
     }
 
     @Test
     void checkAndRaisePercentageAlert_ProvideValueTrigger() {
       final Security latest = new Security(null, 96., null, .0536, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", applicationConfig.getStockAlertsConfig(), EMPTY_CONFIG, latest, PERSISTED);
+      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", plan, EMPTY_CONFIG, latest, PERSISTED);
 
       ArgumentCaptor<Double> captor = ArgumentCaptor.forClass(Double.class);
-      verify(notifyService).sendPercentage(eq(applicationConfig.getStockAlertsConfig()), eq(latest), eq(PERSISTED), eq(0.05), captor.capture());
+      verify(notifyService).sendPercentage(eq(plan), eq(latest), eq(PERSISTED), eq(0.05), captor.capture());
       assertEquals(.0536, captor.getValue());
     }
 
@@ -233,8 +391,8 @@ class StockServiceTest {
     void checkAndRaisePercentageAlert_GlobalValueResetted() {
       final SecurityConfig config = new SecurityConfig(null, null, null, null, "0", null);
       final Security latest = new Security(null, 90., null, null, null, null, null);
-      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", applicationConfig.getStockAlertsConfig(), config, latest, PERSISTED);
-      verify(notifyService, never()).sendPercentage(eq(applicationConfig.getStockAlertsConfig()), any(Security.class), any(Security.class), eq(0.05), anyDouble());
+      ReflectionTestUtils.invokeMethod(testee, "checkAndRaisePercentageAlert", plan, config, latest, PERSISTED);
+      verify(notifyService, never()).sendPercentage(eq(plan), any(Security.class), any(Security.class), eq(0.05), anyDouble());
     }
   }
 
@@ -297,7 +455,7 @@ class StockServiceTest {
     }
 
     private void assertResultIsFalse(final StockAlertsConfig stockAlertsConfig, final boolean isProvided, final Security latestSecurity) {
-      final Boolean result = ReflectionTestUtils.invokeMethod(testee, "skipProvidedDueToSilencer", stockAlertsConfig, isProvided, latestSecurity);
+      final Boolean result = ReflectionTestUtils.invokeMethod(testee, "skipProvidedDueToSilencer", AlertPlan.compile(stockAlertsConfig), isProvided, latestSecurity);
       assertNotNull(result);
       assertFalse(result);
     }
@@ -314,7 +472,7 @@ class StockServiceTest {
       final Security persistedSecurity = new Security(null, null, null, null, null, null, alertLog);
 
       when(persistenceProvider.getSecurity(any(Security.class))).thenReturn(Optional.of(persistedSecurity));
-      final Boolean result = ReflectionTestUtils.invokeMethod(testee, "skipProvidedDueToSilencer", stockAlertsConfig, true, latestSecurity);
+      final Boolean result = ReflectionTestUtils.invokeMethod(testee, "skipProvidedDueToSilencer", AlertPlan.compile(stockAlertsConfig), true, latestSecurity);
       assertNotNull(result);
       assertTrue(result);
     }
@@ -0,0 +1,165 @@
+package com.github.arburk.stockalert.application.service.stock;
+
+import com.github.arburk.stockalert.application.domain.Security;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class UpdatePipelineTest {
+
+  private static Security quote(final String symbol) {
+    return new Security(symbol, 100., "CHF", null, null, "Switzerland", null);
+  }
+
+  @Test
+  void quotesPassAllStages() throws InterruptedException {
+    final UpdatePipeline testee = new UpdatePipeline(1);
+    final List<String> events = new CopyOnWriteArrayList<>();
+
+    testee.run(
+        onQuote -> List.of("A", "B", "C").forEach(symbol -> onQuote.accept(quote(symbol))),
+        latest -> "B".equals(latest.symbol())
+            ? null
+            : List.of(() -> events.add("notify " + latest.symbol())),
+        latest -> events.add("persist " + latest.symbol()),
+        () -> events.add("commit"));
+
+    assertEquals(List.of("notify A", "notify C"), events.stream().filter(event -> event.startsWith("notify")).toList());
+    assertEquals(List.of("persist A", "persist C", "commit"), events.stream().filter(event -> !event.startsWith("notify")).toList());
+  }
+
+  @Test
+  void failuresDoNotStopPipeline() throws InterruptedException {
+    final UpdatePipeline testee = new UpdatePipeline(2);
+    final List<String> persisted = new CopyOnWriteArrayList<>();
+    final CountDownLatch committed = new CountDownLatch(1);
+
+    testee.run(
+        onQuote -> {
+          onQuote.accept(quote("A"));
+          onQuote.accept(quote("B"));
+          throw new IllegalStateException("provider down");
+        },
+        latest -> List.of(() -> {
+          throw new IllegalStateException("mail server down");
+        }),
+        latest -> {
+          if ("A".equals(latest.symbol())) {
+            throw new IllegalStateException("disk full");
+          }
+          persisted.add(latest.symbol());
+        },
+        committed::countDown);
+
+    assertEquals(List.of("B"), persisted);
+    assertEquals(0, committed.getCount());
+  }
+
+  @Test
+  void slowNotification_DoesNotDelayCommit() throws InterruptedException {
+    final UpdatePipeline testee = new UpdatePipeline(4);
+    final CountDownLatch committed = new CountDownLatch(1);
+    final List<Boolean> committedBeforeNotified = new CopyOnWriteArrayList<>();
+
+    testee.run(
+        onQuote -> onQuote.accept(quote("A")),
+        latest -> List.of(() -> {
+          try {
+            committedBeforeNotified.add(committed.await(5, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }),
+        latest -> { },
+        committed::countDown);
+
+    assertEquals(List.of(true), committedBeforeNotified);
+  }
+
+  @Test
+  void queueSizeExposed() throws InterruptedException {
+    final UpdatePipeline testee = new UpdatePipeline(8);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<Integer> persistQueueSizes = new CopyOnWriteArrayList<>();
+
+    testee.run(
+        onQuote -> {
+          List.of("A", "B", "C").forEach(symbol -> onQuote.accept(quote(symbol)));
+          try {
+            // wait until the persist stage blocks on A with B and C queued behind it
+            for (int i = 0; i < 500 && testee.queueSize(UpdatePipeline.Stage.PERSIST) < 2; i++) {
+              Thread.sleep(10);
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          persistQueueSizes.add(testee.queueSize(UpdatePipeline.Stage.PERSIST));
+          release.countDown();
+        },
+        latest -> List.of(),
+        latest -> {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        },
+        () -> { });
+
+    assertEquals(List.of(2), persistQueueSizes);
+    assertEquals(0, testee.queueSize(UpdatePipeline.Stage.PERSIST));
+  }
+
+  @Test
+  void interruptedEvaluation_LaterStagesFinish() {
+    final UpdatePipeline testee = new UpdatePipeline(1);
+    final List<String> events = new CopyOnWriteArrayList<>();
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> testee.run(
+        onQuote -> List.of("A", "B").forEach(symbol -> onQuote.accept(quote(symbol))),
+        latest -> {
+          Thread.currentThread().interrupt();
+          return List.of(() -> events.add("notify " + latest.symbol()));
+        },
+        latest -> events.add("persist " + latest.symbol()),
+        () -> events.add("commit")));
+
+    assertEquals(List.of("commit"), events);
+  }
+
+  @Test
+  void fetchInterrupted_StagesFinishBeforeReturning() {
+    final UpdatePipeline testee = new UpdatePipeline(1);
+    final List<String> events = new CopyOnWriteArrayList<>();
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      assertThrows(InterruptedException.class, () -> testee.run(
+          onQuote -> {
+            onQuote.accept(quote("A"));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while fetching");
+          },
+          latest -> List.of(),
+          latest -> events.add("persist " + latest.symbol()),
+          () -> events.add("commit")));
+      assertFalse(Thread.interrupted());
+    });
+
+    assertEquals(List.of("persist A", "commit"), events);
+    assertEquals(0, testee.queueSize(UpdatePipeline.Stage.EVALUATE));
+  }
+
+  @Test
+  void invalidCapacity_Rejected() {
+    assertThrows(IllegalArgumentException.class, () -> new UpdatePipeline(0));
+    assertEquals(0, new UpdatePipeline(1).queueSize(UpdatePipeline.Stage.EVALUATE));
+  }
+}
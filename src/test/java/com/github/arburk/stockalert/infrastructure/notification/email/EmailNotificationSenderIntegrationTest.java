@@ -3,6 +3,7 @@ package com.github.arburk.stockalert.infrastructure.notification.email;
 import com.github.arburk.stockalert.application.config.ApplicationConfig;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.service.notification.Channel;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -46,6 +47,6 @@ class EmailNotificationSenderIntegrationTest {
     final Security persisted = new Security("ABC", 12.0, "CHF", null, persistedTs, "Switzerland", null);
     final Security latest = new Security("ABC", 13.0, "CHF", null, updatedTs, "Switzerland", null);
 
-    assertDoesNotThrow(() -> testee.send(applicationConfig.getStockAlertsConfig(), testAlertConfig, latest, persisted));
+    assertDoesNotThrow(() -> testee.send(AlertPlan.compile(applicationConfig.getStockAlertsConfig()), testAlertConfig, latest, persisted));
   }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.github.arburk.stockalert.infrastructure.notification.email;
 
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.AlertConfig;
+import com.github.arburk.stockalert.application.domain.config.AlertPlan;
 import com.github.arburk.stockalert.application.domain.config.NotificationChannel;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
@@ -57,8 +58,8 @@ class EmailNotificationSenderTest {
   @Test
   void testRecipientsExtraction() {
     final NotificationChannel mailChannel = new NotificationChannel(Channel.EMAIL.getValue(), RECIPIENT_1 + ", " + RECIPIENT_2 + " ; " + RECIPIENT_3, false, false);
-    final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of());
-    final String[] recipients = testee.getRecipients(stockAlertsConfig);
+    final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of()));
+    final String[] recipients = testee.getRecipients(plan);
 
     assertEquals(3, recipients.length);
     assertTrue(Arrays.asList(recipients).contains(RECIPIENT_1));
@@ -69,9 +70,9 @@ class EmailNotificationSenderTest {
   @Test
   void testRecipientExtraction_inconsistenConfig() {
     final NotificationChannel mailChannel = new NotificationChannel(null, RECIPIENT_1, false, false);
-    final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of());
+    final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of()));
 
-    final var caughtException = assertThrows(IllegalStateException.class, () -> testee.getRecipients(stockAlertsConfig));
+    final var caughtException = assertThrows(IllegalStateException.class, () -> testee.getRecipients(plan));
     assertEquals("email channel was invoked but not found in configuration", caughtException.getMessage());
   }
 
@@ -86,14 +87,14 @@ class EmailNotificationSenderTest {
 
     @Test
     void sendEmailHappyCase_NoComment() throws MessagingException, IOException {
-      final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of());
+      final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of()));
       final MimeMessage mimeMessage = getMockedMimeMessage();
 
       final AlertConfig testAlertConfig = new AlertConfig(12.25, Channel.EMAIL.getValue(), null);
 
       ReflectionTestUtils.setField(testee, "from", "mocked@example.com");
 
-      testee.send(stockAlertsConfig, testAlertConfig, LATEST, PERSISTED);
+      testee.send(plan, testAlertConfig, LATEST, PERSISTED);
 
       verify(mailSender).send(mimeMessage);
       assertEquals(RECIPIENT_2, mimeMessage.getRecipients(Message.RecipientType.TO)[0].toString());
@@ -109,14 +110,14 @@ class EmailNotificationSenderTest {
     @Test
     void sendEmailHappyCase_ConfigComment() throws MessagingException, IOException {
       final SecurityConfig secConfig = new SecurityConfig("ABC", "Switzerland", null, "expected comment is present", null, null);
-      final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of(secConfig));
+      final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of(secConfig)));
       final MimeMessage mimeMessage = getMockedMimeMessage();
 
       final AlertConfig testAlertConfig = new AlertConfig(12.25, Channel.EMAIL.getValue(), null);
 
       ReflectionTestUtils.setField(testee, "from", "mocked@example.com");
 
-      testee.send(stockAlertsConfig, testAlertConfig, LATEST, PERSISTED);
+      testee.send(plan, testAlertConfig, LATEST, PERSISTED);
 
       verify(mailSender).send(mimeMessage);
       assertEquals(RECIPIENT_2, mimeMessage.getRecipients(Message.RecipientType.TO)[0].toString());
@@ -131,14 +132,14 @@ class EmailNotificationSenderTest {
 
     @Test
     void sendEmailHappyCase_AlertComment() throws MessagingException, IOException {
-      final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of());
+      final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of()));
       final MimeMessage mimeMessage = getMockedMimeMessage();
 
       final AlertConfig testAlertConfig = new AlertConfig(12.25, Channel.EMAIL.getValue(), "Maximum forecast reached");
 
       ReflectionTestUtils.setField(testee, "from", "mocked@example.com");
 
-      testee.send(stockAlertsConfig, testAlertConfig, LATEST, PERSISTED);
+      testee.send(plan, testAlertConfig, LATEST, PERSISTED);
 
       verify(mailSender).send(mimeMessage);
       assertEquals(RECIPIENT_2, mimeMessage.getRecipients(Message.RecipientType.TO)[0].toString());
@@ -154,14 +155,14 @@ class EmailNotificationSenderTest {
     @Test
     void sendEmailHappyCase_CombinedComments() throws MessagingException, IOException {
       final SecurityConfig secConfig = new SecurityConfig("ABC", "Switzerland", null, "expected comment is present", null, null);
-      final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of(secConfig));
+      final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(NOTIFICATION_CHANNEL), List.of(secConfig)));
       final MimeMessage mimeMessage = getMockedMimeMessage();
 
       final AlertConfig testAlertConfig = new AlertConfig(12.25, Channel.EMAIL.getValue(), "Maximum forecast reached");
 
       ReflectionTestUtils.setField(testee, "from", "mocked@example.com");
 
-      testee.send(stockAlertsConfig, testAlertConfig, LATEST, PERSISTED);
+      testee.send(plan, testAlertConfig, LATEST, PERSISTED);
 
       verify(mailSender).send(mimeMessage);
       assertEquals(RECIPIENT_2, mimeMessage.getRecipients(Message.RecipientType.TO)[0].toString());
@@ -178,7 +179,7 @@ class EmailNotificationSenderTest {
   @Test
   void sendPercentageEmailHappyCase() throws MessagingException, IOException {
     final NotificationChannel mailChannel = new NotificationChannel(Channel.EMAIL.getValue(), RECIPIENT_2, false,true);
-    final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, "5%", List.of(mailChannel), List.of());
+    final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, "5%", List.of(mailChannel), List.of()));
     final MimeMessage mimeMessage = getMockedMimeMessage();
 
     LocalDateTime persistedTs = LocalDateTime.of(2025, Month.JULY, 17, 12, 16, 24, 12);
@@ -188,7 +189,7 @@ class EmailNotificationSenderTest {
 
     ReflectionTestUtils.setField(testee, "from", "mocked@example.com");
 
-    testee.send(stockAlertsConfig, latest, persisted, .05, 0.0527);
+    testee.send(plan, latest, persisted, .05, 0.0527);
 
 
     verify(mailSender).send(mimeMessage);
@@ -213,12 +214,12 @@ class EmailNotificationSenderTest {
   @Test
   void sendEmail_invalidAddress() {
     final NotificationChannel mailChannel = new NotificationChannel(Channel.EMAIL.getValue(), "i_am_NOT_a_valid_Email-Address", false, false);
-    final StockAlertsConfig stockAlertsConfig = new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of());
+    final AlertPlan plan = AlertPlan.compile(new StockAlertsConfig(null, null, null, List.of(mailChannel), List.of()));
     final Security persisted = new Security("ABC", 12.0, "CHF", null, LocalDateTime.now(), "Switzerland", null);
     final Security latest = new Security("ABC", 13.0, "CHF", null, LocalDateTime.now(), "Switzerland", null);
     final AlertConfig testAlertConfig = new AlertConfig(0, Channel.EMAIL.getValue(), null);
 
-    final MailSendException runtimeException = assertThrows(MailSendException.class, () -> testee.send(stockAlertsConfig, testAlertConfig, latest, persisted));
+    final MailSendException runtimeException = assertThrows(MailSendException.class, () -> testee.send(plan, testAlertConfig, latest, persisted));
 
     verify(mailSender, never()).send(any(MimeMessage.class));
     assertEquals("Failed to send email to i_am_NOT_a_valid_Email-Address: Missing final '@domain'", runtimeException.getMessage());
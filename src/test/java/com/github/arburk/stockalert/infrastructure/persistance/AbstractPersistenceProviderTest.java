@@ -1,13 +1,19 @@
 package com.github.arburk.stockalert.infrastructure.persistance;
 
+import com.github.arburk.stockalert.application.domain.Alert;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -73,6 +79,117 @@ class AbstractPersistenceProviderTest extends AbstractPersistenceProvider {
     assertTrue(securites.stream().map(Security::hashCode).toList().contains(updatedSecurity.hashCode()));
   }
 
+  @Test
+  void updateSecurity_AlertLogPruned() {
+    ReflectionTestUtils.setField(this, "alertLogMaxAgeDays", 30);
+    ReflectionTestUtils.setField(this, "alertLogMaxSize", 2);
+    final LocalDateTime now = LocalDateTime.now();
+    final Security stored = new Security("OLD", 1., "CHF", null, now, "SIX", List.of(
+        new Alert(now.minusDays(31), 1., "CHF"),
+        new Alert(now.minusDays(3), 2., "CHF"),
+        new Alert(now.minusDays(2), 3., "CHF")));
+    this.updateSecurity(stored);
+
+    final Security latest = new Security("OLD", 4., "CHF", null, now, "SIX", null);
+    latest.addLog(new Alert(now, 4., "CHF"));
+    this.updateSecurity(latest);
+
+    final Collection<Alert> alertLog = getSecurity(latest).orElseThrow().alertLog();
+    assertEquals(2, alertLog.size());
+    assertEquals(List.of(3., 4.), alertLog.stream().map(Alert::threshold).sorted().toList());
+  }
+
+  @Test
+  void updateSecurity_AlertLogPrunedByAgeOfClock() {
+    final Instant now = Instant.parse("2026-03-02T09:16:00Z");
+    ReflectionTestUtils.setField(this, "clock", Clock.fixed(now, ZoneOffset.UTC));
+    ReflectionTestUtils.setField(this, "alertLogMaxAgeDays", 30);
+    final LocalDateTime clockTime = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+    final Security stored = new Security("OLD", 1., "CHF", null, clockTime, "SIX", List.of(
+        new Alert(clockTime.minusDays(31), 1., "CHF"),
+        new Alert(clockTime.minusDays(29), 2., "CHF")));
+    this.updateSecurity(stored);
+
+    this.updateSecurity(new Security("OLD", 4., "CHF", null, clockTime.plusMinutes(15), "SIX", null));
+
+    assertEquals(List.of(2.), getSecurity(stored).orElseThrow().alertLog().stream().map(Alert::threshold).toList());
+  }
+
+  @Test
+  void getData_SortedBySymbol() {
+    this.updateSecurity(new Security("NEW", 44.44, "USD", null, LocalDateTime.now(), "NSE", null));
+    this.updateSecurity(new Security(TEST_SECURITY_A.symbol(), 13.0, "CHF", null, LocalDateTime.now(), TEST_SECURITY_A.exchange(), null));
+
+    final StockAlertDb data = getData();
+    assertEquals(List.of("NEW", "TST_A", "TST_B"), data.securities().stream().map(Security::symbol).toList());
+    assertEquals(13.0, data.securities().get(1).price());
+  }
+
+  @Test
+  void getDataCopy_AlertsAddedLaterNotIncluded() {
+    final Security stored = new Security("NEW", 44.44, "USD", null, LocalDateTime.now(), "NSE", null);
+    stored.addLog(new Alert(LocalDateTime.now(), 44., "USD"));
+    this.updateSecurity(stored);
+
+    final StockAlertDb copy = getDataCopy();
+    getSecurity(stored).orElseThrow().addLog(new Alert(LocalDateTime.now(), 45., "USD"));
+
+    final Security copied = copy.securities().getFirst();
+    assertEquals("NEW", copied.symbol());
+    assertEquals(List.of(44.), copied.alertLog().stream().map(Alert::threshold).toList());
+    assertEquals(2, getSecurity(stored).orElseThrow().alertLog().size());
+  }
+
+  @Test
+  void reload_ReplacesIndexedSecurities() {
+    this.updateSecurity(new Security("NEW", 44.44, "USD", null, LocalDateTime.now(), "NSE", null));
+    assertTrue(getSecurity(new Security("NEW", null, null, null, null, "NSE", null)).isPresent());
+
+    reload();
+
+    assertFalse(getSecurity(new Security("NEW", null, null, null, null, "NSE", null)).isPresent());
+    assertEquals(2, getSecurites().size());
+  }
+
+  @Test
+  void updateSecurity_TracksChanges() {
+    getSecurites();
+    assertFalse(hasUncommittedChanges());
+
+    this.updateSecurity(new Security(TEST_SECURITY_A.symbol(), TEST_SECURITY_A.price(), TEST_SECURITY_A.currency(),
+        TEST_SECURITY_A.changePercentage(), TEST_SECURITY_A.timestamp(), TEST_SECURITY_A.exchange(), null));
+    assertFalse(hasUncommittedChanges());
+
+    final Security alerted = new Security(TEST_SECURITY_A.symbol(), TEST_SECURITY_A.price(), TEST_SECURITY_A.currency(),
+        TEST_SECURITY_A.changePercentage(), TEST_SECURITY_A.timestamp(), TEST_SECURITY_A.exchange(), null);
+    alerted.addLog(new Alert(LocalDateTime.now(), 12.0, "CHF"));
+    this.updateSecurity(alerted);
+    assertTrue(hasUncommittedChanges());
+
+    committed(version());
+    assertFalse(hasUncommittedChanges());
+  }
+
+  @Test
+  void logAlert_TracksChanges() {
+    this.updateSecurity(new Security("NEW", 44.44, "USD", null, LocalDateTime.now(), "NSE", null));
+    committed(version());
+    final Security stored = getSecurity(new Security("NEW", null, null, null, null, "NSE", null)).orElseThrow();
+    final Alert alert = new Alert(LocalDateTime.now(), 44., "USD");
+
+    logAlert(stored, alert);
+    assertTrue(hasUncommittedChanges());
+    assertEquals(List.of(stored), List.copyOf(changedSecurities()));
+    committed(version());
+
+    // an older alert of the same threshold is not logged
+    logAlert(stored, new Alert(alert.timestamp().minusMinutes(1), 44., "USD"));
+    this.updateSecurity(new Security(stored.symbol(), stored.price(), stored.currency(), stored.changePercentage(),
+        stored.timestamp(), stored.exchange(), null));
+    assertFalse(hasUncommittedChanges());
+    assertEquals(alert.timestamp(), getSecurity(stored).orElseThrow().indexedAlertLog().find(alert).orElseThrow().timestamp());
+  }
+
   @Override
   StockAlertDb initData() {
     final ArrayList<Security> testSecurities = new ArrayList<>(Arrays.asList(TEST_SECURITY_A, TEST_SECURITY_B));
@@ -0,0 +1,84 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.service.cluster.Lease;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileLeaseStoreTest {
+
+  private static final Instant EXPIRY = Instant.parse("2026-03-02T09:17:30Z");
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  void putListDelete() {
+    final FileLeaseStore testee = new FileLeaseStore(directory.resolve("leases"), new JacksonConfig().objectMapper());
+    assertTrue(testee.list("replica-").isEmpty());
+
+    testee.put(new Lease("replica-a", "a", EXPIRY));
+    testee.put(new Lease("replica-b", "b", EXPIRY));
+    testee.put(new Lease("replica-b", "b", EXPIRY.plusSeconds(30)));
+    testee.put(new Lease("leader", "a", EXPIRY));
+
+    assertEquals(
+        List.of(new Lease("replica-a", "a", EXPIRY), new Lease("replica-b", "b", EXPIRY.plusSeconds(30))),
+        testee.list("replica-").stream().sorted((l, r) -> l.name().compareTo(r.name())).toList());
+
+    testee.delete("replica-a");
+    testee.delete("replica-unknown");
+    assertEquals(List.of("replica-b"), testee.list("replica-").stream().map(Lease::name).toList());
+  }
+
+  @Test
+  void tryAcquire() {
+    final FileLeaseStore testee = new FileLeaseStore(directory, new JacksonConfig().objectMapper());
+    final Instant now = EXPIRY.minusSeconds(90);
+
+    assertEquals(Optional.of(new Lease("leader", "a", EXPIRY, 1)), testee.tryAcquire("leader", "a", now, Duration.ofSeconds(90)));
+    assertTrue(testee.tryAcquire("leader", "b", now.plusSeconds(30), Duration.ofSeconds(90)).isEmpty());
+    assertEquals(Optional.of(new Lease("leader", "b", EXPIRY.plusSeconds(90), 2)), testee.tryAcquire("leader", "b", EXPIRY, Duration.ofSeconds(90)));
+  }
+
+  @Test
+  void release_OnlyLeaseStillHeld() {
+    final FileLeaseStore testee = new FileLeaseStore(directory, new JacksonConfig().objectMapper());
+    final Instant now = EXPIRY.minusSeconds(90);
+    testee.tryAcquire("leader", "a", now, Duration.ofSeconds(90));
+
+    // a was paused past its lease, which b acquired meanwhile
+    testee.tryAcquire("leader", "b", EXPIRY, Duration.ofSeconds(90));
+    assertFalse(testee.release("leader", "a", 1, EXPIRY));
+    assertEquals(List.of(new Lease("leader", "b", EXPIRY.plusSeconds(90), 2)), testee.list("leader"));
+
+    assertTrue(testee.release("leader", "b", 2, EXPIRY.plusSeconds(10)));
+    assertEquals(List.of(new Lease("leader", "b", EXPIRY.plusSeconds(10), 2)), testee.list("leader"));
+  }
+
+  @Test
+  void runIfHeld() {
+    final FileLeaseStore testee = new FileLeaseStore(directory, new JacksonConfig().objectMapper());
+    final Instant now = EXPIRY.minusSeconds(90);
+    testee.tryAcquire("leader", "a", now, Duration.ofSeconds(90));
+    final AtomicInteger writes = new AtomicInteger();
+
+    assertTrue(testee.runIfHeld("leader", "a", 1, now, writes::incrementAndGet));
+    assertFalse(testee.runIfHeld("leader", "a", 2, now, writes::incrementAndGet));
+    assertFalse(testee.runIfHeld("leader", "b", 1, now, writes::incrementAndGet));
+    assertFalse(testee.runIfHeld("leader", "a", 1, EXPIRY, writes::incrementAndGet));
+
+    assertEquals(1, writes.get());
+  }
+}
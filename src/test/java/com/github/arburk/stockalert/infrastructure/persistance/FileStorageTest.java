@@ -2,12 +2,16 @@ package com.github.arburk.stockalert.infrastructure.persistance;
 
 import tools.jackson.databind.ObjectMapper;
 import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.domain.Alert;
 import com.github.arburk.stockalert.application.domain.MetaInfo;
 import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
@@ -178,4 +182,71 @@ class FileStorageTest {
         "JSON-contents do not match");
   }
 
-}
\ No newline at end of file
+  @Test
+  void commitChanges_Unchanged_SkipsWrite() {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ReflectionTestUtils.setField(testee, "meterRegistry", meterRegistry);
+    testee.updateSecurity(new Security("BALN", 199.99, "CHF", null, TIMESTAMP, "Switzerland", null));
+    testee.commitChanges();
+    assertTrue(EXPECTED_FILE_PATH.toFile().delete());
+
+    // same quote polled again, e.g. outside market hours
+    testee.updateSecurity(new Security("BALN", 199.99, "CHF", null, TIMESTAMP, "Switzerland", null));
+    testee.commitChanges();
+    assertFalse(EXPECTED_FILE_PATH.toFile().exists());
+
+    testee.updateSecurity(new Security("BALN", 201.5, "CHF", null, TIMESTAMP.plusMinutes(15), "Switzerland", null));
+    testee.commitChanges();
+    assertTrue(EXPECTED_FILE_PATH.toFile().exists());
+
+    assertEquals(2, meterRegistry.counter("stockalert.storage.writes", "result", "performed").count());
+    assertEquals(1, meterRegistry.counter("stockalert.storage.writes", "result", "skipped").count());
+  }
+
+  @Test
+  void commitChanges_AlertOnUnchangedQuote_Written() {
+    final Security quote = new Security("BALN", 199.99, "CHF", null, TIMESTAMP, "Switzerland", null);
+    testee.updateSecurity(quote);
+    testee.commitChanges();
+    assertTrue(EXPECTED_FILE_PATH.toFile().delete());
+
+    // evaluation logs the alert on the stored instance, e.g. an intraday range crossing a threshold
+    testee.logAlert(testee.getSecurity(quote).orElseThrow(), new Alert(TIMESTAMP.plusMinutes(5), 200., "CHF"));
+    testee.updateSecurity(new Security("BALN", 199.99, "CHF", null, TIMESTAMP, "Switzerland", null));
+    testee.commitChanges();
+
+    assertTrue(EXPECTED_FILE_PATH.toFile().exists());
+    final FileStorage restarted = new FileStorage(new JacksonConfig().objectMapper());
+    assertEquals(List.of(200.), restarted.getSecurity(quote).orElseThrow().alertLog().stream().map(Alert::threshold).toList());
+  }
+
+  private static FileStorage replica(final Path directory, final String replicaId) {
+    final FileStorage replica = new FileStorage(new JacksonConfig().objectMapper());
+    ReflectionTestUtils.setField(replica, "filePath", directory.resolve("securities.db.json"));
+    ReflectionTestUtils.setField(replica, "sharded", true);
+    ReflectionTestUtils.setField(replica, "replicaId", replicaId);
+    replica.resolveStorageFile();
+    return replica;
+  }
+
+  @Test
+  void takeOver_StateOfPreviousOwnerLoaded(@TempDir final Path directory) {
+    final FileStorage previousOwner = replica(directory, "a");
+    final Security baln = new Security("BALN", 199.99, "CHF", null, TIMESTAMP, "Switzerland", null);
+    baln.addLog(new Alert(TIMESTAMP, 200., "CHF"));
+    previousOwner.updateSecurity(baln);
+    previousOwner.updateSecurity(new Security("HELN", 176.25, "CHF", null, TIMESTAMP, "Switzerland", null));
+    previousOwner.commitChanges();
+
+    final FileStorage newOwner = replica(directory, "b");
+    newOwner.updateSecurity(new Security("HELN", 170., "CHF", null, TIMESTAMP.plusDays(1), "Switzerland", null));
+    newOwner.takeOver(List.of(SecurityKey.of(baln), SecurityKey.of("HELN", "Switzerland")));
+    newOwner.commitChanges();
+
+    final FileStorage restarted = replica(directory, "b");
+    assertEquals(List.of(200.), restarted.getSecurity(baln).orElseThrow().alertLog().stream().map(Alert::threshold).toList());
+    // own state is more recent
+    assertEquals(170., restarted.getSecurity(new Security("HELN", 0., "CHF", null, null, "Switzerland", null)).orElseThrow().price());
+  }
+
+}
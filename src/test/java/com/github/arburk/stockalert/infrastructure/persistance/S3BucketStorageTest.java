@@ -1,9 +1,12 @@
 package com.github.arburk.stockalert.infrastructure.persistance;
 
 import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.domain.Alert;
 import com.github.arburk.stockalert.application.domain.MetaInfo;
 import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.SecurityKey;
 import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import com.github.arburk.stockalert.application.service.cluster.LeaderElection;
 import com.github.arburk.stockalert.application.service.stock.PersistenceProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,11 +19,16 @@ import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
@@ -31,10 +39,17 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -44,7 +59,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
@@ -80,15 +97,10 @@ class S3BucketStorageTest {
 
     assertTrue(result.isEmpty());
     final List<ListObjectsRequest> allRequests = requestCaptor.getAllValues();
-    assertEquals(2, allRequests.size());
-    final ListObjectsRequest firstRequest = allRequests.getFirst();
-    final ListObjectsRequest secondRequest = allRequests.getLast();
-    verify(mockS3).listObjects(firstRequest);
-    verify(mockS3).listObjects(secondRequest);
-    assertEquals(TEST_BUCKET, firstRequest.bucket());
-    assertEquals(TEST_BUCKET, secondRequest.bucket());
-    assertEquals(PersistenceProvider.STORAGE_FILE_NAME, firstRequest.prefix());
-    assertEquals(PersistenceProvider.STORAGE_FILE_NAME_0_1_3, secondRequest.prefix());
+    assertEquals(3, allRequests.size());
+    allRequests.forEach(request -> assertEquals(TEST_BUCKET, request.bucket()));
+    assertEquals(List.of(testee.manifestKey(), PersistenceProvider.STORAGE_FILE_NAME, PersistenceProvider.STORAGE_FILE_NAME_0_1_3),
+        allRequests.stream().map(ListObjectsRequest::prefix).toList());
     verify(mockS3, never()).getObject(any(GetObjectRequest.class));
   }
 
@@ -196,6 +208,40 @@ class S3BucketStorageTest {
     assertNull(ReflectionTestUtils.getField(testee, "s3")); // client should be reset to null
   }
 
+  @Test
+  void leaderElection_PutConditionalOnFencingToken() {
+    final LeaderElection leaderElection = mock(LeaderElection.class);
+    when(leaderElection.fencingToken()).thenReturn(1L);
+    ReflectionTestUtils.setField(testee, "leaderElection", leaderElection);
+    ReflectionTestUtils.setField(testee, "data", new StockAlertDb(new ArrayList<>(), null));
+    final S3Exception preconditionFailed = (S3Exception) S3Exception.builder().statusCode(412).message("At least one of the pre-conditions you specified did not hold").build();
+    final ArgumentCaptor<PutObjectRequest> putCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+    when(mockS3.putObject(putCaptor.capture(), any(RequestBody.class)))
+        .thenThrow(preconditionFailed)
+        .thenReturn(PutObjectResponse.builder().eTag("\"e2\"").build())
+        .thenThrow(preconditionFailed);
+    when(mockS3.headObject(any(HeadObjectRequest.class)))
+        .thenReturn(HeadObjectResponse.builder().eTag("\"e1\"").metadata(Map.of(S3BucketStorage.FENCING_TOKEN, "1")).build())
+        .thenReturn(HeadObjectResponse.builder().eTag("\"e3\"").metadata(Map.of(S3BucketStorage.FENCING_TOKEN, "2")).build());
+
+    // written by a former run with the same lease, overwritten
+    testee.updateSecurity(new Security("AAPL", 143.2, "USD", null, LocalDateTime.now(), "NYSE", null));
+    testee.commitChanges();
+    final List<PutObjectRequest> puts = putCaptor.getAllValues();
+    assertEquals(2, puts.size());
+    assertEquals("*", puts.getFirst().ifNoneMatch());
+    assertEquals("\"e1\"", puts.getLast().ifMatch());
+    assertEquals("1", puts.getLast().metadata().get(S3BucketStorage.FENCING_TOKEN));
+    verify(mockS3, never()).close();
+
+    // written by the successor with a newer lease meanwhile, kept
+    testee.updateSecurity(new Security("AAPL", 19.2, "USD", null, LocalDateTime.now(), "NYSE", null));
+    testee.commitChanges();
+    assertEquals(3, putCaptor.getAllValues().size());
+    assertEquals("\"e2\"", putCaptor.getValue().ifMatch());
+    verify(mockS3).close();
+  }
+
   @Test
   void shutdown_closesClient() {
     testee.shutdown();
@@ -233,4 +279,152 @@ class S3BucketStorageTest {
 
 
   }
-}
\ No newline at end of file
+
+  /**
+   * Backs the mocked client by the given objects, each put modifies the object later than any before.
+   */
+  private void mockBucket(final Map<String, byte[]> objects, final List<String> puts) {
+    final Map<String, Instant> lastModified = new ConcurrentHashMap<>();
+    final AtomicLong clock = new AtomicLong();
+    when(mockS3.listObjects(any(ListObjectsRequest.class))).thenAnswer(invocation -> {
+      final ListObjectsRequest request = invocation.getArgument(0);
+      return ListObjectsResponse.builder().contents(new TreeSet<>(objects.keySet()).stream()
+              .filter(key -> key.startsWith(request.prefix()))
+              .map(key -> S3Object.builder().key(key).lastModified(lastModified.get(key)).build())
+              .toList())
+          .build();
+    });
+    when(mockS3.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+      final PutObjectRequest request = invocation.getArgument(0);
+      final RequestBody body = invocation.getArgument(1);
+      try (var content = body.contentStreamProvider().newStream()) {
+        objects.put(request.key(), content.readAllBytes());
+      }
+      lastModified.put(request.key(), Instant.EPOCH.plusSeconds(clock.incrementAndGet()));
+      puts.add(request.key());
+      return PutObjectResponse.builder().build();
+    });
+    when(mockS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+      final byte[] content = objects.get(((GetObjectRequest) invocation.getArgument(0)).key());
+      if (content == null) {
+        throw NoSuchKeyException.builder().message("not found").build();
+      }
+      return new ResponseInputStream<>(GetObjectResponse.builder().build(), new ByteArrayInputStream(content));
+    });
+    when(mockS3.deleteObject(any(DeleteObjectRequest.class))).thenAnswer(invocation -> {
+      objects.remove(((DeleteObjectRequest) invocation.getArgument(0)).key());
+      return DeleteObjectResponse.builder().build();
+    });
+  }
+
+  private S3BucketStorage restarted(final int partitions) {
+    final S3BucketStorage restarted = new S3BucketStorage(new JacksonConfig().objectMapper());
+    ReflectionTestUtils.setField(restarted, "bucket", TEST_BUCKET);
+    ReflectionTestUtils.setField(restarted, "s3", mockS3);
+    ReflectionTestUtils.setField(restarted, "partitions", partitions);
+    return restarted;
+  }
+
+  private static List<Security> nasdaq(final LocalDateTime timestamp) {
+    return List.of("AAPL", "MSFT", "NVDA", "AMZN", "GOOG", "META", "TSLA", "NFLX").stream()
+        .map(symbol -> new Security(symbol, 100., "USD", null, timestamp, "NASDAQ", null))
+        .toList();
+  }
+
+  @Test
+  void partitioned_putsChangedPartitionsOnly() {
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    final List<String> puts = new CopyOnWriteArrayList<>();
+    mockBucket(objects, puts);
+    ReflectionTestUtils.setField(testee, "partitions", 4);
+
+    final LocalDateTime timestamp = LocalDateTime.now();
+    final List<Security> securities = nasdaq(timestamp);
+    securities.forEach(testee::updateSecurity);
+    testee.commitChanges();
+    assertEquals(5, puts.size(), "all partitions and the manifest are written first " + puts);
+    assertTrue(puts.contains("partitions/securities.db.json/manifest.json"));
+
+    puts.clear();
+    final Security changed = new Security("NVDA", 142.5, "USD", null, timestamp.plusMinutes(15), "NASDAQ", null);
+    testee.updateSecurity(changed);
+    testee.commitChanges();
+    assertEquals(List.of(testee.partitionKey(S3BucketStorage.partitionOf(changed, 4))), puts);
+
+    final S3BucketStorage restarted = restarted(4);
+    final Collection<Security> read = restarted.getSecurites();
+    assertEquals(securities.size(), read.size());
+    assertEquals(142.5, restarted.getSecurity(changed).orElseThrow().price());
+  }
+
+  @Test
+  void takeOver_StateOfPartitionedPreviousOwnerLoaded() {
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    mockBucket(objects, new CopyOnWriteArrayList<>());
+    final LocalDateTime timestamp = LocalDateTime.now();
+    final S3BucketStorage previousOwner = replica("a", 2);
+    final Security baln = new Security("BALN", 199.99, "CHF", null, timestamp, "Switzerland", null);
+    baln.addLog(new Alert(timestamp, 200., "CHF"));
+    previousOwner.updateSecurity(baln);
+    previousOwner.updateSecurity(new Security("HELN", 176.25, "CHF", null, timestamp, "Switzerland", null));
+    previousOwner.commitChanges();
+    assertTrue(objects.containsKey("partitions/securities.a.db.json/manifest.json"), objects.keySet().toString());
+
+    final S3BucketStorage newOwner = replica("b", 0);
+    newOwner.takeOver(List.of(SecurityKey.of(baln)));
+    newOwner.commitChanges();
+
+    final S3BucketStorage restarted = replica("b", 0);
+    assertEquals(List.of(200.), restarted.getSecurity(baln).orElseThrow().alertLog().stream().map(Alert::threshold).toList());
+    assertTrue(restarted.getSecurity(new Security("HELN", null, null, null, null, "Switzerland", null)).isEmpty());
+  }
+
+  private S3BucketStorage replica(final String replicaId, final int partitions) {
+    final S3BucketStorage replica = restarted(partitions);
+    ReflectionTestUtils.setField(replica, "sharded", true);
+    ReflectionTestUtils.setField(replica, "replicaId", replicaId);
+    return replica;
+  }
+
+  @Test
+  void partitioned_layoutChangeNotMixed() {
+    final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    final List<String> puts = new CopyOnWriteArrayList<>();
+    mockBucket(objects, puts);
+    ReflectionTestUtils.setField(testee, "partitions", 4);
+    final LocalDateTime timestamp = LocalDateTime.now();
+    final List<Security> securities = nasdaq(timestamp);
+    securities.forEach(testee::updateSecurity);
+    testee.commitChanges();
+    final Set<String> fourPartitions = Set.copyOf(objects.keySet());
+    assertEquals(5, fourPartitions.size());
+
+    // the manifest is not switched to the new layout, the former one is read entirely
+    final S3BucketStorage twoPartitions = restarted(2);
+    twoPartitions.updateSecurity(new Security("AAPL", 230.1, "USD", null, timestamp.plusMinutes(15), "NASDAQ", null));
+    doThrow(S3Exception.builder().message("Could not upload").build())
+        .when(mockS3).putObject(argThat((PutObjectRequest request) -> request != null && request.key().endsWith("manifest.json")), any(RequestBody.class));
+    twoPartitions.commitChanges();
+    assertTrue(objects.keySet().containsAll(fourPartitions));
+    assertEquals(8, restarted(4).getSecurites().size());
+    assertEquals(100., restarted(2).getSecurites().stream().filter(security -> "AAPL".equals(security.symbol())).findFirst().orElseThrow().price());
+
+    // once the new layout is in use, the former one is removed
+    mockBucket(objects, puts);
+    final S3BucketStorage switched = restarted(2);
+    switched.updateSecurity(new Security("AAPL", 230.1, "USD", null, timestamp.plusMinutes(15), "NASDAQ", null));
+    switched.commitChanges();
+    assertEquals(3, objects.size(), "two partitions and the manifest " + objects.keySet());
+    assertTrue(objects.containsKey(switched.partitionKey(0)));
+    assertEquals(230.1, restarted(2).getSecurites().stream().filter(security -> "AAPL".equals(security.symbol())).findFirst().orElseThrow().price());
+
+    // back to the single object, the partitions written last are read and removed once it was written
+    final S3BucketStorage single = restarted(0);
+    assertEquals(8, single.getSecurites().size());
+    single.updateSecurity(new Security("MSFT", 512.7, "USD", null, timestamp.plusMinutes(15), "NASDAQ", null));
+    single.commitChanges();
+    assertEquals(Set.of(PersistenceProvider.STORAGE_FILE_NAME), objects.keySet());
+    assertEquals(8, restarted(0).getSecurites().size());
+    assertEquals(230.1, restarted(4).getSecurity(securities.getFirst()).orElseThrow().price());
+  }
+}
@@ -0,0 +1,89 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.domain.Alert;
+import com.github.arburk.stockalert.application.domain.MetaInfo;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageCodecTest {
+
+  private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, Month.AUGUST, 6, 14, 39, 12);
+  private static final ObjectMapper OBJECT_MAPPER = new JacksonConfig().objectMapper();
+
+  private static StockAlertDb securities(final int count) {
+    final ArrayList<Security> securities = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      securities.add(new Security("SYM" + i, 100. + i, "CHF", i * .001, TIMESTAMP.plusMinutes(i), "Switzerland",
+          List.of(new Alert(TIMESTAMP.minusDays(i % 7), 90. + i, "CHF"), new Alert(TIMESTAMP, .05, "%"))));
+    }
+    return new StockAlertDb(securities, new MetaInfo(TIMESTAMP));
+  }
+
+  private static void assertSameContent(final StockAlertDb expected, final StockAlertDb actual) {
+    assertArrayEquals(OBJECT_MAPPER.writeValueAsBytes(expected), OBJECT_MAPPER.writeValueAsBytes(actual));
+  }
+
+  @ParameterizedTest
+  @EnumSource(StorageCodec.Format.class)
+  void roundTrip(final StorageCodec.Format format) throws IOException {
+    final StockAlertDb data = securities(20);
+    for (final boolean gzip : new boolean[] {false, true}) {
+      final byte[] encoded = new StorageCodec(format, gzip, OBJECT_MAPPER).encode(data);
+      // any codec reads any format
+      assertSameContent(data, new StorageCodec(StorageCodec.Format.JSON, false, OBJECT_MAPPER).decode(encoded));
+    }
+    assertEquals(format, StorageCodec.detect(new StorageCodec(format, false, OBJECT_MAPPER).encode(data)));
+  }
+
+  @Test
+  void decode_FormerJson() throws IOException {
+    final StockAlertDb data = securities(3);
+    final byte[] formerJson = OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+
+    assertSameContent(data, new StorageCodec(StorageCodec.Format.CBOR, true, OBJECT_MAPPER).decode(formerJson));
+    assertArrayEquals(formerJson, new StorageCodec(StorageCodec.Format.JSON, false, OBJECT_MAPPER).encode(data));
+  }
+
+  @Test
+  void of() {
+    assertEquals(StorageCodec.Format.JSON, StorageCodec.of(null, false, OBJECT_MAPPER).format());
+    assertEquals(StorageCodec.Format.SMILE, StorageCodec.of(" Smile ", true, OBJECT_MAPPER).format());
+    assertTrue(StorageCodec.of("cbor", true, OBJECT_MAPPER).isGzip());
+    assertThrows(IllegalArgumentException.class, () -> StorageCodec.of("zstd", false, OBJECT_MAPPER));
+  }
+
+  /**
+   * Compares the size of the encoded storage, the binary formats have to be smaller than the pretty printed json.
+   */
+  @Test
+  void encodedSize() {
+    final StockAlertDb data = securities(500);
+    final Map<StorageCodec.Format, Integer> sizes = new EnumMap<>(StorageCodec.Format.class);
+    for (final StorageCodec.Format format : StorageCodec.Format.values()) {
+      sizes.put(format, new StorageCodec(format, false, OBJECT_MAPPER).encode(data).length);
+    }
+    final int json = sizes.get(StorageCodec.Format.JSON);
+
+    assertTrue(sizes.get(StorageCodec.Format.SMILE) < json * .6, "smile " + sizes);
+    assertTrue(sizes.get(StorageCodec.Format.CBOR) < json * .75, "cbor " + sizes);
+    assertTrue(new StorageCodec(StorageCodec.Format.JSON, true, OBJECT_MAPPER).encode(data).length < json * .25, "gzip " + sizes);
+  }
+}
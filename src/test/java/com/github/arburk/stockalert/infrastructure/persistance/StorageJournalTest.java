@@ -0,0 +1,129 @@
+package com.github.arburk.stockalert.infrastructure.persistance;
+
+import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.domain.MetaInfo;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.StockAlertDb;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StorageJournalTest {
+
+  private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, Month.AUGUST, 6, 14, 39, 12);
+  private static final ObjectMapper OBJECT_MAPPER = new JacksonConfig().objectMapper();
+
+  @TempDir
+  private Path directory;
+
+  private static Security quote(final String symbol, final double price) {
+    return new Security(symbol, price, "CHF", null, TIMESTAMP, "Switzerland", null);
+  }
+
+  private static StockAlertDb empty() {
+    return new StockAlertDb(new ArrayList<>(), null);
+  }
+
+  @Test
+  void appendAndReplay() throws IOException {
+    final Path snapshot = directory.resolve("securities.db.json");
+    final StorageJournal testee = new StorageJournal(snapshot, OBJECT_MAPPER);
+    testee.append(List.of(quote("ROG", 251.34), quote("BALN", 199.99)), null);
+    testee.append(List.of(quote("ROG", 252.10)), new MetaInfo(TIMESTAMP));
+    assertEquals(4, testee.size());
+
+    final StorageJournal restarted = new StorageJournal(snapshot, OBJECT_MAPPER);
+    final StockAlertDb replayed = restarted.replay(new StockAlertDb(new ArrayList<>(List.of(quote("NOVN", 96.24))), null));
+
+    assertEquals(List.of("BALN", "NOVN", "ROG"), replayed.securities().stream().map(Security::symbol).toList());
+    assertEquals(252.10, replayed.securities().getLast().price());
+    assertEquals(new MetaInfo(TIMESTAMP), replayed.metaInfo());
+    assertEquals(4, restarted.size());
+  }
+
+  @Test
+  void replay_TornRecordDropped() throws IOException {
+    final Path snapshot = directory.resolve("securities.db.json");
+    final Path journal = directory.resolve("securities.db.json.journal");
+    new StorageJournal(snapshot, OBJECT_MAPPER).append(List.of(quote("ROG", 251.34)), null);
+    final long valid = Files.size(journal);
+    Files.writeString(journal, "0badc0de\t{\"security\":{\"symbol\":\"BAL", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+    final StorageJournal testee = new StorageJournal(snapshot, OBJECT_MAPPER);
+    assertEquals(List.of("ROG"), testee.replay(empty()).securities().stream().map(Security::symbol).toList());
+    assertEquals(valid, Files.size(journal));
+
+    // appends after the cut are replayed again
+    testee.append(List.of(quote("BALN", 199.99)), null);
+    assertEquals(List.of("BALN", "ROG"),
+        new StorageJournal(snapshot, OBJECT_MAPPER).replay(empty()).securities().stream().map(Security::symbol).toList());
+  }
+
+  @Test
+  void replay_ChecksumMismatchDropped() throws IOException {
+    final Path snapshot = directory.resolve("securities.db.json");
+    final Path journal = directory.resolve("securities.db.json.journal");
+    new StorageJournal(snapshot, OBJECT_MAPPER).append(List.of(quote("ROG", 251.34)), null);
+    Files.writeString(journal, Files.readString(journal).replace("251.34", "999.99"));
+
+    assertTrue(new StorageJournal(snapshot, OBJECT_MAPPER).replay(empty()).securities().isEmpty());
+  }
+
+  @Test
+  void compact() throws IOException {
+    final Path snapshot = directory.resolve("securities.db.json");
+    final StorageJournal testee = new StorageJournal(snapshot, OBJECT_MAPPER);
+    testee.append(List.of(quote("ROG", 251.34), quote("BALN", 199.99)), null);
+
+    assertTrue(testee.compact(new StockAlertDb(new ArrayList<>(List.of(quote("ROG", 251.34), quote("BALN", 199.99))), null)));
+    testee.append(List.of(quote("ROG", 252.10)), null);
+    testee.awaitCompaction();
+
+    assertEquals(1, testee.size());
+    assertFalse(Files.exists(directory.resolve("securities.db.json.journal.compacting")));
+    final StockAlertDb compacted = OBJECT_MAPPER.readValue(snapshot.toFile(), StockAlertDb.class);
+    assertEquals(List.of(199.99, 251.34), compacted.securities().stream().map(Security::price).toList());
+    final StockAlertDb replayed = new StorageJournal(snapshot, OBJECT_MAPPER).replay(compacted);
+    assertEquals(List.of(199.99, 252.10), replayed.securities().stream().map(Security::price).toList());
+  }
+
+  @Test
+  void fileStorage_JournalEnabled() {
+    final FileStorage testee = new FileStorage(OBJECT_MAPPER);
+    final Path snapshot = directory.resolve("securities.db.json");
+    ReflectionTestUtils.setField(testee, "filePath", snapshot);
+    ReflectionTestUtils.setField(testee, "journalEnabled", true);
+    ReflectionTestUtils.setField(testee, "journalCompactAfter", 3);
+
+    testee.updateSecurity(quote("ROG", 251.34));
+    testee.updateSecurity(quote("BALN", 199.99));
+    testee.commitChanges();
+    assertFalse(Files.exists(snapshot));
+    testee.updateSecurity(quote("ROG", 252.10));
+    testee.commitChanges();
+    testee.shutdown();
+    assertTrue(Files.exists(snapshot), "journal of 3 records is compacted");
+
+    testee.updateSecurity(quote("BALN", 201.5));
+    testee.commitChanges();
+
+    final FileStorage restarted = new FileStorage(OBJECT_MAPPER);
+    ReflectionTestUtils.setField(restarted, "filePath", snapshot);
+    assertEquals(List.of(201.5, 252.10), restarted.getSecurites().stream().map(Security::price).sorted().toList());
+  }
+}
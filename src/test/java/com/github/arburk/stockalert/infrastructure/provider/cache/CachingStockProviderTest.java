@@ -0,0 +1,185 @@
+package com.github.arburk.stockalert.infrastructure.provider.cache;
+
+import com.github.arburk.stockalert.application.domain.Alert;
+import com.github.arburk.stockalert.application.domain.Security;
+import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
+import com.github.arburk.stockalert.application.service.stock.StockProvider;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingStockProviderTest {
+
+  private static final SecurityConfig NESN = new SecurityConfig("NESN.SW", "Switzerland", null, null, null, null);
+  private static final SecurityConfig BALN = new SecurityConfig("BALN.SW", "Switzerland", null, null, null, null);
+
+  private final TestClock clock = new TestClock(Instant.parse("2026-03-02T10:00:00Z"));
+  private final List<Runnable> backgroundTasks = new ArrayList<>();
+  private StockProvider delegate;
+  private CachingStockProvider testee;
+
+  @BeforeEach
+  void setUp() {
+    delegate = mock(StockProvider.class);
+    testee = new CachingStockProvider(delegate, 10, Duration.ofSeconds(60), Duration.ofMinutes(15), Duration.ofSeconds(120),
+        clock, backgroundTasks::add);
+  }
+
+  @Test
+  void freshEntryServedFromCache() {
+    when(delegate.getLatest(anyList())).thenReturn(List.of(quote(NESN, 100, clock.now())));
+
+    assertEquals(100, testee.getLatest(List.of(NESN)).iterator().next().price());
+    clock.advance(Duration.ofSeconds(59));
+    assertEquals(100, testee.getLatest(List.of(NESN)).iterator().next().price());
+
+    verify(delegate, times(1)).getLatest(anyList());
+  }
+
+  @Test
+  void onlyMissingSymbolsFetched() {
+    when(delegate.getLatest(List.of(NESN))).thenReturn(List.of(quote(NESN, 100, clock.now())));
+    when(delegate.getLatest(List.of(BALN))).thenReturn(List.of(quote(BALN, 200, clock.now())));
+    testee.getLatest(List.of(NESN));
+
+    final Collection<Security> result = testee.getLatest(List.of(NESN, BALN));
+
+    assertEquals(2, result.size());
+    verify(delegate, times(1)).getLatest(List.of(NESN));
+    verify(delegate, times(1)).getLatest(List.of(BALN));
+  }
+
+  @Test
+  void staleEntryServedAndRefreshedInBackground() {
+    when(delegate.getLatest(anyList()))
+        .thenReturn(List.of(quote(NESN, 100, clock.now())))
+        .thenReturn(List.of(quote(NESN, 101, clock.now().plusSeconds(90))));
+    testee.getLatest(List.of(NESN));
+    clock.advance(Duration.ofSeconds(90));
+
+    assertEquals(100, testee.getLatest(List.of(NESN)).iterator().next().price(), "stale value is expected to be returned immediately");
+    assertEquals(100, testee.getLatest(List.of(NESN)).iterator().next().price());
+    assertEquals(1, backgroundTasks.size(), "only one refresh is expected per key while running");
+
+    backgroundTasks.getFirst().run();
+    assertEquals(101, testee.getLatest(List.of(NESN)).iterator().next().price());
+    verify(delegate, times(2)).getLatest(anyList());
+  }
+
+  @Test
+  void expiredEntryFetchedSynchronously() {
+    when(delegate.getLatest(anyList()))
+        .thenReturn(List.of(quote(NESN, 100, clock.now())))
+        .thenReturn(List.of(quote(NESN, 102, clock.now())));
+    testee.getLatest(List.of(NESN));
+    clock.advance(Duration.ofSeconds(181));
+
+    assertEquals(102, testee.getLatest(List.of(NESN)).iterator().next().price());
+    assertTrue(backgroundTasks.isEmpty());
+  }
+
+  @Test
+  void idleMarketKeptForIdleTtl() {
+    final Instant lastTrade = clock.now().minus(Duration.ofHours(14));
+    when(delegate.getLatest(anyList())).thenReturn(List.of(quote(NESN, 100, lastTrade)));
+    testee.getLatest(List.of(NESN));
+
+    clock.advance(Duration.ofMinutes(14));
+    testee.getLatest(List.of(NESN));
+
+    verify(delegate, times(1)).getLatest(anyList());
+    assertTrue(backgroundTasks.isEmpty());
+  }
+
+  @Test
+  void leastRecentlyUsedEvicted() {
+    final List<SecurityConfig> configs = new ArrayList<>();
+    final List<Security> quotes = new ArrayList<>();
+    for (int i = 0; i < 11; i++) {
+      final SecurityConfig config = new SecurityConfig("SYM" + i, "X", null, null, null, null);
+      configs.add(config);
+      quotes.add(quote(config, i, clock.now()));
+    }
+    when(delegate.getLatest(anyList())).thenReturn(quotes);
+
+    testee.getLatest(configs);
+
+    assertEquals(10, testee.size());
+    assertTrue(testee.keys().stream().noneMatch(key -> key.startsWith("SYM0::")));
+  }
+
+  @Test
+  void cachedInstancesNotSharedWithCaller() {
+    when(delegate.getLatest(anyList())).thenReturn(List.of(quote(NESN, 100, clock.now())));
+    testee.getLatest(List.of(NESN)).iterator().next().alertLog().add(new Alert(LocalDateTime.now(), 1d, "CHF"));
+
+    assertTrue(testee.getLatest(List.of(NESN)).iterator().next().alertLog().isEmpty());
+  }
+
+  @Test
+  void emptyRequestPassedThrough() {
+    when(delegate.getLatest(List.of())).thenReturn(List.of());
+    assertTrue(testee.getLatest(List.of()).isEmpty());
+    verify(delegate, never()).getLatest(List.of(NESN));
+  }
+
+  @Test
+  void invalidMaxSize() {
+    assertThrows(IllegalArgumentException.class, () -> new CachingStockProvider(delegate, 0, Duration.ofSeconds(1),
+        Duration.ofSeconds(1), Duration.ofSeconds(1), clock, Runnable::run));
+  }
+
+  private static Security quote(final SecurityConfig config, final double price, final Instant marketTime) {
+    return new Security(config.symbol(), price, "CHF", null, LocalDateTime.ofInstant(marketTime, ZoneOffset.UTC), config.exchange(), null);
+  }
+
+  private static final class TestClock extends Clock {
+
+    private Instant now;
+
+    private TestClock(final Instant now) {
+      this.now = now;
+    }
+
+    Instant now() {
+      return now;
+    }
+
+    void advance(final Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
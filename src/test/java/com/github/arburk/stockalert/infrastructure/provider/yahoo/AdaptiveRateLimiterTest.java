@@ -0,0 +1,78 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+  private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final AtomicLong clock = new AtomicLong(1_000 * ONE_SECOND);
+  private AdaptiveRateLimiter testee;
+
+  @BeforeEach
+  void setUp() {
+    testee = new AdaptiveRateLimiter(2, 0.5, clock::get);
+  }
+
+  @Test
+  void permitsAreSpacedByConfiguredRate() {
+    assertEquals(0, testee.reserve(), "first request is expected to pass immediately");
+    assertEquals(0, testee.reserve(), "second request is expected to use the initially stored permit");
+    assertEquals(ONE_SECOND / 2, testee.reserve());
+    assertEquals(ONE_SECOND, testee.reserve());
+  }
+
+  @Test
+  void idleTimeAllowsBurstOfOneSecond() {
+    clock.addAndGet(10 * ONE_SECOND);
+    assertEquals(0, testee.reserve());
+    assertEquals(0, testee.reserve());
+    assertEquals(0, testee.reserve());
+    assertTrue(testee.reserve() > 0, "burst is expected to be bounded to the permits of one second");
+  }
+
+  @Test
+  void throttlingHalvesRateDownToMinimum() {
+    testee.onThrottled(null);
+    assertEquals(1, testee.getPermitsPerSecond(), 0.001);
+    testee.onThrottled(null);
+    assertEquals(0.5, testee.getPermitsPerSecond(), 0.001);
+    testee.onThrottled(null);
+    assertEquals(0.5, testee.getPermitsPerSecond(), 0.001, "rate is expected not to fall below minimum");
+  }
+
+  @Test
+  void retryAfterPausesRequests() {
+    testee.onThrottled(Duration.ofSeconds(30));
+    assertEquals(30 * ONE_SECOND, testee.reserve());
+  }
+
+  @Test
+  void rateRecoversWithoutThrottling() {
+    testee.onThrottled(null);
+    testee.onThrottled(null);
+    assertEquals(0.5, testee.getPermitsPerSecond(), 0.001);
+
+    clock.addAndGet(60 * ONE_SECOND);
+    final double partlyRecovered = testee.getPermitsPerSecond();
+    assertTrue(partlyRecovered > 0.5 && partlyRecovered < 2, "rate is expected to recover gradually, but is " + partlyRecovered);
+
+    clock.addAndGet(600 * ONE_SECOND);
+    assertEquals(2, testee.getPermitsPerSecond(), 0.001, "rate is expected to recover up to the maximum");
+  }
+
+  @Test
+  void invalidLimitsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(0, 0, clock::get));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveRateLimiter(1, 2, clock::get));
+  }
+}
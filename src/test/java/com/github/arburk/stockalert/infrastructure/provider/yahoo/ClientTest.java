@@ -2,18 +2,27 @@ package com.github.arburk.stockalert.infrastructure.provider.yahoo;
 
 import com.github.arburk.stockalert.application.config.ApplicationConfig;
 import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.application.domain.PriceRange;
 import com.github.arburk.stockalert.application.domain.Security;
 import com.github.arburk.stockalert.application.domain.config.SecurityConfig;
 import com.github.arburk.stockalert.application.domain.config.StockAlertsConfig;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartError;
 import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.IntradayChart;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.QuoteResponse;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -92,6 +101,66 @@ class ClientTest {
     assertTrue(result.stream().map(Security::symbol).noneMatch("BROKEN"::equals));
   }
 
+  @Test
+  void concurrentFetch_SameResultWithFailingSymbolIsolated() {
+    ReflectionTestUtils.setField(testee, "maxConcurrency", 2);
+    when(yahooFinanceClient.getChart(eq("BALN.SW"), anyString(), anyString())).thenReturn(getChartResponse("chart-BALN.SW.json"));
+    when(yahooFinanceClient.getChart(eq("BROKEN"), anyString(), anyString())).thenThrow(new RuntimeException("HTTP 404 simulated"));
+    when(yahooFinanceClient.getChart(eq("INGA.AS"), anyString(), anyString())).thenReturn(getChartResponse("chart-INGA.AS.json"));
+    when(yahooFinanceClient.getChart(eq("MMM"), anyString(), anyString())).thenReturn(getChartResponse("chart-MMM.json"));
+
+    List<SecurityConfig> securities = new ArrayList<>();
+    securities.add(new SecurityConfig("BALN.SW", "Switzerland", null, null, null, null));
+    securities.add(new SecurityConfig("BROKEN", null, null, null, null, null));
+    securities.add(new SecurityConfig("INGA.AS", "Amsterdam", null, null, null, null));
+    securities.add(new SecurityConfig("MMM", "NYSE", null, null, null, null));
+    final Collection<Security> result = testee.getLatest(securities);
+
+    assertEquals(3, result.size());
+    assertTrue(result.stream().map(Security::symbol).noneMatch("BROKEN"::equals));
+    assertEquals("Amsterdam", result.stream().filter(sec -> "INGA.AS".equals(sec.symbol())).findFirst().orElseThrow().exchange());
+    verify(yahooFinanceClient, times(1)).getChart("MMM", Client.INTERVAL, Client.RANGE);
+  }
+
+  @Test
+  void batchMode_OneRequestPerChunk() {
+    ReflectionTestUtils.setField(testee, "batchSize", 2);
+    when(yahooFinanceClient.getQuotes(anyString())).thenReturn(getQuoteResponse("quote-BALN.SW-INGA.AS.json"));
+
+    List<SecurityConfig> securities = new ArrayList<>();
+    securities.add(new SecurityConfig("BALN.SW", "Switzerland", null, null, null, null));
+    securities.add(new SecurityConfig("INGA.AS", "Amsterdam", null, null, null, null));
+    securities.add(new SecurityConfig("MMM", "NYSE", null, null, null, null));
+    final Collection<Security> result = testee.getLatest(securities);
+
+    assertEquals(2, result.size(), "MMM is not part of the fixture and expected to be skipped");
+    final Security baln = result.stream().filter(sec -> "BALN.SW".equals(sec.symbol())).findFirst().orElseThrow();
+    assertEquals(207.4, baln.price());
+    assertEquals("CHF", baln.currency());
+    assertEquals(0.0117, baln.changePercentage());
+    assertEquals("Switzerland", baln.exchange());
+    assertEquals("Amsterdam", result.stream().filter(sec -> "INGA.AS".equals(sec.symbol())).findFirst().orElseThrow().exchange());
+    verify(yahooFinanceClient, times(2)).getQuotes(anyString());
+    verify(yahooFinanceClient, never()).getChart(anyString(), anyString(), anyString());
+  }
+
+  @Test
+  void batchMode_FailingChunkIsSkippedWhileOthersContinue() {
+    ReflectionTestUtils.setField(testee, "batchSize", 2);
+    ReflectionTestUtils.setField(testee, "maxConcurrency", 2);
+    when(yahooFinanceClient.getQuotes(eq("BALN.SW,INGA.AS"))).thenReturn(getQuoteResponse("quote-BALN.SW-INGA.AS.json"));
+    when(yahooFinanceClient.getQuotes(eq("MMM"))).thenThrow(new RuntimeException("HTTP 429 simulated"));
+
+    List<SecurityConfig> securities = new ArrayList<>();
+    securities.add(new SecurityConfig("BALN.SW", "Switzerland", null, null, null, null));
+    securities.add(new SecurityConfig("INGA.AS", "Amsterdam", null, null, null, null));
+    securities.add(new SecurityConfig("MMM", "NYSE", null, null, null, null));
+    final Collection<Security> result = testee.getLatest(securities);
+
+    assertEquals(2, result.size());
+    assertTrue(result.stream().map(Security::symbol).noneMatch("MMM"::equals));
+  }
+
   @Test
   void errorNodeInResponseIsSkipped() {
     when(yahooFinanceClient.getChart(eq("DELISTED"), anyString(), anyString())).thenReturn(getChartResponse("chart-error-not-found.json"));
@@ -130,6 +199,51 @@ class ClientTest {
     return new StockAlertsConfig(null, null, null, null, List.of(securities));
   }
 
+  @Test
+  void intradayRange_BarsSinceLastUpdate() {
+    ReflectionTestUtils.setField(testee, "intraday", true);
+    final SecurityConfig nesn = new SecurityConfig("NESN.SW", "Switzerland", null, null, null, null);
+    when(yahooFinanceClient.getChartBars("NESN.SW", Client.INTRADAY_INTERVAL, Client.RANGE)).thenReturn(new IntradayChart(null,
+        new long[] {1754555460, 1754555520, 1754555580, 1754555640, 1754555700},
+        new double[] {81.4, 78.6, Double.NaN, 80.2, 78.6},
+        new double[] {72.2, 78.3, Double.NaN, 78.5, 78.1},
+        null));
+
+    final LocalDateTime lastUpdate = LocalDateTime.ofInstant(Instant.ofEpochSecond(1754555670), ZoneId.systemDefault());
+    assertEquals(Optional.of(new PriceRange(78.1, 80.2)), testee.getIntradayRange(nesn, lastUpdate), "bars ended before last update are expected to be ignored");
+    assertEquals(Optional.of(new PriceRange(72.2, 81.4)), testee.getIntradayRange(nesn, null));
+    assertEquals(Optional.empty(), testee.getIntradayRange(nesn, lastUpdate.plusMinutes(5)));
+  }
+
+  @Test
+  void intradayRange_FailureAndErrorsIgnored() {
+    ReflectionTestUtils.setField(testee, "intraday", true);
+    final SecurityConfig broken = new SecurityConfig("BROKEN", null, null, null, null, null);
+    final SecurityConfig unknown = new SecurityConfig("UNKNOWN", null, null, null, null, null);
+    when(yahooFinanceClient.getChartBars(eq("BROKEN"), anyString(), anyString())).thenThrow(new RuntimeException("HTTP 404 simulated"));
+    when(yahooFinanceClient.getChartBars(eq("UNKNOWN"), anyString(), anyString()))
+        .thenReturn(new IntradayChart(null, new long[0], new double[0], new double[0], new ChartError("Not Found", "No data found")));
+
+    assertEquals(Optional.empty(), testee.getIntradayRange(broken, null));
+    assertEquals(Optional.empty(), testee.getIntradayRange(unknown, null));
+  }
+
+  @Test
+  void intradayRange_DisabledByDefault() {
+    final SecurityConfig nesn = new SecurityConfig("NESN.SW", "Switzerland", null, null, null, null);
+
+    assertEquals(Optional.empty(), testee.getIntradayRange(nesn, null));
+    verify(yahooFinanceClient, never()).getChartBars(anyString(), anyString(), anyString());
+  }
+
+  static QuoteResponse getQuoteResponse(final String fixture) {
+    try (InputStream inputStream = ClassLoader.getSystemResourceAsStream("rest-client/yahoo/" + fixture)) {
+      return new JacksonConfig().objectMapper().readValue(inputStream, QuoteResponse.class);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   static ChartResponse getChartResponse(final String fixture) {
     try (InputStream inputStream = ClassLoader.getSystemResourceAsStream("rest-client/yahoo/" + fixture)) {
       return new JacksonConfig().objectMapper().readValue(inputStream, ChartResponse.class);
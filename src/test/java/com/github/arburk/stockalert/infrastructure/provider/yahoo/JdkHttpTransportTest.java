@@ -0,0 +1,130 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Request;
+import feign.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JdkHttpTransportTest {
+
+  private static final String PAYLOAD = "{\"chart\":{\"result\":null,\"error\":null}}";
+
+  private final AtomicReference<String> receivedAcceptEncoding = new AtomicReference<>();
+  private final AtomicReference<String> receivedUserAgent = new AtomicReference<>();
+  private HttpServer server;
+  private JdkHttpTransport testee;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/gzip", exchange -> {
+      receivedAcceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+      receivedUserAgent.set(exchange.getRequestHeaders().getFirst("User-Agent"));
+      final byte[] body = gzip(PAYLOAD);
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.createContext("/plain", exchange -> {
+      final byte[] body = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(429, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.createContext("/slow", exchange -> {
+      try {
+        Thread.sleep(2_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.sendResponseHeaders(204, -1);
+      exchange.close();
+    });
+    server.start();
+    testee = new JdkHttpTransport(Duration.ofSeconds(2));
+  }
+
+  @AfterEach
+  void tearDown() {
+    testee.close();
+    server.stop(0);
+  }
+
+  @Test
+  void gzipRequestedAndDecompressed() throws IOException {
+    try (Response response = testee.execute(request("/gzip", Map.of("User-Agent", List.of(FeignConfig.USER_AGENT))), options(5))) {
+      assertEquals(200, response.status());
+      assertEquals(PAYLOAD, read(response));
+      assertFalse(response.headers().containsKey("Content-Encoding"), "body is expected to be handed out decompressed");
+    }
+    assertEquals("gzip", receivedAcceptEncoding.get());
+    assertEquals(FeignConfig.USER_AGENT, receivedUserAgent.get());
+  }
+
+  @Test
+  void statusAndUncompressedBodyPassedThrough() throws IOException {
+    try (Response response = testee.execute(request("/plain", Map.of()), options(5))) {
+      assertEquals(429, response.status());
+      assertEquals(PAYLOAD, read(response));
+      assertEquals(PAYLOAD.length(), response.body().length());
+    }
+  }
+
+  @Test
+  void restrictedHeadersIgnored() throws IOException {
+    try (Response response = testee.execute(request("/plain", Map.of("Host", List.of("example.com"), "Connection", List.of("close"))), options(5))) {
+      assertEquals(429, response.status());
+    }
+  }
+
+  @Test
+  void readTimeoutAppliedPerRequest() {
+    assertThrows(IOException.class, () -> testee.execute(request("/slow", Map.of()), options(1)));
+  }
+
+  private Request request(final String path, final Map<String, Collection<String>> headers) {
+    return Request.create(Request.HttpMethod.GET, "http://localhost:" + server.getAddress().getPort() + path,
+        headers, null, StandardCharsets.UTF_8, null);
+  }
+
+  private static Request.Options options(final int readTimeoutSeconds) {
+    return new Request.Options(1, TimeUnit.SECONDS, readTimeoutSeconds, TimeUnit.SECONDS, true);
+  }
+
+  private static String read(final Response response) throws IOException {
+    try (InputStream body = response.body().asInputStream()) {
+      return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static byte[] gzip(final String content) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+}
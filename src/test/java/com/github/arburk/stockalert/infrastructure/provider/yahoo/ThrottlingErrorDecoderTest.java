@@ -0,0 +1,126 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import feign.FeignException;
+import feign.Request;
+import feign.RetryableException;
+import feign.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ThrottlingErrorDecoderTest {
+
+  private AdaptiveRateLimiter rateLimiter;
+  private ThrottlingErrorDecoder testee;
+
+  @BeforeEach
+  void setUp() {
+    rateLimiter = mock(AdaptiveRateLimiter.class);
+    testee = new ThrottlingErrorDecoder(rateLimiter);
+  }
+
+  @Test
+  void tooManyRequests_RetryableAndReportedToRateLimiter() {
+    final Exception result = testee.decode("YahooFinanceClient#getChart", response(429, Map.of("Retry-After", List.of("2"))));
+
+    final RetryableException retryable = assertInstanceOf(RetryableException.class, result);
+    assertEquals(429, retryable.status());
+    assertNotNull(retryable.retryAfter());
+    verify(rateLimiter).onThrottled(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void tooManyRequestsWithoutHint_StillRetryable() {
+    final Exception result = testee.decode("YahooFinanceClient#getChart", response(429, Map.of()));
+
+    assertInstanceOf(RetryableException.class, result);
+    verify(rateLimiter).onThrottled(null);
+  }
+
+  @Test
+  void serviceUnavailable_RetryableWithoutRateReduction() {
+    final Exception result = testee.decode("YahooFinanceClient#getChart", response(503, Map.of()));
+
+    assertInstanceOf(RetryableException.class, result);
+    verify(rateLimiter, never()).onThrottled(any());
+  }
+
+  @Test
+  void otherErrors_NotRetryable() {
+    final Exception result = testee.decode("YahooFinanceClient#getChart", response(404, Map.of()));
+
+    assertInstanceOf(FeignException.class, result);
+    assertFalse(result instanceof RetryableException);
+    verify(rateLimiter, never()).onThrottled(any());
+  }
+
+  @Test
+  void parseRetryAfter() {
+    assertNull(ThrottlingErrorDecoder.parseRetryAfter(null));
+    assertNull(ThrottlingErrorDecoder.parseRetryAfter(" "));
+    assertNull(ThrottlingErrorDecoder.parseRetryAfter("soon"));
+    assertEquals(Duration.ofSeconds(120), ThrottlingErrorDecoder.parseRetryAfter(" 120 "));
+    assertEquals(Duration.ZERO, ThrottlingErrorDecoder.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+    final String inOneMinute = ZonedDateTime.now().plusMinutes(1).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    final Duration untilDate = ThrottlingErrorDecoder.parseRetryAfter(inOneMinute);
+    assertNotNull(untilDate);
+    assertTrue(untilDate.compareTo(Duration.ofSeconds(50)) > 0 && untilDate.compareTo(Duration.ofSeconds(61)) < 0);
+  }
+
+  @Test
+  void retryerGivesUpAfterMaxAttempts() {
+    final JitteredRetryer retryer = new JitteredRetryer(2, 1, 1);
+    final RetryableException exception = (RetryableException) testee.decode("YahooFinanceClient#getChart", response(503, Map.of()));
+
+    retryer.continueOrPropagate(exception);
+    assertThrows(RetryableException.class, () -> retryer.continueOrPropagate(exception));
+    retryer.clone().continueOrPropagate(exception /* clone starts from scratch */);
+  }
+
+  @Test
+  void retryerBackoffJitteredAndBounded() {
+    final JitteredRetryer retryer = new JitteredRetryer(10, 100, 400);
+    final RetryableException exception = (RetryableException) testee.decode("YahooFinanceClient#getChart", response(503, Map.of()));
+    retryer.continueOrPropagate(exception);
+    retryer.continueOrPropagate(exception);
+    retryer.continueOrPropagate(exception);
+    retryer.continueOrPropagate(exception);
+
+    for (int i = 0; i < 100; i++) {
+      final long backoff = retryer.nextBackoffMillis(null);
+      assertTrue(backoff >= 200 && backoff <= 400, "expected backoff capped to 400ms with jitter, but was " + backoff);
+    }
+    assertTrue(retryer.nextBackoffMillis(System.currentTimeMillis() + 60_000) <= 400, "Retry-After must not exceed max backoff");
+  }
+
+  private static Response response(final int status, final Map<String, Collection<String>> headers) {
+    return Response.builder()
+        .status(status)
+        .reason("simulated")
+        .headers(headers)
+        .request(Request.create(Request.HttpMethod.GET, "https://query1.finance.yahoo.com/v8/finance/chart/NESN.SW",
+            Map.of(), null, StandardCharsets.UTF_8, null))
+        .body("{}", StandardCharsets.UTF_8)
+        .build();
+  }
+}
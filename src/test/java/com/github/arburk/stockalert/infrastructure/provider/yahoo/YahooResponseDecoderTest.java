@@ -0,0 +1,149 @@
+package com.github.arburk.stockalert.infrastructure.provider.yahoo;
+
+import com.github.arburk.stockalert.application.config.JacksonConfig;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.ChartResponse;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.IntradayChart;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.Meta;
+import com.github.arburk.stockalert.infrastructure.provider.yahoo.dto.QuoteResponse;
+import feign.Request;
+import feign.Response;
+import feign.codec.DecodeException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class YahooResponseDecoderTest {
+
+  private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+  private final YahooResponseDecoder testee = new YahooResponseDecoder(objectMapper);
+
+  @ParameterizedTest
+  @ValueSource(strings = {"chart-BALN.SW.json", "chart-MMM.json", "chart-NESN.SW-full.json", "chart-error-not-found.json"})
+  void chartDecodedLikeDataBinding(final String fixture) throws IOException {
+    final byte[] body = readFixture(fixture);
+
+    final Object result = testee.decode(response(body), ChartResponse.class);
+
+    assertEquals(objectMapper.readValue(body, ChartResponse.class), result);
+  }
+
+  @Test
+  void metaOfFullChartExtracted() throws IOException {
+    final ChartResponse result = (ChartResponse) testee.decode(response(readFixture("chart-NESN.SW-full.json")), ChartResponse.class);
+
+    final Meta meta = result.chart().result().getFirst().meta();
+    assertEquals("NESN.SW", meta.symbol());
+    assertEquals("CHF", meta.currency());
+    assertEquals("Swiss Exchange", meta.fullExchangeName());
+    assertEquals(78.52, meta.regularMarketPrice());
+    assertEquals(78.0, meta.chartPreviousClose(), "integral number is expected to be read as double");
+    assertNull(meta.previousClose());
+    assertEquals(1754555700L, meta.regularMarketTime());
+    assertNull(result.chart().error());
+  }
+
+  @Test
+  void readingStopsAfterMeta() throws IOException {
+    final String truncated = """
+        {"chart":{"result":[{"meta":{"symbol":"MMM","currency":"USD","regularMarketPrice":150.25},
+        "timestamp":[1754575200,"""; // anything after meta is never parsed
+
+    final ChartResponse result = (ChartResponse) testee.decode(response(truncated.getBytes(StandardCharsets.UTF_8)), ChartResponse.class);
+
+    assertEquals("MMM", result.chart().result().getFirst().meta().symbol());
+    assertEquals(150.25, result.chart().result().getFirst().meta().regularMarketPrice());
+  }
+
+  @Test
+  void restOfBodyDrained() throws IOException {
+    // far more than the parser buffers at once
+    final String timestamps = LongStream.range(0, 10_000).mapToObj(minute -> Long.toString(1754555460L + 60 * minute))
+        .collect(Collectors.joining(","));
+    final ByteArrayInputStream body = new ByteArrayInputStream("""
+        {"chart":{"result":[{"meta":{"symbol":"NESN.SW","currency":"CHF"},"timestamp":[%s]}],"error":null}}"""
+        .formatted(timestamps).getBytes(StandardCharsets.UTF_8));
+
+    final ChartResponse result = (ChartResponse) testee.decode(response(body), ChartResponse.class);
+
+    assertEquals("NESN.SW", result.chart().result().getFirst().meta().symbol());
+    assertEquals(0, body.available(), "unread content prevents reusing the connection");
+  }
+
+  @Test
+  void intradayBarsDecodedToPrimitiveArrays() throws IOException {
+    final IntradayChart result = (IntradayChart) testee.decode(response(readFixture("chart-NESN.SW-1m.json")), IntradayChart.class);
+
+    assertEquals("NESN.SW", result.meta().symbol());
+    assertArrayEquals(new long[] {1754555460, 1754555520, 1754555580, 1754555640, 1754555700}, result.timestamps());
+    assertArrayEquals(new double[] {78.4, 78.6, Double.NaN, 80.2, 78.6}, result.highs());
+    assertArrayEquals(new double[] {78.2, 78.3, Double.NaN, 78.5, 78.1}, result.lows());
+    assertNull(result.error());
+  }
+
+  @Test
+  void intradayError() throws IOException {
+    final IntradayChart result = (IntradayChart) testee.decode(response(readFixture("chart-error-not-found.json")), IntradayChart.class);
+
+    assertNull(result.meta());
+    assertEquals(0, result.timestamps().length);
+    assertEquals("Not Found", result.error().code());
+  }
+
+  @Test
+  void otherTypesDataBound() throws IOException {
+    final QuoteResponse result = (QuoteResponse) testee.decode(response(readFixture("quote-BALN.SW-INGA.AS.json")), QuoteResponse.class);
+
+    assertNotNull(result.quoteResponse());
+    assertEquals(2, result.quoteResponse().result().size());
+  }
+
+  @Test
+  void malformedBodyRaisesDecodeException() {
+    final byte[] body = "{\"chart\":{\"result\":[{\"meta\":{\"symbol\":".getBytes(StandardCharsets.UTF_8);
+
+    assertThrows(DecodeException.class, () -> testee.decode(response(body), ChartResponse.class));
+  }
+
+  @Test
+  void emptyBodyDecodedAsNull() throws IOException {
+    assertNull(testee.decode(response(new byte[0]), ChartResponse.class));
+  }
+
+  private static byte[] readFixture(final String fixture) throws IOException {
+    try (InputStream inputStream = ClassLoader.getSystemResourceAsStream("rest-client/yahoo/" + fixture)) {
+      assertNotNull(inputStream, "missing fixture " + fixture);
+      return inputStream.readAllBytes();
+    }
+  }
+
+  private static Response response(final ByteArrayInputStream body) {
+    return ok().body(body, body.available()).build();
+  }
+
+  private static Response response(final byte[] body) {
+    return ok().body(body).build();
+  }
+
+  private static Response.Builder ok() {
+    return Response.builder()
+        .status(200)
+        .reason("OK")
+        .headers(Map.of())
+        .request(Request.create(Request.HttpMethod.GET, "https://query1.finance.yahoo.com/v8/finance/chart/NESN.SW",
+            Map.of(), null, StandardCharsets.UTF_8, null));
+  }
+}
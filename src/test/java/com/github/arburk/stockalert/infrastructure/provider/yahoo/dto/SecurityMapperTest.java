@@ -37,6 +37,16 @@ class SecurityMapperTest {
     assertEquals("Switzerland", output.exchange());
   }
 
+  @Test
+  void fromQuote_MappedLikeChartMeta() {
+    final Quote input = new Quote("DVN", "USD", "NYQ", "NYSE", 31.94, 32.14, 1754337599L);
+
+    final Security output = SecurityMapper.INSTANCE.fromQuote(input, "NYSE");
+    assertEquals(SecurityMapper.INSTANCE.fromChartMeta(input.asMeta(), "NYSE").toString(), output.toString());
+    assertEquals(-.0062, output.changePercentage());
+    assertNull(SecurityMapper.INSTANCE.fromQuote(null, "NYSE"));
+  }
+
   @Test
   void calcChangePercentage_RoundingTable() {
     assertEquals(-0.0167, calc(98.33, 100.0));